@@ -15,6 +15,7 @@ import ruc.irm.wikit.common.exception.WikitException;
 import ruc.irm.wikit.esa.ESAModel;
 import ruc.irm.wikit.esa.ESAModelImpl;
 import ruc.irm.wikit.esa.concept.ConceptCache;
+import ruc.irm.wikit.esa.concept.ConceptCacheNearImpl;
 import ruc.irm.wikit.esa.concept.ConceptCacheRedisImpl;
 import ruc.irm.wikit.esa.concept.vector.ConceptIterator;
 import ruc.irm.wikit.esa.concept.vector.ConceptVector;
@@ -54,7 +55,7 @@ public class EspmTagger {
     private void init() throws WikitException, IOException {
         this.esaModel = new ESAModelImpl(conf);
         this.espmModel = new SemanticPathMiningWikiImpl(conf);
-        this.conceptCache = new ConceptCacheRedisImpl(conf);
+        this.conceptCache = ConceptCacheNearImpl.wrap(conf, new ConceptCacheRedisImpl(conf));
         this.splitter = SentenceSplitter.getInstance();
     }
 
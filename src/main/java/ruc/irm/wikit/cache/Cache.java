@@ -50,6 +50,23 @@ public interface Cache {
         throw new IOException("Cache Method NOT Implemented.");
     };
 
+    /**
+     * Begin bulk load mode for building the cache, the relations are
+     * accumulated in memory and written to the storage in batch, until
+     * {@link #endBulkLoad()} is called. The relations written in this mode
+     * may not be visible before they are flushed.
+     */
+    public default void beginBulkLoad() {
+
+    }
+
+    /**
+     * Flush all pending relations and exit bulk load mode
+     */
+    public default void endBulkLoad() throws IOException {
+
+    }
+
     /**
      * Clear all cache content
      */
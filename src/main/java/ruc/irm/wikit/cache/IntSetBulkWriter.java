@@ -0,0 +1,210 @@
+package ruc.irm.wikit.cache;
+
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.util.NumberUtils;
+
+import java.io.Closeable;
+import java.util.*;
+
+/**
+ * Bulk writer for the Redis hashes whose values are int sets (encoded by
+ * {@link NumberUtils#intSet2Bytes(Set)}) or int counters, such as the link
+ * relations and category-article relations.
+ * <p>
+ * Instead of a hget-modify-hset round trip for each added id, the ids are
+ * accumulated in memory, and when the number of pending ids reaches
+ * "redis.bulk.batch.size", the touched fields are read by pipelined HMGET,
+ * merged with the pending ids, and written back by pipelined HSET, so one
+ * batch only costs a few round trips.
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 6:30 PM
+ */
+public class IntSetBulkWriter implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(IntSetBulkWriter.class);
+
+    /** the fields read or written in one pipeline */
+    private static final int PIPELINE_SIZE = 1000;
+
+    private Jedis jedis = null;
+    private int batchSize = 1000000;
+    private int pending = 0;
+
+    /** hash key --> (field --> ids to be added) */
+    private Map<String, TIntObjectHashMap<TIntHashSet>> sets = new HashMap<>();
+
+    /** set hash key --> the hash key to save the size of the set */
+    private Map<String, String> countKeys = new HashMap<>();
+
+    /** hash key --> (field --> delta) */
+    private Map<String, TIntIntHashMap> counters = new HashMap<>();
+
+    /**
+     * Write to the default Redis server, i.e., "redis.default.host" and
+     * "redis.default.port"
+     */
+    public IntSetBulkWriter(Conf conf) {
+        this(conf, conf.getRedisHost(), conf.getRedisPort());
+    }
+
+    /**
+     * Write to the given Redis server, which should be the same one as the
+     * cache reading the hashes, e.g., "esa.redis.host" for concept cache.
+     */
+    public IntSetBulkWriter(Conf conf, String host, int port) {
+        this.jedis = new Jedis(host, port, conf.getRedisTimeout());
+        this.batchSize = conf.getInt("redis.bulk.batch.size", 1000000);
+    }
+
+    /**
+     * Save the size of merged set of setKey into countKey when flush
+     */
+    public void setCountKey(String setKey, String countKey) {
+        countKeys.put(setKey, countKey);
+    }
+
+    /**
+     * Add id into the int set of key:field
+     */
+    public void add(String key, int field, int id) {
+        TIntObjectHashMap<TIntHashSet> fields = sets.get(key);
+        if (fields == null) {
+            fields = new TIntObjectHashMap<>();
+            sets.put(key, fields);
+        }
+
+        TIntHashSet ids = fields.get(field);
+        if (ids == null) {
+            ids = new TIntHashSet(4);
+            fields.put(field, ids);
+        }
+
+        if (ids.add(id) && ++pending >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Increase the int counter of key:field by delta
+     */
+    public void increment(String key, int field, int delta) {
+        TIntIntHashMap fields = counters.get(key);
+        if (fields == null) {
+            fields = new TIntIntHashMap();
+            counters.put(key, fields);
+        }
+
+        fields.adjustOrPutValue(field, delta, delta);
+        if (++pending >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Merge the pending ids and counters with the stored values in Redis
+     */
+    public void flush() {
+        if (pending == 0) return;
+
+        LOG.info("flush {} pending values to redis...", pending);
+        for (Map.Entry<String, TIntObjectHashMap<TIntHashSet>> entry : sets.entrySet()) {
+            flushSets(entry.getKey(), entry.getValue());
+        }
+
+        for (Map.Entry<String, TIntIntHashMap> entry : counters.entrySet()) {
+            flushCounters(entry.getKey(), entry.getValue());
+        }
+
+        sets.clear();
+        counters.clear();
+        pending = 0;
+    }
+
+    private void flushSets(String key, TIntObjectHashMap<TIntHashSet> fields) {
+        byte[] keyBytes = key.getBytes(Cache.ENCODING);
+        String countKey = countKeys.get(key);
+        byte[] countKeyBytes = (countKey == null) ? null : countKey.getBytes(Cache.ENCODING);
+
+        TIntObjectIterator<TIntHashSet> it = fields.iterator();
+        while (it.hasNext()) {
+            int size = Math.min(PIPELINE_SIZE, fields.size());
+            int[] batchFields = new int[size];
+            TIntHashSet[] batchIds = new TIntHashSet[size];
+            byte[][] hkeys = new byte[size][];
+
+            int n = 0;
+            while (n < size && it.hasNext()) {
+                it.advance();
+                batchFields[n] = it.key();
+                batchIds[n] = it.value();
+                hkeys[n] = NumberUtils.int2Bytes(it.key());
+                n++;
+            }
+
+            List<byte[]> values = hmget(keyBytes, Arrays.copyOf(hkeys, n));
+
+            Pipeline pipeline = jedis.pipelined();
+            for (int i = 0; i < n; i++) {
+                TIntHashSet ids = batchIds[i];
+                ids.addAll(NumberUtils.decodeIntSet(values.get(i)));
+                pipeline.hset(keyBytes, hkeys[i], NumberUtils.intSet2Bytes(ids));
+                if (countKeyBytes != null) {
+                    pipeline.hset(countKeyBytes, hkeys[i], NumberUtils.int2Bytes(ids.size()));
+                }
+            }
+            pipeline.sync();
+        }
+    }
+
+    private void flushCounters(String key, TIntIntHashMap fields) {
+        byte[] keyBytes = key.getBytes(Cache.ENCODING);
+
+        TIntIntIterator it = fields.iterator();
+        while (it.hasNext()) {
+            int size = Math.min(PIPELINE_SIZE, fields.size());
+            int[] deltas = new int[size];
+            byte[][] hkeys = new byte[size][];
+
+            int n = 0;
+            while (n < size && it.hasNext()) {
+                it.advance();
+                deltas[n] = it.value();
+                hkeys[n] = NumberUtils.int2Bytes(it.key());
+                n++;
+            }
+
+            List<byte[]> values = hmget(keyBytes, Arrays.copyOf(hkeys, n));
+
+            Pipeline pipeline = jedis.pipelined();
+            for (int i = 0; i < n; i++) {
+                int old = NumberUtils.bytes2Int(values.get(i), 0);
+                pipeline.hset(keyBytes, hkeys[i], NumberUtils.int2Bytes(old + deltas[i]));
+            }
+            pipeline.sync();
+        }
+    }
+
+    private List<byte[]> hmget(byte[] key, byte[][] fields) {
+        Pipeline pipeline = jedis.pipelined();
+        Response<List<byte[]>> response = pipeline.hmget(key, fields);
+        pipeline.sync();
+        return response.get();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        jedis.close();
+    }
+}
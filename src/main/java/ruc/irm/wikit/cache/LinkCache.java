@@ -6,12 +6,17 @@ import ruc.irm.wikit.cache.impl.LinkCacheRedisImpl;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.conf.ConfFactory;
 import ruc.irm.wikit.common.exception.MissedException;
+import ruc.irm.wikit.data.dump.WikiPageDump;
+import ruc.irm.wikit.data.dump.impl.PageBlockDump;
 import ruc.irm.wikit.data.dump.impl.PageSequenceDump;
+import ruc.irm.wikit.data.dump.parse.PageColumn;
 import ruc.irm.wikit.util.ConsoleLoop;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
 
 /**
  * The Cache which provide link access method. Be sure to build the link db
@@ -27,16 +32,72 @@ public interface LinkCache {
 
     public int getTotalPages();
 
+    /**
+     * Get the in links of all given pages at once, the ids of each page
+     * are sorted.
+     */
+    public default int[][] getInlinkArrays(int[] pageIds) {
+        int[][] links = new int[pageIds.length][];
+        for (int i = 0; i < pageIds.length; i++) {
+            links[i] = getInlinks(pageIds[i]).toArray();
+            Arrays.sort(links[i]);
+        }
+        return links;
+    }
+
+    /**
+     * Get the out links of all given pages at once, the ids of each page
+     * are sorted.
+     */
+    public default int[][] getOutlinkArrays(int[] pageIds) {
+        int[][] links = new int[pageIds.length][];
+        for (int i = 0; i < pageIds.length; i++) {
+            links[i] = getOutlinks(pageIds[i]).toArray();
+            Arrays.sort(links[i]);
+        }
+        return links;
+    }
+
+    /**
+     * Get the in link counts of all given pages at once
+     */
+    public default int[] getInlinkCounts(int[] pageIds) {
+        int[] counts = new int[pageIds.length];
+        for (int i = 0; i < pageIds.length; i++) {
+            counts[i] = getInlinks(pageIds[i]).size();
+        }
+        return counts;
+    }
+
+    /**
+     * Get the link idf, i.e., log(totalPages/inlinkCount), of all given
+     * pages at once
+     */
+    public default float[] getIdfs(int[] pageIds) {
+        int totalPages = getTotalPages();
+        int[] counts = getInlinkCounts(pageIds);
+        float[] idfs = new float[pageIds.length];
+        for (int i = 0; i < pageIds.length; i++) {
+            idfs[i] = (float) Math.log(1.0 * totalPages / counts[i]);
+        }
+        return idfs;
+    }
+
     public void writeNeighborsToJson(int pageId, File f) throws
             IOException;
 
     public void saveGraph(int id1, int id2, File outFile) throws FileNotFoundException, MissedException, IOException;
 
-    void build(PageSequenceDump dump) throws IOException;
+    /**
+     * Build link relations from dump, if the page is read from block dump
+     * with LINK_ID column, the resolved link ids are used directly.
+     */
+    void build(WikiPageDump dump) throws IOException;
 
     public static void main(String[] args) throws ParseException, IOException, MissedException {
         String helpMsg = "usage: LinkCache -c config.xml -build\n" +
-                "LinkCache -c config.xml -lookup" +
+                "LinkCache -c config.xml -lookup\n" +
+                "LinkCache -c config.xml -column\n" +
                 "LinkCache -c config.xml -id1 100 -id2 200";
 
         HelpFormatter helpFormatter = new HelpFormatter();
@@ -45,6 +106,8 @@ public interface LinkCache {
         options.addOption(new Option("c", true, "config file"));
         options.addOption(new Option("build", false, "build link db"));
         options.addOption(new Option("lookup", false, "lookup link info"));
+        options.addOption(new Option("column", false, "write link count " +
+                "column file from the built link db"));
         options.addOption(new Option("id1", true, "the first id"));
         options.addOption(new Option("id2", true, "the second id"));
         options.addOption(new Option("neighbor", true, "given neighbor id, " +
@@ -57,7 +120,15 @@ public interface LinkCache {
 
         Conf conf = ConfFactory.createConf(commandLine.getOptionValue("c"), true);
         LinkCache linkCache = new LinkCacheRedisImpl(conf);
-        if (commandLine.hasOption("build")) {
+        if (commandLine.hasOption("build")
+                && new File(conf.get("wiki.dump.block.file", "")).exists()) {
+            //only read the meta and resolved link ids, skip the text
+            String dumpFile = conf.get("wiki.dump.block.file");
+            System.out.println("Start to build link database from " + dumpFile);
+            linkCache.build(new PageBlockDump(conf, dumpFile,
+                    EnumSet.of(PageColumn.META, PageColumn.LINK_ID)));
+            System.out.println("Build process complete.");
+        } else if (commandLine.hasOption("build")) {
             String dumpFile = conf.get("wiki.dump.seq.file.article");
             System.out.println("Start to build link database from " + dumpFile);
             File f = new File(dumpFile);
@@ -70,6 +141,9 @@ public interface LinkCache {
                 linkCache.build(dump);
             }
             System.out.println("Build process complete.");
+        } else if (commandLine.hasOption("column")) {
+            ((LinkCacheRedisImpl) linkCache).buildCountColumn();
+            System.out.println("Write link counts to " + conf.get("link.count.file"));
         } else if (commandLine.hasOption("lookup")) {
             System.out.println("input page id to view in and out links.");
             ConsoleLoop.loop(new ConsoleLoop.Handler() {
@@ -0,0 +1,31 @@
+package ruc.irm.wikit.cache;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import ruc.irm.wikit.util.Metrics;
+
+/**
+ * Jedis connection which counts its calls into {@link Metrics}. Every
+ * command checks the transaction state before it is sent, so the calls are
+ * counted there, and a pipeline is counted as one call.
+ *
+ * @author Tian Xia
+ * @date Oct 18, 2026 1:30 AM
+ */
+public class MeteredJedis extends Jedis {
+    public MeteredJedis(String host, int port, int timeout) {
+        super(host, port, timeout);
+    }
+
+    @Override
+    protected void checkIsInMulti() {
+        Metrics.redisCall();
+        super.checkIsInMulti();
+    }
+
+    @Override
+    public Pipeline pipelined() {
+        Metrics.redisCall();
+        return super.pipelined();
+    }
+}
@@ -0,0 +1,141 @@
+package ruc.irm.wikit.cache;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import ruc.irm.wikit.common.conf.Conf;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache in front of the Redis lookups, the least recently
+ * used entries are evicted when the size exceeds "cache.near.size". The
+ * caches of int arrays, e.g., link relations, are bounded by the total
+ * length of the cached arrays instead, which is set by
+ * "cache.near.array.weight". Missing values (null) are cached too, so a
+ * lookup of non-existed name does not go to Redis again.
+ * <p>
+ * The near cache is shared by name in the process, i.e., the name
+ * identifies the data set, all the wrappers created by the worker threads
+ * with the same name use one cache, so it is warmed up once and its memory
+ * does not grow with the number of threads. The statistics of all near
+ * caches can be got by {@link #listStats()}.
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 8:40 PM
+ */
+public class NearCache<K, V> {
+    private static final Map<String, NearCache<?, ?>> REGISTRY = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final com.google.common.cache.Cache<K, Optional<V>> cache;
+
+    private NearCache(String name, com.google.common.cache.Cache<K, Optional<V>> cache) {
+        this.name = name;
+        this.cache = cache;
+    }
+
+    /**
+     * The near cache is enabled when "cache.near.size" is larger than 0
+     */
+    public static boolean isEnabled(Conf conf) {
+        return conf.getInt("cache.near.size", 100000) > 0;
+    }
+
+    /**
+     * Get the shared near cache of name, it is created with at most
+     * "cache.near.size" entries when it is first used.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> NearCache<K, V> create(Conf conf, String name) {
+        return (NearCache<K, V>) REGISTRY.computeIfAbsent(name, n -> {
+            com.google.common.cache.Cache<K, Optional<V>> cache = CacheBuilder.newBuilder()
+                    .maximumSize(conf.getInt("cache.near.size", 100000))
+                    .recordStats()
+                    .build();
+            return new NearCache<>(n, cache);
+        });
+    }
+
+    /**
+     * Get the shared near cache of int arrays, the total length of cached
+     * arrays is at most "cache.near.array.weight".
+     */
+    @SuppressWarnings("unchecked")
+    public static <K> NearCache<K, int[]> createArrays(Conf conf, String name) {
+        return (NearCache<K, int[]>) REGISTRY.computeIfAbsent(name, n -> {
+            com.google.common.cache.Cache<K, Optional<int[]>> cache = CacheBuilder.newBuilder()
+                    .maximumWeight(conf.getLong("cache.near.array.weight", 20000000L))
+                    .weigher((K key, Optional<int[]> value) ->
+                            value.isPresent() ? value.get().length + 1 : 1)
+                    .recordStats()
+                    .build();
+            return new NearCache<>(n, cache);
+        });
+    }
+
+    /**
+     * Get value of key from cache, if not cached, load it by loader, the
+     * loader can return null.
+     */
+    public V get(K key, Function<K, V> loader) {
+        Optional<V> value = cache.getIfPresent(key);
+        if (value == null) {
+            value = Optional.ofNullable(loader.apply(key));
+            cache.put(key, value);
+        }
+        return value.orElse(null);
+    }
+
+    /**
+     * Get the cached value of key, null if it is not cached or the cached
+     * value is null.
+     */
+    public V getIfPresent(K key) {
+        Optional<V> value = cache.getIfPresent(key);
+        return (value == null) ? null : value.orElse(null);
+    }
+
+    public void put(K key, V value) {
+        cache.put(key, Optional.ofNullable(value));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Statistics of all near caches, sorted by name
+     */
+    public static Map<String, CacheStats> listStats() {
+        Map<String, CacheStats> stats = new TreeMap<>();
+        for (NearCache<?, ?> c : REGISTRY.values()) {
+            stats.put(c.name, c.stats());
+        }
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        CacheStats s = stats();
+        return String.format("%s[size=%d, hit=%d, miss=%d, hitRate=%.3f, eviction=%d]",
+                name, size(), s.hitCount(), s.missCount(), s.hitRate(),
+                s.evictionCount());
+    }
+}
@@ -10,13 +10,17 @@ import ruc.irm.wikit.common.exception.WikitException;
 import ruc.irm.wikit.cache.impl.ArticleCacheRedisImpl;
 import ruc.irm.wikit.cache.impl.CategoryCacheRedisImpl;
 import ruc.irm.wikit.data.dump.WikiPageDump;
+import ruc.irm.wikit.data.dump.impl.PageBlockDump;
 import ruc.irm.wikit.data.dump.impl.PageSequenceDump;
+import ruc.irm.wikit.data.dump.parse.PageColumn;
 import ruc.irm.wikit.data.dump.parse.WikiPage;
 import ruc.irm.wikit.data.dump.parse.WikiPageFilter;
 import ruc.irm.wikit.util.ProgressCounter;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.EnumSet;
 
 /**
  * <p>Building cache which is related with wiki category</p>
@@ -43,7 +47,14 @@ public class WikiCacheBuilder {
     public void buildCache(final boolean createArticleCache,
                                     final boolean createCategoryCache)
             throws WikitException, IOException {
-        WikiPageDump dump = new PageSequenceDump(conf);
+        WikiPageDump dump = null;
+        if (new File(conf.get("wiki.dump.block.file", "")).exists()) {
+            //only categories are needed, skip links and text
+            dump = new PageBlockDump(conf, conf.get("wiki.dump.block.file"),
+                    EnumSet.of(PageColumn.META, PageColumn.CATEGORY));
+        } else {
+            dump = new PageSequenceDump(conf);
+        }
         final ArticleCache artCache = new ArticleCacheRedisImpl(conf);
         final CategoryCache catCache = new CategoryCacheRedisImpl(conf);
         if(!artCache.nameIdMapped() || !catCache.nameIdMapped()) {
@@ -53,6 +64,10 @@ public class WikiCacheBuilder {
 
         System.out.println("Start to build cache, article:" +
                 createArticleCache + ", category:" + createCategoryCache);
+        if (createCategoryCache) {
+            //category relations are written in batch
+            catCache.beginBulkLoad();
+        }
         dump.traverse(new WikiPageFilter() {
             private ProgressCounter counter = new ProgressCounter();
 
@@ -137,9 +152,12 @@ public class WikiCacheBuilder {
             }
 
             @Override
-            public void close() {
+            public void close() throws IOException {
                 if(createArticleCache) artCache.done();
-                if(createCategoryCache) catCache.done();
+                if(createCategoryCache) {
+                    catCache.endBulkLoad();
+                    catCache.done();
+                }
             }
         });
     }
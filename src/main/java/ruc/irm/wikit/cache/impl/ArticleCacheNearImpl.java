@@ -0,0 +1,174 @@
+package ruc.irm.wikit.cache.impl;
+
+import ruc.irm.wikit.cache.ArticleCache;
+import ruc.irm.wikit.cache.NearCache;
+import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.common.exception.MissedException;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Article cache which serves the name-id lookups from the bounded
+ * in-process {@link NearCache}, and reads from the delegated cache only
+ * when missed.
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 9:30 PM
+ */
+public class ArticleCacheNearImpl implements ArticleCache {
+    private ArticleCache delegate = null;
+
+    private NearCache<String, List<Integer>> name2ids = null;
+    private NearCache<Integer, String> id2name = null;
+    private NearCache<String, Integer> nameOrAlias2id = null;
+    private NearCache<Integer, int[]> categories = null;
+
+    public ArticleCacheNearImpl(Conf conf, ArticleCache delegate) {
+        this.delegate = delegate;
+        this.name2ids = NearCache.create(conf, "article.name2ids");
+        this.id2name = NearCache.create(conf, "article.id2name");
+        this.nameOrAlias2id = NearCache.create(conf, "article.nameOrAlias2id");
+        this.categories = NearCache.createArrays(conf, "article.categories");
+    }
+
+    /**
+     * Wrap the article cache by near cache if "cache.near.size" > 0
+     */
+    public static ArticleCache wrap(Conf conf, ArticleCache delegate) {
+        return NearCache.isEnabled(conf) ? new ArticleCacheNearImpl(conf, delegate) : delegate;
+    }
+
+    private void invalidateAll() {
+        name2ids.invalidateAll();
+        id2name.invalidateAll();
+        nameOrAlias2id.invalidateAll();
+        categories.invalidateAll();
+    }
+
+    @Override
+    public void saveNameIdMapping(String name, int id) {
+        delegate.saveNameIdMapping(name, id);
+        invalidateAll();
+    }
+
+    @Override
+    public Set<Integer> listIds() {
+        return delegate.listIds();
+    }
+
+    @Override
+    public boolean nameExist(String name) {
+        return !getAllIdsByName(name).isEmpty();
+    }
+
+    @Override
+    public boolean idExist(int id) {
+        return getNameById(id, null) != null;
+    }
+
+    @Override
+    public int getIdByName(String name, int valueForNotExisted) {
+        List<Integer> ids = getAllIdsByName(name);
+        return ids.isEmpty() ? valueForNotExisted : ids.get(0);
+    }
+
+    @Override
+    public int getIdByName(String name) throws MissedException {
+        List<Integer> ids = getAllIdsByName(name);
+        if (ids.isEmpty()) {
+            throw new MissedException("wiki article " + name + " does not exist");
+        }
+        return ids.get(0);
+    }
+
+    @Override
+    public String getNameById(int id) throws MissedException {
+        String name = getNameById(id, null);
+        if (name == null) {
+            throw new MissedException("wiki article page does not exist for id" + id);
+        }
+        return name;
+    }
+
+    @Override
+    public String getNameById(int id, String defaultValue) {
+        String name = id2name.get(id, key -> delegate.getNameById(key, null));
+        return (name == null) ? defaultValue : name;
+    }
+
+    @Override
+    public void finishNameIdMapping() {
+        delegate.finishNameIdMapping();
+    }
+
+    @Override
+    public boolean nameIdMapped() {
+        return delegate.nameIdMapped();
+    }
+
+    @Override
+    public List<Integer> getAllIdsByName(String name) {
+        return name2ids.get(name.toLowerCase(),
+                key -> Collections.unmodifiableList(delegate.getAllIdsByName(key)));
+    }
+
+    @Override
+    public int getIdByNameOrAlias(String name) {
+        return nameOrAlias2id.get(name, delegate::getIdByNameOrAlias);
+    }
+
+    @Override
+    public void saveCategories(int pageId, Set<String> categories) throws MissedException {
+        delegate.saveCategories(pageId, categories);
+        this.categories.invalidateAll();
+    }
+
+    @Override
+    public Set<Integer> getCategories(int pageId) throws MissedException {
+        int[] ids = categories.get(pageId, key -> {
+            try {
+                return delegate.getCategories(key).stream().mapToInt(Integer::intValue).toArray();
+            } catch (MissedException e) {
+                return null;
+            }
+        });
+        if (ids == null) {
+            //not cached, let the delegated cache throw the exception
+            return delegate.getCategories(pageId);
+        }
+
+        Set<Integer> set = new HashSet<>(Math.max(16, ids.length * 4 / 3 + 1));
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Override
+    public void done() {
+        delegate.done();
+    }
+
+    @Override
+    public boolean hasDone() {
+        return delegate.hasDone();
+    }
+
+    @Override
+    public void saveCacheToGZipFile() throws IOException {
+        delegate.saveCacheToGZipFile();
+    }
+
+    @Override
+    public void buildCacheFromGZipFile() throws IOException {
+        delegate.buildCacheFromGZipFile();
+        invalidateAll();
+    }
+
+    @Override
+    public void clearAll() {
+        delegate.clearAll();
+        invalidateAll();
+    }
+}
@@ -7,6 +7,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
+import ruc.irm.wikit.cache.MeteredJedis;
 import ruc.irm.wikit.cache.RedirectCache;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.exception.MissedException;
@@ -45,7 +46,7 @@ public class ArticleCacheRedisImpl implements ArticleCache,NameIdMapping,
     public ArticleCacheRedisImpl(Conf conf) {
         this.conf = conf;
         this.prefix = conf.getRedisPrefix();
-        this.jedis = new Jedis(conf.getRedisHost(), conf.getRedisPort(), conf.getRedisTimeout());
+        this.jedis = new MeteredJedis(conf.getRedisHost(), conf.getRedisPort(), conf.getRedisTimeout());
         this.categoryNameIdMapping = new CategoryCacheRedisImpl(conf);
     }
 
@@ -7,6 +7,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
+import ruc.irm.wikit.cache.IntSetBulkWriter;
+import ruc.irm.wikit.cache.MeteredJedis;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.exception.MissedException;
 import ruc.irm.wikit.cache.Cache;
@@ -34,11 +36,14 @@ public class CategoryCacheRedisImpl implements CategoryCache,
     private String prefix = "";
     private Jedis jedis = null;
 
+    /** not null in bulk load mode, see beginBulkLoad() */
+    private IntSetBulkWriter bulkWriter = null;
+
     public CategoryCacheRedisImpl(Conf conf) {
         this.conf = conf;
         this.prefix = conf.get("category.redis.prefix", "");
         this.prefix += "vc:";
-        this.jedis = new Jedis(conf.getRedisHost(), conf.getRedisPort(), conf.getRedisTimeout());
+        this.jedis = new MeteredJedis(conf.getRedisHost(), conf.getRedisPort(), conf.getRedisTimeout());
     }
 
 //    private byte[] makePageKey(int pageId) {
@@ -70,6 +75,16 @@ public class CategoryCacheRedisImpl implements CategoryCache,
 
     @Override
     public void saveParents(int catId, Collection<String> parents) {
+        if (bulkWriter != null) {
+            for (String p : parents) {
+                int pid = getIdByName(p, -1);
+                if (pid >= 0) {
+                    bulkWriter.add(prefix + "id2pids", catId, pid);
+                }
+            }
+            return;
+        }
+
         byte[] key = (prefix + "id2pids").getBytes(ENCODING);
         byte[] hkey = NumberUtils.int2Bytes(catId);
 
@@ -93,6 +108,16 @@ public class CategoryCacheRedisImpl implements CategoryCache,
 
     @Override
     public void saveChildren(int catId, String... children) {
+        if (bulkWriter != null) {
+            for (String c : children) {
+                int cid = getIdByName(c, -1);
+                if (cid >= 0) {
+                    bulkWriter.add(prefix + "id2cids", catId, cid);
+                }
+            }
+            return;
+        }
+
         byte[] key = (prefix + "id2cids").getBytes(ENCODING);
         byte[] hkey = NumberUtils.int2Bytes(catId);
 
@@ -116,6 +141,15 @@ public class CategoryCacheRedisImpl implements CategoryCache,
 
     @Override
     public void saveChildren(int catId, int... childIds) {
+        if (bulkWriter != null) {
+            for (int id : childIds) {
+                if (idExist(id)) {
+                    bulkWriter.add(prefix + "id2cids", catId, id);
+                }
+            }
+            return;
+        }
+
         byte[] key = (prefix + "id2cids").getBytes(ENCODING);
         byte[] hkey = NumberUtils.int2Bytes(catId);
         byte[] value = jedis.hget(key, hkey);
@@ -134,6 +168,11 @@ public class CategoryCacheRedisImpl implements CategoryCache,
 
     @Override
     public void addArticleRelation(int catId, int articleId) {
+        if (bulkWriter != null) {
+            bulkWriter.add(prefix + "id2aids", catId, articleId);
+            return;
+        }
+
         byte[] key = (prefix + "id2aids").getBytes(ENCODING);
         byte[] hkey = NumberUtils.int2Bytes(catId);
         byte[] value = jedis.hget(key, hkey);
@@ -145,6 +184,19 @@ public class CategoryCacheRedisImpl implements CategoryCache,
         }
     }
 
+    @Override
+    public void beginBulkLoad() {
+        bulkWriter = new IntSetBulkWriter(conf);
+    }
+
+    @Override
+    public void endBulkLoad() {
+        if (bulkWriter != null) {
+            bulkWriter.close();
+            bulkWriter = null;
+        }
+    }
+
     @Override
     public Set<Integer> getParentIds(int catId) {
         byte[] key = (prefix + "id2pids").getBytes(ENCODING);
@@ -209,6 +261,11 @@ public class CategoryCacheRedisImpl implements CategoryCache,
 
     @Override
     public void incArticleCount(int catId, int count) {
+        if (bulkWriter != null) {
+            bulkWriter.increment(prefix + "id2ac", catId, count);
+            return;
+        }
+
         byte[] key = (prefix + "id2ac").getBytes(ENCODING);
         byte[] hkey = NumberUtils.int2Bytes(catId);
 
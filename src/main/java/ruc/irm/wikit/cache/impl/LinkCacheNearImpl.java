@@ -0,0 +1,195 @@
+package ruc.irm.wikit.cache.impl;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import ruc.irm.wikit.cache.LinkCache;
+import ruc.irm.wikit.cache.NearCache;
+import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.common.exception.MissedException;
+import ruc.irm.wikit.data.dump.WikiPageDump;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Link cache which keeps the in and out links, in link counts and link idf
+ * of the recently used pages in the bounded in-process {@link NearCache},
+ * so the relatedness of the same pages can be calculated repeatedly without
+ * going to Redis. All the cached values are dropped when the links are
+ * built again.
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 9:40 PM
+ */
+public class LinkCacheNearImpl implements LinkCache {
+    private LinkCache delegate = null;
+
+    private NearCache<Integer, int[]> inlinks = null;
+    private NearCache<Integer, int[]> outlinks = null;
+    private NearCache<Integer, Integer> inlinkCounts = null;
+    private NearCache<Integer, Float> idfs = null;
+    private volatile int totalPages = -1;
+
+    public LinkCacheNearImpl(Conf conf, LinkCache delegate) {
+        this.delegate = delegate;
+        this.inlinks = NearCache.createArrays(conf, "link.inlinks");
+        this.outlinks = NearCache.createArrays(conf, "link.outlinks");
+        this.inlinkCounts = NearCache.create(conf, "link.inlink.count");
+        this.idfs = NearCache.create(conf, "link.idf");
+    }
+
+    /**
+     * Wrap the link cache by near cache if "cache.near.size" > 0
+     */
+    public static LinkCache wrap(Conf conf, LinkCache delegate) {
+        return NearCache.isEnabled(conf) ? new LinkCacheNearImpl(conf, delegate) : delegate;
+    }
+
+    @Override
+    public TIntSet getInlinks(int pageId) {
+        return new TIntHashSet(inlinks.get(pageId, id -> sorted(delegate.getInlinks(id).toArray())));
+    }
+
+    @Override
+    public TIntSet getOutlinks(int pageId) {
+        return new TIntHashSet(outlinks.get(pageId, id -> sorted(delegate.getOutlinks(id).toArray())));
+    }
+
+    private static int[] sorted(int[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    @Override
+    public int[][] getInlinkArrays(int[] pageIds) {
+        return getArrays(pageIds, inlinks, delegate::getInlinkArrays);
+    }
+
+    @Override
+    public int[][] getOutlinkArrays(int[] pageIds) {
+        return getArrays(pageIds, outlinks, delegate::getOutlinkArrays);
+    }
+
+    /**
+     * Read the cached links, and fetch the missed ones from delegate in one
+     * batch. All cached link arrays are sorted.
+     */
+    private int[][] getArrays(int[] pageIds, NearCache<Integer, int[]> cache,
+                              Function<int[], int[][]> loader) {
+        int[][] links = new int[pageIds.length][];
+        TIntArrayList missed = new TIntArrayList();
+        for (int i = 0; i < pageIds.length; i++) {
+            int[] ids = cache.getIfPresent(pageIds[i]);
+            if (ids == null) {
+                missed.add(i);
+            } else {
+                links[i] = ids.clone();
+            }
+        }
+        if (!missed.isEmpty()) {
+            int[] missedIds = new int[missed.size()];
+            for (int i = 0; i < missedIds.length; i++) {
+                missedIds[i] = pageIds[missed.get(i)];
+            }
+            int[][] loaded = loader.apply(missedIds);
+            for (int i = 0; i < missedIds.length; i++) {
+                cache.put(missedIds[i], loaded[i]);
+                links[missed.get(i)] = loaded[i].clone();
+            }
+        }
+        return links;
+    }
+
+    @Override
+    public int[] getInlinkCounts(int[] pageIds) {
+        int[] counts = new int[pageIds.length];
+        TIntArrayList missed = new TIntArrayList();
+        for (int i = 0; i < pageIds.length; i++) {
+            Integer count = inlinkCounts.getIfPresent(pageIds[i]);
+            if (count != null) {
+                counts[i] = count;
+                continue;
+            }
+            int[] ids = inlinks.getIfPresent(pageIds[i]);
+            if (ids != null) {
+                counts[i] = ids.length;
+            } else {
+                missed.add(i);
+            }
+        }
+        if (!missed.isEmpty()) {
+            int[] missedIds = new int[missed.size()];
+            for (int i = 0; i < missedIds.length; i++) {
+                missedIds[i] = pageIds[missed.get(i)];
+            }
+            int[] loaded = delegate.getInlinkCounts(missedIds);
+            for (int i = 0; i < missedIds.length; i++) {
+                inlinkCounts.put(missedIds[i], loaded[i]);
+                counts[missed.get(i)] = loaded[i];
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Read the cached idf weights, and fetch the missed ones from delegate in
+     * one batch, e.g., from the link count column.
+     */
+    @Override
+    public float[] getIdfs(int[] pageIds) {
+        float[] weights = new float[pageIds.length];
+        TIntArrayList missed = new TIntArrayList();
+        for (int i = 0; i < pageIds.length; i++) {
+            Float w = idfs.getIfPresent(pageIds[i]);
+            if (w == null) {
+                missed.add(i);
+            } else {
+                weights[i] = w;
+            }
+        }
+        if (!missed.isEmpty()) {
+            int[] missedIds = new int[missed.size()];
+            for (int i = 0; i < missedIds.length; i++) {
+                missedIds[i] = pageIds[missed.get(i)];
+            }
+            float[] loaded = delegate.getIdfs(missedIds);
+            for (int i = 0; i < missedIds.length; i++) {
+                idfs.put(missedIds[i], loaded[i]);
+                weights[missed.get(i)] = loaded[i];
+            }
+        }
+        return weights;
+    }
+
+    @Override
+    public int getTotalPages() {
+        if (totalPages < 0) {
+            totalPages = delegate.getTotalPages();
+        }
+        return totalPages;
+    }
+
+    @Override
+    public void writeNeighborsToJson(int pageId, File f) throws IOException {
+        delegate.writeNeighborsToJson(pageId, f);
+    }
+
+    @Override
+    public void saveGraph(int id1, int id2, File outFile) throws FileNotFoundException, MissedException, IOException {
+        delegate.saveGraph(id1, id2, outFile);
+    }
+
+    @Override
+    public void build(WikiPageDump dump) throws IOException {
+        delegate.build(dump);
+        inlinks.invalidateAll();
+        outlinks.invalidateAll();
+        inlinkCounts.invalidateAll();
+        idfs.invalidateAll();
+        totalPages = -1;
+    }
+}
@@ -5,19 +5,24 @@ import com.alibaba.fastjson.serializer.SerializerFeature;
 import com.google.common.base.Charsets;
 import com.google.common.io.Files;
 import com.google.common.primitives.Ints;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
 import gnu.trove.procedure.TIntProcedure;
 import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.TIntHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import ruc.irm.wikit.cache.ArticleCache;
 import ruc.irm.wikit.cache.Cache;
 import ruc.irm.wikit.cache.LinkCache;
+import ruc.irm.wikit.cache.MeteredJedis;
 import ruc.irm.wikit.cache.NameIdMapping;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.exception.MissedException;
-import ruc.irm.wikit.data.dump.impl.PageSequenceDump;
+import ruc.irm.wikit.data.dump.WikiPageDump;
 import ruc.irm.wikit.data.dump.parse.WikiPage;
 import ruc.irm.wikit.data.dump.parse.WikiPageFilter;
 import ruc.irm.wikit.util.NumberUtils;
@@ -47,14 +52,21 @@ public class LinkCacheRedisImpl implements LinkCache, Cache {
     private String prefix = "";
     private Jedis jedis = null;
 
+    /** the commands sent in one pipeline when build */
+    private static final int PIPELINE_BATCH_SIZE = 10000;
+
+    /** the dense link counts, null if the column file does not exist */
+    private volatile LinkCountColumn countColumn = null;
+    private volatile boolean countColumnOpened = false;
+
 
     public LinkCacheRedisImpl(Conf conf) {
         this.conf = conf;
         this.prefix = conf.getRedisPrefix() + "link:";
-        this.jedis = new Jedis(conf.getRedisHost(), conf.getRedisPort(), conf.getRedisTimeout());
+        this.jedis = new MeteredJedis(conf.getRedisHost(), conf.getRedisPort(), conf.getRedisTimeout());
     }
 
-    public void build(PageSequenceDump dump) throws IOException {
+    public void build(WikiPageDump dump) throws IOException {
         NameIdMapping nameIdMapping = new ArticleCacheRedisImpl(conf);
         if (!nameIdMapping.nameIdMapped()) {
             System.out.println("Please build article cache first!");
@@ -68,38 +80,66 @@ public class LinkCacheRedisImpl implements LinkCache, Cache {
             private int outLinks = 0;
             private int skipLinks = 0;
 
+            //the link counts are collected for the count column file
+            private TIntIntMap inlinkCounts = new TIntIntHashMap();
+            private TIntIntMap outlinkCounts = new TIntIntHashMap();
+
+            //the relations are sent by pipeline and synced in batch
+            private Pipeline pipeline = jedis.pipelined();
+            private int pipelined = 0;
+
             @Override
             public void process(WikiPage wikiPage, int index) {
                 if (wikiPage.isArticle() && !wikiPage.isRedirect()) {
-                    List<String> internalLinks = wikiPage.getInternalLinks();
-                    Map<String, Integer> linkFreqMap = new HashMap<>();
-                    for (String target : internalLinks) {
-                        linkFreqMap.put(target,
-                                linkFreqMap.getOrDefault(target, 0) + 1);
+                    Map<Integer, Integer> linkFreqMap = new HashMap<>();
+                    int[] linkIds = wikiPage.getInternalLinkIds();
+                    if (linkIds != null) {
+                        //the links have been resolved in block dump
+                        for (int targetId : linkIds) {
+                            linkFreqMap.put(targetId,
+                                    linkFreqMap.getOrDefault(targetId, 0) + 1);
+                        }
+                    } else {
+                        for (String target : wikiPage.getInternalLinks()) {
+                            int targetId = nameIdMapping.getIdByName(target, 0);
+                            if (targetId == 0) {
+                                skipLinks++;
+                                continue;
+                            }
+                            linkFreqMap.put(targetId,
+                                    linkFreqMap.getOrDefault(targetId, 0) + 1);
+                        }
                     }
 
                     //add out links, for inlink, we use Set structure because
                     // some page may have a lot of in links, but for
                     // outlinks, it's limited, so, we use Hash to save outlink.
                     byte[] keyOut = makeKey(prefix + "out:", wikiPage.getId());
-                    for (Map.Entry<String, Integer> entry : linkFreqMap.entrySet()) {
-                        int targetId = nameIdMapping.getIdByName(entry.getKey(), 0);
-                        if (targetId == 0) {
-                            skipLinks++;
-                            continue;
-                        }
-                        jedis.hset(keyOut, Ints.toByteArray(targetId),
+                    Map<byte[], byte[]> outFreqs = new HashMap<>();
+                    for (Map.Entry<Integer, Integer> entry : linkFreqMap.entrySet()) {
+                        int targetId = entry.getKey();
+                        outFreqs.put(Ints.toByteArray(targetId),
                                 Ints.toByteArray(entry.getValue()));
                         outLinks += entry.getValue();
 
                         //update in link info
                         byte[] keyIn = makeKey(prefix + "in:", targetId);
-                        jedis.sadd(keyIn, Ints.toByteArray(wikiPage.getId()));
+                        pipeline.sadd(keyIn, Ints.toByteArray(wikiPage.getId()));
+                        inlinkCounts.adjustOrPutValue(targetId, 1, 1);
                         inLinks++;
                     }
+                    outlinkCounts.put(wikiPage.getId(), outFreqs.size());
+                    if (!outFreqs.isEmpty()) {
+                        pipeline.hmset(keyOut, outFreqs);
+                    }
 
+                    pipelined += outFreqs.size() + 1;
+                    if (pipelined >= PIPELINE_BATCH_SIZE) {
+                        pipeline.sync();
+                        pipelined = 0;
+                    }
                     pages++;
-                } else {
+                } else if (!wikiPage.isCategory()) {
                     LOG.error("Meet page that is not a normal article");
                     System.out.println(wikiPage);
                 }
@@ -107,6 +147,8 @@ public class LinkCacheRedisImpl implements LinkCache, Cache {
 
             @Override
             public void close (){
+                pipeline.sync();
+
                 //save summary info
                 byte[] key = (prefix + "summary").getBytes(ENCODING);
                 byte[] hkey = "totalPages".getBytes(ENCODING);
@@ -123,6 +165,14 @@ public class LinkCacheRedisImpl implements LinkCache, Cache {
 
                 LOG.info(pages + " articles are processed.");
 
+                try {
+                    LinkCountColumn.write(new File(conf.get("link.count.file")),
+                            pages, inlinkCounts, outlinkCounts);
+                } catch (IOException e) {
+                    LOG.error("write link count column error", e);
+                }
+                resetCountColumn();
+
             }
         });
     }
@@ -149,13 +199,194 @@ public class LinkCacheRedisImpl implements LinkCache, Cache {
         return ids;
     }
 
+    /**
+     * Fetch the in links of all pages by pipeline, the replies of
+     * PIPELINE_BATCH_SIZE pages are synced each time.
+     */
+    @Override
+    public int[][] getInlinkArrays(int[] pageIds) {
+        int[][] links = new int[pageIds.length][];
+        for (int start = 0; start < pageIds.length; start += PIPELINE_BATCH_SIZE) {
+            int end = Math.min(pageIds.length, start + PIPELINE_BATCH_SIZE);
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<Set<byte[]>>> responses = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                responses.add(pipeline.smembers(makeKey(prefix + "in:", pageIds[i])));
+            }
+            pipeline.sync();
+            for (int i = start; i < end; i++) {
+                links[i] = toSortedArray(responses.get(i - start).get());
+            }
+        }
+        return links;
+    }
+
+    @Override
+    public int[][] getOutlinkArrays(int[] pageIds) {
+        int[][] links = new int[pageIds.length][];
+        for (int start = 0; start < pageIds.length; start += PIPELINE_BATCH_SIZE) {
+            int end = Math.min(pageIds.length, start + PIPELINE_BATCH_SIZE);
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<Set<byte[]>>> responses = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                responses.add(pipeline.hkeys(makeKey(prefix + "out:", pageIds[i])));
+            }
+            pipeline.sync();
+            for (int i = start; i < end; i++) {
+                links[i] = toSortedArray(responses.get(i - start).get());
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Read the in link counts from count column if it exists, otherwise
+     * count them by SCARD in pipeline, the sets are not transferred.
+     */
+    @Override
+    public int[] getInlinkCounts(int[] pageIds) {
+        int[] counts = new int[pageIds.length];
+        LinkCountColumn column = countColumn();
+        if (column != null) {
+            for (int i = 0; i < pageIds.length; i++) {
+                counts[i] = column.getInlinkCount(pageIds[i]);
+            }
+            return counts;
+        }
+        for (int start = 0; start < pageIds.length; start += PIPELINE_BATCH_SIZE) {
+            int end = Math.min(pageIds.length, start + PIPELINE_BATCH_SIZE);
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<Long>> responses = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                responses.add(pipeline.scard(makeKey(prefix + "in:", pageIds[i])));
+            }
+            pipeline.sync();
+            for (int i = start; i < end; i++) {
+                counts[i] = responses.get(i - start).get().intValue();
+            }
+        }
+        return counts;
+    }
+
+    private static int[] toSortedArray(Set<byte[]> values) {
+        int[] ids = new int[values.size()];
+        int i = 0;
+        for (byte[] id : values) {
+            ids[i++] = NumberUtils.bytes2Int(id);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    @Override
+    public float[] getIdfs(int[] pageIds) {
+        LinkCountColumn column = countColumn();
+        if (column == null) {
+            return LinkCache.super.getIdfs(pageIds);
+        }
+        float[] idfs = new float[pageIds.length];
+        for (int i = 0; i < pageIds.length; i++) {
+            idfs[i] = column.getIdf(pageIds[i]);
+        }
+        return idfs;
+    }
+
     public long getInlinkCount(int pageId) {
+        LinkCountColumn column = countColumn();
+        if (column != null) {
+            return column.getInlinkCount(pageId);
+        }
         byte[] key = makeKey(prefix + "in:", pageId);
         return jedis.scard(key);
     }
 
     public long getOutlinkCount(int pageId) {
-        return getOutlinks(pageId).size();
+        LinkCountColumn column = countColumn();
+        if (column != null) {
+            return column.getOutlinkCount(pageId);
+        }
+        byte[] key = makeKey(prefix + "out:", pageId);
+        return jedis.hlen(key);
+    }
+
+    /**
+     * Open the count column file configured by "link.count.file" at the
+     * first time, null if the file does not exist. The file is ignored if
+     * its total pages is not the same as the summary in Redis, i.e., it is
+     * left by another link graph.
+     */
+    private LinkCountColumn countColumn() {
+        if (!countColumnOpened) {
+            synchronized (this) {
+                if (!countColumnOpened) {
+                    try {
+                        File f = new File(conf.get("link.count.file"));
+                        LinkCountColumn column = LinkCountColumn.open(f);
+                        int totalPages = getTotalPages();
+                        if (column != null && column.getTotalPages() != totalPages) {
+                            LOG.warn("ignore link count file {}, its total pages {} " +
+                                    "does not match {} in redis", f,
+                                    column.getTotalPages(), totalPages);
+                            column = null;
+                        }
+                        countColumn = column;
+                    } catch (IOException e) {
+                        LOG.error("open link count column error", e);
+                    }
+                    countColumnOpened = true;
+                }
+            }
+        }
+        return countColumn;
+    }
+
+    private synchronized void resetCountColumn() {
+        countColumn = null;
+        countColumnOpened = false;
+    }
+
+    /**
+     * Write the count column file from the link relations which have been
+     * built in Redis, the counts are read by SCARD and HLEN in pipeline.
+     * The page ids come from the article name-id mapping, so the key space
+     * is not scanned by KEYS, which blocks the Redis server.
+     */
+    public void buildCountColumn() throws IOException {
+        NameIdMapping nameIdMapping = new ArticleCacheRedisImpl(conf);
+        if (!nameIdMapping.nameIdMapped()) {
+            throw new IOException("article name-id mapping does not exist.");
+        }
+        int[] pageIds = nameIdMapping.listIds().stream().mapToInt(Integer::intValue).toArray();
+
+        TIntIntMap inlinkCounts = countByIds(pageIds, prefix + "in:", true);
+        TIntIntMap outlinkCounts = countByIds(pageIds, prefix + "out:", false);
+        LinkCountColumn.write(new File(conf.get("link.count.file")),
+                getTotalPages(), inlinkCounts, outlinkCounts);
+        resetCountColumn();
+    }
+
+    private TIntIntMap countByIds(int[] pageIds, String head, boolean set) {
+        TIntIntMap counts = new TIntIntHashMap(pageIds.length * 2);
+        ProgressCounter counter = new ProgressCounter(pageIds.length);
+        for (int start = 0; start < pageIds.length; start += PIPELINE_BATCH_SIZE) {
+            int end = Math.min(pageIds.length, start + PIPELINE_BATCH_SIZE);
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<Long>> responses = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                byte[] key = makeKey(head, pageIds[i]);
+                responses.add(set ? pipeline.scard(key) : pipeline.hlen(key));
+            }
+            pipeline.sync();
+            for (int i = start; i < end; i++) {
+                int count = responses.get(i - start).get().intValue();
+                if (count > 0) {
+                    counts.put(pageIds[i], count);
+                }
+                counter.increment();
+            }
+        }
+        counter.done();
+        return counts;
     }
 
     @Override
@@ -0,0 +1,146 @@
+package ruc.irm.wikit.cache.impl;
+
+import gnu.trove.map.TIntIntMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Dense per-page columns of in link count, out link count and link idf,
+ * i.e., log(totalPages/inlinkCount), indexed by page id. The columns are
+ * written after the link relations have been built, and the file is
+ * memory mapped, so the weighting lookups are array indexing and do not
+ * touch the link sets in Redis.
+ * <p>
+ * The file layout (big-endian):
+ * <pre>
+ *   magic, version, totalPages, size (max page id + 1)
+ *   inlinkCounts[size], outlinkCounts[size], idfs[size]
+ * </pre>
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 11:20 PM
+ */
+public class LinkCountColumn {
+    private static final Logger LOG = LoggerFactory.getLogger(LinkCountColumn.class);
+
+    private static final int MAGIC = 0x574c4e4b;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    private int totalPages = 0;
+    private int size = 0;
+    private IntBuffer inlinkCounts = null;
+    private IntBuffer outlinkCounts = null;
+    private FloatBuffer idfs = null;
+
+    private LinkCountColumn(File f) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(f, "r")) {
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a link count file: " + f);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported link count version " + version);
+            }
+            this.totalPages = buffer.getInt();
+            this.size = buffer.getInt();
+
+            long expected = HEADER_SIZE + 12L * size;
+            if (channel.size() < expected) {
+                throw new IOException("truncated link count file: " + f);
+            }
+
+            this.inlinkCounts = slice(buffer, HEADER_SIZE).asIntBuffer();
+            this.outlinkCounts = slice(buffer, HEADER_SIZE + 4 * size).asIntBuffer();
+            this.idfs = slice(buffer, HEADER_SIZE + 8 * size).asFloatBuffer();
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(position);
+        return b.slice();
+    }
+
+    /**
+     * Open the column file, null is returned if it does not exist.
+     */
+    public static LinkCountColumn open(File f) throws IOException {
+        if (!f.exists()) {
+            return null;
+        }
+        LinkCountColumn column = new LinkCountColumn(f);
+        LOG.info("map link counts of {} pages from {}", column.size, f);
+        return column;
+    }
+
+    /**
+     * Write the columns of all pages, the pages which are not in the count
+     * maps have zero count.
+     */
+    public static void write(File f, int totalPages, TIntIntMap inlinkCounts,
+                             TIntIntMap outlinkCounts) throws IOException {
+        int maxId = -1;
+        for (int id : inlinkCounts.keys()) {
+            maxId = Math.max(maxId, id);
+        }
+        for (int id : outlinkCounts.keys()) {
+            maxId = Math.max(maxId, id);
+        }
+        int size = maxId + 1;
+
+        File tmp = new File(f.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp), 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(totalPages);
+            out.writeInt(size);
+            for (int id = 0; id < size; id++) {
+                out.writeInt(inlinkCounts.get(id));
+            }
+            for (int id = 0; id < size; id++) {
+                out.writeInt(outlinkCounts.get(id));
+            }
+            for (int id = 0; id < size; id++) {
+                out.writeFloat(idf(totalPages, inlinkCounts.get(id)));
+            }
+        }
+        if (f.exists() && !f.delete()) {
+            throw new IOException("can not delete old file " + f);
+        }
+        if (!tmp.renameTo(f)) {
+            throw new IOException("can not rename " + tmp + " to " + f);
+        }
+        LOG.info("write link counts of {} pages to {}", size, f);
+    }
+
+    private static float idf(int totalPages, int inlinkCount) {
+        return (float) Math.log(1.0 * totalPages / inlinkCount);
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public int getInlinkCount(int pageId) {
+        return (pageId >= 0 && pageId < size) ? inlinkCounts.get(pageId) : 0;
+    }
+
+    public int getOutlinkCount(int pageId) {
+        return (pageId >= 0 && pageId < size) ? outlinkCounts.get(pageId) : 0;
+    }
+
+    public float getIdf(int pageId) {
+        return (pageId >= 0 && pageId < size) ? idfs.get(pageId) : idf(totalPages, 0);
+    }
+}
@@ -9,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
 import ruc.irm.wikit.cache.ArticleCache;
+import ruc.irm.wikit.cache.MeteredJedis;
 import ruc.irm.wikit.cache.NameIdMapping;
 import ruc.irm.wikit.cache.RedirectCache;
 import ruc.irm.wikit.common.conf.Conf;
@@ -37,7 +38,7 @@ public class RedirectCacheRedisImpl implements RedirectCache {
     public RedirectCacheRedisImpl(Conf conf) {
         this.conf = conf;
         this.prefix = conf.getRedisPrefix();
-        this.jedis = new Jedis(conf.getRedisHost(), conf.getRedisPort(), conf.getRedisTimeout());
+        this.jedis = new MeteredJedis(conf.getRedisHost(), conf.getRedisPort(), conf.getRedisTimeout());
     }
 
     @Override
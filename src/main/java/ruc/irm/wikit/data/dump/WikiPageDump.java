@@ -10,6 +10,8 @@ import ruc.irm.wikit.util.ProgressCounter;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Wiki Page dump processor, there are 2 ways to visit the dump content:
@@ -39,6 +41,16 @@ public abstract class WikiPageDump implements Iterator<WikiPage>, Closeable {
     protected Conf conf = null;
     protected String dumpFile = null;
 
+    /**
+     * true when traversed by the parallel pipeline, see {@link #traverse}
+     */
+    protected boolean parallel = false;
+
+    /**
+     * the filters of current traverse, used by {@link #select(WikiPage)}
+     */
+    private WikiPageFilter[] selectors = null;
+
     /**
      * Get dump file name for this dump object, such as seq.gz, 20150702
      * .page-article.gz
@@ -56,7 +68,11 @@ public abstract class WikiPageDump implements Iterator<WikiPage>, Closeable {
     }
 
     /**
-     * Traverse page dump file with filters
+     * Traverse page dump file with filters. If "wiki.dump.traverse.workers"
+     * is bigger than 1, the dump is traversed as a pipeline: a reader thread
+     * reads pages into a bounded queue, the workers prepare the pages (e.g.
+     * parse the wiki text) in parallel, and the pages are passed to the
+     * filters' process method in the original order by the current thread.
      *
      * @param filters
      */
@@ -64,25 +80,135 @@ public abstract class WikiPageDump implements Iterator<WikiPage>, Closeable {
         LOG.info("Use " + this.getClass().getSimpleName() + " to traverse " +
                 dumpFile);
 
-        open();
+        int workers = (conf == null) ? 1 : conf.getInt("wiki.dump.traverse.workers", 1);
         int index = 0;
-        ProgressCounter counter = new ProgressCounter();
-        while (hasNext()) {
-            WikiPage page = next();
-            for (WikiPageFilter filter : filters) {
-                filter.process(page, index);
+        this.selectors = filters;
+        //the dump is closed even if a filter fails, so the reading threads
+        //of the dump, e.g., the bzip2 decompressors, are stopped
+        try {
+            if (workers > 1) {
+                index = traverseParallel(workers, filters);
+            } else {
+                open();
+                ProgressCounter counter = new ProgressCounter();
+                while (hasNext()) {
+                    WikiPage page = next();
+                    if (page == null) continue;
+                    //prepared as the parallel pipeline, but by current thread
+                    preparePage(page);
+                    for (WikiPageFilter filter : filters) {
+                        filter.prepare(page);
+                    }
+                    for (WikiPageFilter filter : filters) {
+                        filter.process(page, index);
+                    }
+                    index++;
+                    counter.increment();
+                }
             }
-            index++;
-            counter.increment();
-        }
 
-        for (WikiPageFilter filter : filters) {
-            filter.close();
+            for (WikiPageFilter filter : filters) {
+                filter.close();
+            }
+        } finally {
+            close();
+            this.selectors = null;
         }
 
-        close();
-
         LOG.info("Done for traverse " + dumpFile + ", "+ index + " pages has " +
                         "been visited.");
     };
+
+    /**
+     * Check whether one of the traversing filters selects the page by its
+     * header, see {@link WikiPageFilter#select(WikiPage)}. All pages are
+     * selected when the dump is not traversed with filters.
+     */
+    protected boolean select(WikiPage page) {
+        if (selectors == null || selectors.length == 0) {
+            return true;
+        }
+        for (WikiPageFilter filter : selectors) {
+            if (filter.select(page)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Prepare the page in worker thread when traverse in parallel, the
+     * sub class can defer the expensive work of next() to this method.
+     */
+    protected void preparePage(WikiPage page) {
+
+    }
+
+    private int traverseParallel(int workers, WikiPageFilter[] filters) throws IOException {
+        int queueSize = conf.getInt("wiki.dump.traverse.queue.size", 1000);
+        LOG.info("traverse with " + workers + " workers, queue size: " + queueSize);
+
+        this.parallel = true;
+        open();
+
+        final Future<WikiPage> END = CompletableFuture.completedFuture(null);
+        final BlockingQueue<Future<WikiPage>> queue = new ArrayBlockingQueue<>(queueSize);
+        final AtomicReference<Throwable> readError = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+
+        Thread reader = new Thread(() -> {
+            try {
+                while (hasNext()) {
+                    final WikiPage page = next();
+                    if (page == null) continue;
+
+                    queue.put(executor.submit(() -> {
+                        preparePage(page);
+                        for (WikiPageFilter filter : filters) {
+                            filter.prepare(page);
+                        }
+                        return page;
+                    }));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                readError.set(t);
+            } finally {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "dump-reader");
+        reader.start();
+
+        int index = 0;
+        ProgressCounter counter = new ProgressCounter();
+        try {
+            Future<WikiPage> future = null;
+            while ((future = queue.take()) != END) {
+                WikiPage page = future.get();
+                for (WikiPageFilter filter : filters) {
+                    filter.process(page, index);
+                }
+                index++;
+                counter.increment();
+            }
+            if (readError.get() != null) {
+                throw new IOException("read dump error", readError.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException("prepare page error", e.getCause());
+        } finally {
+            reader.interrupt();
+            executor.shutdownNow();
+            this.parallel = false;
+        }
+        return index;
+    }
 }
@@ -0,0 +1,139 @@
+package ruc.irm.wikit.data.dump.filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ruc.irm.wikit.cache.NameIdMapping;
+import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.data.dump.impl.PageBlockDump;
+import ruc.irm.wikit.data.dump.parse.PageColumn;
+import ruc.irm.wikit.data.dump.parse.WikiPage;
+import ruc.irm.wikit.data.dump.parse.WikiPageFilter;
+import ruc.irm.wikit.util.ProgressCounter;
+
+import java.io.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Write the traversed pages into block dump, see {@link PageBlockDump} for
+ * the file format.
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 2:50 PM
+ */
+public class BlockDumpFilter implements WikiPageFilter {
+    private static Logger LOG = LoggerFactory.getLogger(BlockDumpFilter.class);
+
+    private NameIdMapping mapping = null;
+    private int blockSize = 1000;
+
+    private DataOutputStream out = null;
+    private long position = 0;
+
+    private ByteArrayOutputStream[] buffers = null;
+    private DataOutputStream[] columns = null;
+    private int pageCount = 0;
+    private int firstId = 0;
+
+    private ByteArrayOutputStream blockIndex = new ByteArrayOutputStream();
+    private DataOutputStream indexOut = new DataOutputStream(blockIndex);
+    private int blockCount = 0;
+
+    private Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private ProgressCounter counter = new ProgressCounter();
+
+    /**
+     * @param mapping used to resolve link names to article ids, if it is
+     *                null, the LINK_ID column is marked as not resolved and
+     *                the readers have to resolve the LINK column by name
+     */
+    public BlockDumpFilter(Conf conf, String blockFile, NameIdMapping mapping)
+            throws IOException {
+        this.mapping = mapping;
+        this.blockSize = conf.getInt("wiki.dump.block.size", 1000);
+
+        File f = new File(blockFile);
+        if (f.getParentFile() != null && !f.getParentFile().exists()) {
+            f.getParentFile().mkdirs();
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(f), 1 << 16));
+        out.writeInt(PageBlockDump.MAGIC);
+        out.writeInt(PageBlockDump.VERSION);
+        position = 8;
+
+        int n = PageColumn.values().length;
+        buffers = new ByteArrayOutputStream[n];
+        columns = new DataOutputStream[n];
+        for (int i = 0; i < n; i++) {
+            buffers[i] = new ByteArrayOutputStream();
+            columns[i] = new DataOutputStream(buffers[i]);
+        }
+    }
+
+    @Override
+    public void process(WikiPage wikiPage, int index) {
+        try {
+            if (pageCount == 0) {
+                firstId = wikiPage.getId();
+            }
+            wikiPage.writeColumns(columns, mapping);
+            pageCount++;
+            counter.increment();
+
+            if (pageCount >= blockSize) {
+                flushBlock();
+            }
+        } catch (IOException e) {
+            LOG.error("write block dump error:", e);
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (pageCount == 0) return;
+
+        byte[][] compressed = new byte[columns.length][];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].flush();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            deflater.reset();
+            try (DeflaterOutputStream dos = new DeflaterOutputStream(bytes, deflater)) {
+                buffers[i].writeTo(dos);
+            }
+            compressed[i] = bytes.toByteArray();
+            buffers[i].reset();
+        }
+
+        indexOut.writeLong(position);
+        indexOut.writeInt(pageCount);
+        indexOut.writeInt(firstId);
+        blockCount++;
+
+        out.writeInt(pageCount);
+        out.writeInt(columns.length);
+        for (byte[] c : compressed) {
+            out.writeInt(c.length);
+        }
+        position += 8 + 4 * columns.length;
+        for (byte[] c : compressed) {
+            out.write(c);
+            position += c.length;
+        }
+        pageCount = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBlock();
+
+        long indexOffset = position;
+        out.writeInt(blockCount);
+        blockIndex.writeTo(out);
+        out.writeLong(indexOffset);
+        out.writeInt(PageBlockDump.MAGIC);
+        out.close();
+        deflater.end();
+        counter.done();
+        LOG.info("{} blocks have been written.", blockCount);
+    }
+}
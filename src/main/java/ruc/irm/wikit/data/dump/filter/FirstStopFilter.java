@@ -1,19 +1,17 @@
 package ruc.irm.wikit.data.dump.filter;
 
-import com.google.common.base.Joiner;
-import com.google.common.base.Splitter;
-import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.lucene.analysis.TokenStream;
-import redis.clients.jedis.Jedis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.data.dump.parse.WikiPage;
 import ruc.irm.wikit.data.dump.parse.WikiPageFilter;
+import ruc.irm.wikit.util.SpillingAggregator;
 import ruc.irm.wikit.util.text.analysis.ESAAnalyzer;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Properties;
 import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
@@ -28,12 +26,25 @@ import java.util.zip.GZIPOutputStream;
  * <li>concept which contains date string, such as "2010 China Open"</li>
  * </ul>
  * <p>
- * In order to collect in-link numbers for second phase usage, we use Redis
- * as a temporary cache, and store all &lt;page title, in-link count&gt; pairs
+ * In order to collect in-link numbers for second phase usage, the &lt;page
+ * title, in-link count&gt; pairs, the article counts of categories and the
+ * aliases of redirects are aggregated on local disk in "wiki.stop.filter
+ * .tmp.dir" by {@link SpillingAggregator}, which are read by
+ * {@link SecondStopFilter}.
  */
 public class FirstStopFilter implements WikiPageFilter {
+    private static final Pattern YEAR_RANGE_PATTERN = Pattern.compile("\\(\\d{4}(–|\\-)\\d{2,4}\\)$");
+
+    private static final Logger LOG = LoggerFactory.getLogger(FirstStopFilter.class);
+
     private Conf conf = null;
-    private Jedis jedis = null;
+
+    /** lower case redirect target --> redirect titles */
+    private SpillingAggregator.StringList articleAliases = null;
+    /** lower case link target --> in-link count */
+    private SpillingAggregator.IntSum articleInlinks = null;
+    /** lower case category --> article count */
+    private SpillingAggregator.IntSum categoryArticles = null;
 
     private int totalPages = 0;
     private int totalArticles = 0;
@@ -65,33 +76,39 @@ public class FirstStopFilter implements WikiPageFilter {
         this.out = new DataOutputStream(new GZIPOutputStream(
                 new BufferedOutputStream(new FileOutputStream(gzSeqFile))));
 
-        this.jedis = new Jedis(conf.getRedisHost(), conf.getRedisPort(),
-                conf.getRedisTimeout());
+        File tmpDir = new File(conf.get("wiki.stop.filter.tmp.dir", "stop"));
+        int spillEntries = conf.getInt("wiki.stop.filter.spill.entries", 2000000);
+        this.articleAliases = new SpillingAggregator.StringList(tmpDir,
+                "article.alias", spillEntries);
+        this.articleInlinks = new SpillingAggregator.IntSum(tmpDir,
+                "article.inlinks", spillEntries);
+        this.categoryArticles = new SpillingAggregator.IntSum(tmpDir,
+                "cat.articles", spillEntries);
+    }
+
+    /**
+     * Only articles and categories are processed, and the normal articles
+     * whose titles are rejected by acceptTitle() are useless, so their text
+     * does not need to be read.
+     */
+    @Override
+    public boolean select(WikiPage wikiPage) {
+        String ns = wikiPage.getNs();
+        if ("14".equals(ns)) {
+            return true;
+        }
+        if (!StringUtils.isEmpty(ns) && !ns.equals("0")) {
+            return false;
+        }
+        return wikiPage.isRedirect() || acceptTitle(wikiPage.getTitle().toLowerCase());
     }
 
     private boolean accept(WikiPage wikiPage) throws IOException {
-        //step 1: if title starts with 4 digits, then skip
         String title = wikiPage.getTitle().toLowerCase();
         if (wikiPage.isCategory()) {
             title = wikiPage.getCategoryTitle().toLowerCase();
         }
-        if (title.length() > 7) {
-            //保留1980s此类词条
-            String startString = title.substring(0, 4);
-            if (StringUtils.isNumeric(startString)) {
-                return false;
-            }
-        }
-
-        //step 2: remove "list of xxxx" and "index of xxx"
-        if (title.indexOf("index of ") >= 0 || title.indexOf("list of") >= 0
-                || title.indexOf("(disambiguation)")>=0) {
-            return false;
-        }
-
-        //以年份结尾的词条，符合年份时代结尾的形式文章，如``China national football team results (2000–09)''，因为这类文章的作用更类似于类别，起到信息组织的作用。
-        Pattern pattern = Pattern.compile("\\(\\d{4}(–|\\-)\\d{2,4}\\)$");
-        if (pattern.matcher(title).find()) {
+        if (!acceptTitle(title)) {
             return false;
         }
 
@@ -123,6 +140,37 @@ public class FirstStopFilter implements WikiPageFilter {
 //        return tokens>=minWords;
     }
 
+    /**
+     * Check the lower case title of page
+     */
+    private static boolean acceptTitle(String title) {
+        //step 1: if title starts with 4 digits, then skip
+        if (title.length() > 7) {
+            //保留1980s此类词条
+            String startString = title.substring(0, 4);
+            if (StringUtils.isNumeric(startString)) {
+                return false;
+            }
+        }
+
+        //step 2: remove "list of xxxx" and "index of xxx"
+        if (title.indexOf("index of ") >= 0 || title.indexOf("list of") >= 0
+                || title.indexOf("(disambiguation)")>=0) {
+            return false;
+        }
+
+        //以年份结尾的词条，符合年份时代结尾的形式文章，如``China national football team results (2000–09)''，因为这类文章的作用更类似于类别，起到信息组织的作用。
+        if (YEAR_RANGE_PATTERN.matcher(title).find()) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void prepare(WikiPage wikiPage) {
+        wikiPage.drillMoreInfo();
+    }
+
     @Override
     public void process(WikiPage wikiPage, final int index) {
         totalPages++;
@@ -137,41 +185,22 @@ public class FirstStopFilter implements WikiPageFilter {
                     redirectArticles++;
                     //wikiPage.writeIn(out);
 
-                    //store redirect info to redis
+                    //store redirect info
                     String target = wikiPage.getRedirect().toLowerCase();
                     String source = wikiPage.getTitle();
-
-                    String key = "tmp:article:alias";
-                    String value = jedis.hget(key, target);
-
-                    List<String> list = null;
-                    if (value == null) {
-                        list = new ArrayList<>();
-                    } else {
-                        list = Lists.newArrayList(Splitter.on('\n')
-                                .omitEmptyStrings()
-                                .trimResults()
-                                .splitToList(value));
-                    }
-                    if (!list.contains(source)) {
-                        list.add(source);
-                        String s = Joiner.on("\n").join(list);
-                        jedis.hset(key, target, s);
-                    }
+                    articleAliases.add(target, source);
                 } else if (accept(wikiPage)) {
                     normalArticles++;
                     wikiPage.writeIn(out);
 
                     //记录所指向词条的入链数量
-                    String key = "tmp:article:inlinks";
                     for (String link : wikiPage.getInternalLinks()) {
-                        jedis.hincrBy(key, link.toLowerCase(), 1);
+                        articleInlinks.add(link.toLowerCase(), 1);
                     }
 
                     //记录所隶属分类的词条数量
-                    key = "tmp:cat:articles";
                     for (String c : wikiPage.getCategories()) {
-                        jedis.hincrBy(key, c.toLowerCase(), 1);
+                        categoryArticles.add(c.toLowerCase(), 1);
                     }
                 }
             } catch (IOException e) {
@@ -195,13 +224,31 @@ public class FirstStopFilter implements WikiPageFilter {
     }
 
     public void close() throws IOException {
-        String key = "tmp:summary:stop1";
-        jedis.hset(key, "totalPages", Integer.toString(totalPages));
-        jedis.hset(key, "totalArticles", Integer.toString(totalArticles));
-        jedis.hset(key, "normalArticles", Integer.toString(normalArticles));
-        jedis.hset(key, "redirectArticles", Integer.toString(redirectArticles));
-        jedis.hset(key, "totalCategories", Integer.toString(totalCategories));
-        jedis.hset(key, "normalCategories", Integer.toString(normalCategories));
+        articleAliases.finish();
+        articleInlinks.finish();
+        categoryArticles.finish();
+
+        Properties summary = new Properties();
+        summary.setProperty("totalPages", Integer.toString(totalPages));
+        summary.setProperty("totalArticles", Integer.toString(totalArticles));
+        summary.setProperty("normalArticles", Integer.toString(normalArticles));
+        summary.setProperty("redirectArticles", Integer.toString(redirectArticles));
+        summary.setProperty("totalCategories", Integer.toString(totalCategories));
+        summary.setProperty("normalCategories", Integer.toString(normalCategories));
+        writeSummary(conf, "stop1", summary);
         out.close();
     }
+
+    /**
+     * Write the summary of stop filter to &lt;name&gt;.summary in
+     * "wiki.stop.filter.tmp.dir"
+     */
+    static void writeSummary(Conf conf, String name, Properties summary)
+            throws IOException {
+        File f = new File(conf.get("wiki.stop.filter.tmp.dir", "stop"), name + ".summary");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(f), "utf-8")) {
+            summary.store(writer, name + " summary");
+        }
+        LOG.info("{} summary: {}", name, summary);
+    }
 }
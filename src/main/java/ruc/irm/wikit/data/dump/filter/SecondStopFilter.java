@@ -1,18 +1,17 @@
 package ruc.irm.wikit.data.dump.filter;
 
-import com.google.common.base.Splitter;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.data.dump.parse.WikiPage;
 import ruc.irm.wikit.data.dump.parse.WikiPageFilter;
+import ruc.irm.wikit.util.SpillingAggregator;
 
 import java.io.*;
-import java.util.Set;
+import java.util.List;
+import java.util.Properties;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -24,8 +23,9 @@ import java.util.zip.GZIPOutputStream;
  * <li>inlink and outlink count is less than 20</li>
  * </ul>
  * <p>
- * In order to collect in-link numbers for second phase usage, we use Redis
- * as a temporary cache, and store all &lt;page title, in-link count&gt; pairs
+ * The in-link counts, category article counts and aliases are read from the
+ * data files aggregated by {@link FirstStopFilter} in "wiki.stop.filter.tmp
+ * .dir".
  *
  * <br/>
  * <strong>Remember:</strong> category pages are also saved to the output file.
@@ -34,7 +34,10 @@ public class SecondStopFilter implements WikiPageFilter {
     private Logger LOG = LoggerFactory.getLogger(SecondStopFilter.class);
 
     private Conf conf = null;
-    private Jedis jedis = null;
+
+    private SpillingAggregator.StringList articleAliases = null;
+    private SpillingAggregator.IntSum articleInlinks = null;
+    private SpillingAggregator.IntSum categoryArticles = null;
 
     private int totalPages = 0;
     private int totalArticles = 0;
@@ -64,8 +67,14 @@ public class SecondStopFilter implements WikiPageFilter {
         this.out = new DataOutputStream(new GZIPOutputStream(
                 new BufferedOutputStream(new FileOutputStream(gzSeqFile))));
 
-        this.jedis = new Jedis(conf.getRedisHost(), conf.getRedisPort(),
-                conf.getRedisTimeout());
+        File tmpDir = new File(conf.get("wiki.stop.filter.tmp.dir", "stop"));
+        int spillEntries = conf.getInt("wiki.stop.filter.spill.entries", 2000000);
+        this.articleAliases = new SpillingAggregator.StringList(tmpDir,
+                "article.alias", spillEntries);
+        this.articleInlinks = new SpillingAggregator.IntSum(tmpDir,
+                "article.inlinks", spillEntries);
+        this.categoryArticles = new SpillingAggregator.IntSum(tmpDir,
+                "cat.articles", spillEntries);
     }
 
     @Override
@@ -86,9 +95,7 @@ public class SecondStopFilter implements WikiPageFilter {
                     wikiPage.writeIn(out);
                 } else {
                     //所指向词条的入链数量
-                    String key = "tmp:article:inlinks";
-                    String value = jedis.hget(key, wikiPage.getTitle().toLowerCase());
-                    int inlinks = NumberUtils.toInt(value, 0);
+                    int inlinks = articleInlinks.getInt(wikiPage.getTitle().toLowerCase());
                     int outlinks = wikiPage.getInternalLinks().size();
 
                     if ((inlinks + outlinks) >= minLinks) {
@@ -99,14 +106,9 @@ public class SecondStopFilter implements WikiPageFilter {
                         //写入alias信息
                         String target = wikiPage.getTitle().toLowerCase();
 
-                        if (jedis.hexists("tmp:article:alias", target)) {
-                            String aliasesString = jedis.hget("tmp:article:alias",
-                                    target);
-                            Set<String> aliasSet = Sets.newHashSet(Splitter.on('\n')
-                                    .omitEmptyStrings()
-                                    .trimResults()
-                                    .splitToList(aliasesString));
-                            wikiPage.setAliases(aliasSet);
+                        List<String> aliases = articleAliases.get(target);
+                        if (aliases != null) {
+                            wikiPage.setAliases(Sets.newHashSet(aliases));
                         }
 
                         wikiPage.writeIn(out);
@@ -116,9 +118,8 @@ public class SecondStopFilter implements WikiPageFilter {
                 }
             } else if (wikiPage.isCategory()) {
                 //记录所隶属分类的词条数量
-                String key = "tmp:cat:articles";
-                String value = jedis.hget(key, wikiPage.getCategoryTitle().toLowerCase());
-                wikiPage.setInlinkCount(NumberUtils.toInt(value, 0));
+                wikiPage.setInlinkCount(categoryArticles.getInt(
+                        wikiPage.getCategoryTitle().toLowerCase()));
                 wikiPage.writeIn(out);
                 totalCategories++;
                 normalCategories++;
@@ -134,16 +135,21 @@ public class SecondStopFilter implements WikiPageFilter {
     }
 
     public void close() throws IOException {
-        String key = "tmp:summary:stop2";
-        jedis.hset(key, "totalPages", Integer.toString(totalPages));
-        jedis.hset(key, "totalArticles", Integer.toString(totalArticles));
-        jedis.hset(key, "normalArticles", Integer.toString(normalArticles));
-        jedis.hset(key, "redirectArticles", Integer.toString(redirectArticles));
-        jedis.hset(key, "totalCategories", Integer.toString(totalCategories));
-        jedis.hset(key, "normalCategories", Integer.toString(normalCategories));
-        jedis.hset(key, "removedByLinks", Integer.toString(removedByLinks));
-
-        jedis.hset(key, "minLinkThreshold", Integer.toString(minLinks));
+        Properties summary = new Properties();
+        summary.setProperty("totalPages", Integer.toString(totalPages));
+        summary.setProperty("totalArticles", Integer.toString(totalArticles));
+        summary.setProperty("normalArticles", Integer.toString(normalArticles));
+        summary.setProperty("redirectArticles", Integer.toString(redirectArticles));
+        summary.setProperty("totalCategories", Integer.toString(totalCategories));
+        summary.setProperty("normalCategories", Integer.toString(normalCategories));
+        summary.setProperty("removedByLinks", Integer.toString(removedByLinks));
+
+        summary.setProperty("minLinkThreshold", Integer.toString(minLinks));
+        FirstStopFilter.writeSummary(conf, "stop2", summary);
+
+        articleAliases.close();
+        articleInlinks.close();
+        categoryArticles.close();
         out.close();
     }
 }
\ No newline at end of file
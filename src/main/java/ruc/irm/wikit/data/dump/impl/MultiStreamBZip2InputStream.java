@@ -0,0 +1,250 @@
+package ruc.irm.wikit.data.dump.impl;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Decompress a multistream bzip2 dump, e.g.,
+ * enwiki-latest-pages-articles-multistream.xml.bz2, on a thread pool. Each
+ * bzip2 stream in the file is independent, so the streams are read and
+ * decompressed by worker threads, and the decompressed bytes are returned
+ * in the original order, the reader sees the same bytes as the sequential
+ * decompression.
+ * <p>
+ * The stream offsets are read from the multistream index file
+ * (offset:pageId:title per line) if it exists, otherwise they are found by
+ * scanning the file for the bzip2 stream header "BZh[1-9]" followed by the
+ * block magic 0x314159265359.
+ * </p>
+ * <p>
+ * At most threads * 2 chunks are decompressed ahead of the reader, so the
+ * memory is bounded.
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 18, 2026 2:10 AM
+ */
+public class MultiStreamBZip2InputStream extends InputStream {
+    private static final Logger LOG = LoggerFactory.getLogger(MultiStreamBZip2InputStream.class);
+
+    private static final byte[] BLOCK_MAGIC = {0x31, 0x41, 0x59, 0x26, 0x53, 0x59};
+
+    /** the streams smaller than this are merged into one chunk */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+    private RandomAccessFile file = null;
+    private FileChannel channel = null;
+    private ExecutorService executor = null;
+
+    /** chunk boundaries, chunk i is [offsets[i], offsets[i+1]) */
+    private long[] offsets = null;
+    private int nextChunk = 0;
+    private int window = 0;
+    private Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] current = new byte[0];
+    private int position = 0;
+
+    public MultiStreamBZip2InputStream(File dumpFile, File indexFile, int threads)
+            throws IOException {
+        long length = dumpFile.length();
+        long[] streamOffsets = (indexFile != null && indexFile.exists())
+                ? readIndexOffsets(indexFile) : scanStreamOffsets(dumpFile);
+        this.offsets = mergeChunks(streamOffsets, length);
+        for (int i = 0; i < offsets.length - 1; i++) {
+            if (offsets[i + 1] - offsets[i] > Integer.MAX_VALUE - 8) {
+                throw new IOException("bzip2 stream is too large at " + offsets[i]
+                        + ", is it a multistream dump?");
+            }
+        }
+        LOG.info("decompress {} in {} chunks with {} threads", dumpFile,
+                offsets.length - 1, threads);
+
+        this.file = new RandomAccessFile(dumpFile, "r");
+        this.channel = file.getChannel();
+        //daemon threads, so they never keep the JVM alive if the stream
+        //is not closed
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("bzip2-decompress-%d")
+                        .setDaemon(true).build());
+        this.window = threads * 2;
+        fillWindow();
+    }
+
+    /**
+     * Read the distinct stream offsets in the index file, the index file is
+     * bzip2 compressed if it ends with ".bz2".
+     */
+    public static long[] readIndexOffsets(File indexFile) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(indexFile));
+        if (indexFile.getName().endsWith(".bz2")) {
+            in = new BZip2CompressorInputStream(in, true);
+        }
+
+        long[] result = new long[1024];
+        int count = 0;
+        long last = -1;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int pos = line.indexOf(':');
+                if (pos <= 0) continue;
+                long offset = Long.parseLong(line.substring(0, pos));
+                if (offset != last) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, count * 2);
+                    }
+                    result[count++] = offset;
+                    last = offset;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Find the stream offsets by the stream header and block magic
+     */
+    public static long[] scanStreamOffsets(File dumpFile) throws IOException {
+        long[] result = new long[1024];
+        int count = 0;
+        byte[] window = new byte[10];
+        long pos = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(dumpFile), 1 << 20)) {
+            int b;
+            while ((b = in.read()) >= 0) {
+                System.arraycopy(window, 1, window, 0, window.length - 1);
+                window[window.length - 1] = (byte) b;
+                pos++;
+                if (pos >= window.length && isStreamHeader(window)) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, count * 2);
+                    }
+                    result[count++] = pos - window.length;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static boolean isStreamHeader(byte[] w) {
+        if (w[0] != 'B' || w[1] != 'Z' || w[2] != 'h' || w[3] < '1' || w[3] > '9') {
+            return false;
+        }
+        for (int i = 0; i < BLOCK_MAGIC.length; i++) {
+            if (w[4 + i] != BLOCK_MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Merge the small streams into chunks of at least MIN_CHUNK_SIZE bytes,
+     * the first chunk always starts from 0 and the last one ends at length.
+     */
+    private static long[] mergeChunks(long[] streamOffsets, long length) {
+        long[] result = new long[streamOffsets.length + 2];
+        int count = 0;
+        result[count++] = 0;
+        for (long offset : streamOffsets) {
+            if (offset > result[count - 1] && offset < length
+                    && offset - result[count - 1] >= MIN_CHUNK_SIZE) {
+                result[count++] = offset;
+            }
+        }
+        if (result[count - 1] < length || count == 1) {
+            result[count++] = length;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private void fillWindow() {
+        while (pending.size() < window && nextChunk < offsets.length - 1) {
+            long start = offsets[nextChunk];
+            long end = offsets[nextChunk + 1];
+            pending.add(executor.submit(() -> decompress(start, end)));
+            nextChunk++;
+        }
+    }
+
+    private byte[] decompress(long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        long position = start;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("unexpected end of dump at " + position);
+            }
+            position += n;
+        }
+
+        try (InputStream in = new BZip2CompressorInputStream(
+                new ByteArrayInputStream(buffer.array()), true)) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    /**
+     * Move to the next non-empty chunk, false if all chunks are read
+     */
+    private boolean nextChunk() throws IOException {
+        while (position >= current.length) {
+            Future<byte[]> future = pending.poll();
+            if (future == null) {
+                return false;
+            }
+            try {
+                current = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted when decompress dump");
+            } catch (ExecutionException e) {
+                throw new IOException("decompress dump error", e.getCause());
+            }
+            position = 0;
+            fillWindow();
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextChunk() ? (current[position++] & 0xff) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        pending.clear();
+        file.close();
+    }
+}
@@ -0,0 +1,247 @@
+package ruc.irm.wikit.data.dump.impl;
+
+import org.apache.commons.cli.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ruc.irm.wikit.cache.impl.ArticleCacheRedisImpl;
+import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.common.conf.ConfFactory;
+import ruc.irm.wikit.data.dump.WikiPageDump;
+import ruc.irm.wikit.data.dump.filter.BlockDumpFilter;
+import ruc.irm.wikit.data.dump.parse.PageColumn;
+import ruc.irm.wikit.data.dump.parse.WikiPage;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Wiki page dump stored in column block format, which is converted from the
+ * sequence dump by {@link BlockDumpFilter}.
+ * <p>
+ * The pages are grouped into blocks, and each column of a block (see
+ * {@link PageColumn}) is compressed separately, so the dump can be opened
+ * with only the needed columns, e.g., META and LINK_ID for building link
+ * relations, the skipped columns are never read from disk. The block index
+ * at the end of file makes the blocks randomly accessible, and a dump can be
+ * split by block range for parallel reading.
+ * </p>
+ * <pre>
+ * file:  MAGIC, VERSION, block*, index, index offset(long), MAGIC
+ * block: page count(int), column count(int), compressed length(int) of
+ *        each column, compressed column bytes
+ * index: block count(int), (block offset(long), page count(int), first
+ *        page id(int))*
+ * </pre>
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 2:30 PM
+ */
+public class PageBlockDump extends WikiPageDump {
+    private static final Logger LOG = LoggerFactory.getLogger(PageBlockDump.class);
+
+    public static final int MAGIC = 0x574B4244; // "WKBD"
+    public static final int VERSION = 1;
+
+    private Set<PageColumn> columns = null;
+
+    private RandomAccessFile file = null;
+    private long[] blockOffsets = null;
+    private int[] blockPageCounts = null;
+    private int[] blockFirstIds = null;
+
+    private int fromBlock = 0;
+    private int toBlock = Integer.MAX_VALUE;
+
+    /** next block to read by iterator */
+    private int currentBlock = 0;
+    private Iterator<WikiPage> blockIterator = Collections.emptyIterator();
+
+    public PageBlockDump(Conf conf) {
+        this(conf, conf.get("wiki.dump.block.file", "seq.blk"),
+                EnumSet.allOf(PageColumn.class));
+    }
+
+    /**
+     * @param columns the columns to read, META column is always read
+     */
+    public PageBlockDump(Conf conf, String dumpFile, Set<PageColumn> columns) {
+        this.conf = conf;
+        this.dumpFile = dumpFile;
+        this.columns = EnumSet.copyOf(columns);
+        this.columns.add(PageColumn.META);
+    }
+
+    /**
+     * Only read the blocks in [fromBlock, toBlock) when traverse, which is
+     * used to split the dump for parallel reading, see {@link #getBlockCount()}
+     */
+    public void setBlockRange(int fromBlock, int toBlock) {
+        this.fromBlock = fromBlock;
+        this.toBlock = toBlock;
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (!new File(dumpFile).exists()) {
+            throw new IOException("block dump file does not exist " +
+                    "==>" + dumpFile + "\n please check conf " +
+                    "parameter wiki.dump.block.file");
+        }
+
+        this.file = new RandomAccessFile(dumpFile, "r");
+        if (file.readInt() != MAGIC || file.readInt() != VERSION) {
+            throw new IOException("Not a valid block dump file: " + dumpFile);
+        }
+
+        file.seek(file.length() - 12);
+        long indexOffset = file.readLong();
+        if (file.readInt() != MAGIC) {
+            throw new IOException("block dump file is not complete: " + dumpFile);
+        }
+
+        file.seek(indexOffset);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file.getFD())));
+        int blockCount = in.readInt();
+        blockOffsets = new long[blockCount];
+        blockPageCounts = new int[blockCount];
+        blockFirstIds = new int[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blockOffsets[i] = in.readLong();
+            blockPageCounts[i] = in.readInt();
+            blockFirstIds[i] = in.readInt();
+        }
+
+        this.currentBlock = Math.max(0, fromBlock);
+        this.blockIterator = Collections.emptyIterator();
+        LOG.info("open block dump {} with {} blocks", dumpFile, blockCount);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+            file = null;
+        }
+    }
+
+    public int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    public int getPageCount(int block) {
+        return blockPageCounts[block];
+    }
+
+    /**
+     * Find the block which may contain the given page id, the pages are
+     * stored in the order of dump, which is sorted by page id, return -1 if
+     * the id is smaller than the first page.
+     */
+    public int findBlock(int pageId) {
+        int pos = Arrays.binarySearch(blockFirstIds, pageId);
+        return (pos >= 0) ? pos : -pos - 2;
+    }
+
+    /**
+     * Read all pages of one block, only the selected columns are read and
+     * decompressed.
+     */
+    public synchronized List<WikiPage> readBlock(int block) throws IOException {
+        file.seek(blockOffsets[block]);
+        int pageCount = file.readInt();
+        int columnCount = file.readInt();
+        int[] lengths = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            lengths[i] = file.readInt();
+        }
+
+        DataInputStream[] streams = new DataInputStream[PageColumn.values().length];
+        for (int i = 0; i < columnCount; i++) {
+            if (i < streams.length && columns.contains(PageColumn.values()[i])) {
+                byte[] buffer = new byte[lengths[i]];
+                file.readFully(buffer);
+                streams[i] = new DataInputStream(new InflaterInputStream(
+                        new ByteArrayInputStream(buffer)));
+            } else {
+                file.seek(file.getFilePointer() + lengths[i]);
+            }
+        }
+
+        List<WikiPage> pages = new ArrayList<>(pageCount);
+        for (int i = 0; i < pageCount; i++) {
+            pages.add(WikiPage.readColumns(streams, conf));
+        }
+        return pages;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!blockIterator.hasNext()) {
+            if (currentBlock >= Math.min(toBlock, blockOffsets.length)) {
+                return false;
+            }
+            try {
+                blockIterator = readBlock(currentBlock++).iterator();
+            } catch (IOException e) {
+                LOG.error("Error occurred when read block " + (currentBlock - 1), e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public WikiPage next() {
+        return blockIterator.next();
+    }
+
+    public static void main(String[] args) throws ParseException, IOException {
+        String helpMsg = "usage: PageBlockDump -c config.xml -build";
+
+        HelpFormatter helpFormatter = new HelpFormatter();
+        CommandLineParser parser = new PosixParser();
+        Options options = new Options();
+        options.addOption(new Option("c", true, "config file"));
+        options.addOption(new Option("build", false, "convert the sequence " +
+                "dump to block dump, the article name-id mapping should be " +
+                "built first to resolve link ids."));
+        options.addOption(new Option("view", false, "view block summary"));
+
+        CommandLine commandLine = parser.parse(options, args);
+        if (!commandLine.hasOption("c")) {
+            helpFormatter.printHelp(helpMsg, options);
+            return;
+        }
+
+        Conf conf = ConfFactory.createConf(commandLine.getOptionValue("c"), true);
+        if (commandLine.hasOption("build")) {
+            ArticleCacheRedisImpl artCache = new ArticleCacheRedisImpl(conf);
+            if (!artCache.nameIdMapped()) {
+                //the link db is built from LINK_ID column of block dump, so
+                //refuse to build a block dump without resolved link ids
+                LOG.error("article name-id mapping does not exist, build " +
+                        "it before block dump.");
+                return;
+            }
+            PageSequenceDump psd = new PageSequenceDump(conf);
+            psd.traverse(new BlockDumpFilter(conf,
+                    conf.get("wiki.dump.block.file"), artCache));
+            LOG.warn("DONE for build block dump!");
+        }
+
+        if (commandLine.hasOption("view")) {
+            PageBlockDump dump = new PageBlockDump(conf,
+                    conf.get("wiki.dump.block.file"),
+                    EnumSet.of(PageColumn.META));
+            dump.open();
+            int pages = 0;
+            for (int i = 0; i < dump.getBlockCount(); i++) {
+                pages += dump.getPageCount(i);
+            }
+            System.out.println("blocks: " + dump.getBlockCount() + ", pages: " + pages);
+            dump.close();
+        }
+    }
+}
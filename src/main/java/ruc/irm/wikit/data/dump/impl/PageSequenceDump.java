@@ -32,7 +32,6 @@ import java.util.zip.GZIPInputStream;
 public class PageSequenceDump extends WikiPageDump {
     private static final Logger LOG = LoggerFactory.getLogger(PageSequenceDump.class);
 
-    private Conf conf = null;
     private DataInputStream input = null;
     private WikiPage lastPage = null;
 
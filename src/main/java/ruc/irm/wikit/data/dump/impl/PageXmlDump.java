@@ -43,13 +43,36 @@ public class PageXmlDump extends WikiPageDump {
                     dumpFile);
         }
 
-        InputStream stream = new FileInputStream(dumpFile);
-        if (dumpFile.endsWith(".bz2")) {
-            boolean multiStream = dumpFile.contains("multistream");
-            stream = new BZip2CompressorInputStream(stream, multiStream);
+        InputStream stream = null;
+        boolean multiStream = dumpFile.contains("multistream");
+        int threads = conf.getInt("wiki.dump.bz2.threads",
+                Runtime.getRuntime().availableProcessors());
+        if (dumpFile.endsWith(".bz2") && multiStream && threads > 1) {
+            //the streams are independent, decompress them on a thread pool
+            String indexFile = conf.get("wiki.dump.index.file",
+                    dumpFile.replace("multistream.xml.bz2", "multistream-index.txt.bz2"));
+            stream = new MultiStreamBZip2InputStream(new File(dumpFile),
+                    new File(indexFile), threads);
+        } else if (dumpFile.endsWith(".bz2")) {
+            stream = new BZip2CompressorInputStream(new FileInputStream(dumpFile),
+                    multiStream);
+        } else {
+            stream = new FileInputStream(dumpFile);
         }
 
         this.reader = new WikiPageReader(conf, stream);
+        reader.setSelector(this::select);
+        if (parallel) {
+            //drill the pages in worker threads, see preparePage()
+            reader.setDrill(false);
+        }
+    }
+
+    @Override
+    protected void preparePage(WikiPage page) {
+        if ("true".equals(conf.getParam("wiki.page.drill", "true"))) {
+            page.drillMoreInfo();
+        }
     }
 
     @Override
@@ -0,0 +1,32 @@
+package ruc.irm.wikit.data.dump.parse;
+
+/**
+ * The columns of a wiki page in block dump, each column of a block is
+ * compressed separately, so a reader can skip the columns it does not need,
+ * e.g., the link-only pass never decompresses the article text.
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 2:10 PM
+ */
+public enum PageColumn {
+    /** page type, id, title, redirect, commons category tag and inlink count */
+    META,
+
+    /** category names */
+    CATEGORY,
+
+    /** alias names */
+    ALIAS,
+
+    /** internal link target names */
+    LINK,
+
+    /**
+     * internal link targets resolved to article ids, unresolved links are
+     * dropped, the size is -1 if the dump was built without name-id mapping
+     */
+    LINK_ID,
+
+    /** wiki text */
+    TEXT
+}
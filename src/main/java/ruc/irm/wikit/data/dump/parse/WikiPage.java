@@ -3,14 +3,11 @@ package ruc.irm.wikit.data.dump.parse;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import de.tudarmstadt.ukp.wikipedia.parser.Link;
-import de.tudarmstadt.ukp.wikipedia.parser.Paragraph;
 import de.tudarmstadt.ukp.wikipedia.parser.ParsedPage;
-import de.tudarmstadt.ukp.wikipedia.parser.Section;
-import de.tudarmstadt.ukp.wikipedia.parser.mediawiki.MediaWikiParser;
-import de.tudarmstadt.ukp.wikipedia.parser.mediawiki.MediaWikiParserFactory;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.Document;
+import ruc.irm.wikit.cache.NameIdMapping;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.util.Big5GB;
 import ruc.irm.wikit.util.GZipUtils;
@@ -19,9 +16,8 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * User: xiatian
@@ -61,6 +57,33 @@ public class WikiPage {
 
     private Conf conf = null;
 
+    /**
+     * drillMoreInfo has been called or not, the page may be drilled by both
+     * the reader and the filters, but it only needs to be parsed once.
+     */
+    private boolean drilled = false;
+
+    /**
+     * false if the page is read from block dump without TEXT column, the
+     * page type is known from the stored meta data in this case.
+     */
+    private boolean textLoaded = true;
+
+    /**
+     * the UTF-8 bytes of wiki text which has not been decoded, the text is
+     * decoded on first access by getText(), so the pages skipped by filters
+     * never pay for the decoding and Big5 conversion.
+     */
+    private byte[] rawText = null;
+    private boolean rawTextBig5 = false;
+
+    /** internal link targets resolved to article ids, see PageColumn.LINK_ID */
+    private int[] internalLinkIds = null;
+
+    /** the cached parsed wiki text, see getParsedPage() */
+    private ParsedPage parsedPage = null;
+    private boolean parsed = false;
+
     public boolean isCommonCategory() {
        return commonCategory;
     }
@@ -98,15 +121,49 @@ public class WikiPage {
     }
 
     public String getText() {
+        if (text == null && rawText != null) {
+            String s = new String(rawText, StandardCharsets.UTF_8);
+            this.text = rawTextBig5 ? Big5GB.toGB(s) : s;
+            this.rawText = null;
+        }
         return text;
     }
 
+    /**
+     * Set the wiki text as UTF-8 bytes, which is decoded when it is needed.
+     */
+    public void setRawText(byte[] utf8Text) {
+        this.rawText = utf8Text;
+        this.rawTextBig5 = conf.isBig5ToGb();
+        this.text = null;
+        this.parsed = false;
+        this.parsedPage = null;
+    }
+
+    private boolean hasText() {
+        return (text != null) ? !text.isEmpty() : (rawText != null && rawText.length > 0);
+    }
+
+    /**
+     * The UTF-8 bytes of wiki text, the raw bytes are returned directly if
+     * the text has not been decoded and needs no conversion.
+     */
+    private byte[] getTextBytes() {
+        if (text == null && rawText != null && !rawTextBig5) {
+            return rawText;
+        }
+        return getText().getBytes(StandardCharsets.UTF_8);
+    }
+
     public void setText(String text) {
         if (conf.isBig5ToGb()) {
             this.text = Big5GB.toGB(text);
         } else {
             this.text = text;
         }
+        this.rawText = null;
+        this.parsed = false;
+        this.parsedPage = null;
     }
 
     public String getFormat() {
@@ -138,7 +195,7 @@ public class WikiPage {
     }
 
     public boolean isArticle() {
-        return StringUtils.isNotEmpty(text) && (StringUtils.isEmpty(ns) || ns.equals("0")) && "text/x-wiki".equals(format);
+        return (!textLoaded || hasText()) && (StringUtils.isEmpty(ns) || ns.equals("0")) && "text/x-wiki".equals(format);
     }
 
     public boolean isCategory() {
@@ -154,6 +211,9 @@ public class WikiPage {
     }
 
     public void drillMoreInfo() {
+        if (drilled) return;
+        drilled = true;
+
         internalLinks = new ArrayList<>();
         categories = new HashSet<>();
         if(!isArticle() && !isCategory()) return;
@@ -165,13 +225,13 @@ public class WikiPage {
             if(!conf.getWikiRootCategoryName().equalsIgnoreCase
                     (getCategoryTitle())){
                 //解析所隶属的类别
-                categories = WikiTextParser.parseCategories(text);
+                categories = WikiTextParser.parseCategories(getText());
                 if(CollectionUtils.isEmpty(categories)) {
                     commonCategory = false;
                     //judge is a category redirect or not
-                    this.redirect = WikiTextParser.parseCategoryRedirect(text);
+                    this.redirect = WikiTextParser.parseCategoryRedirect(getText());
                     if (!isRedirect()) {
-                        this.commonsCatTag = WikiTextParser.parseCommonsCat(text);
+                        this.commonsCatTag = WikiTextParser.parseCommonsCat(getText());
                     }
                 }
             }
@@ -179,36 +239,16 @@ public class WikiPage {
             return;
         }
 
-        categories = WikiTextParser.parseCategories(text);
-        MediaWikiParserFactory pf = new MediaWikiParserFactory();
-        MediaWikiParser parser = pf.createParser();
-        ParsedPage pp = parser.parse(text);
+        categories = WikiTextParser.parseCategories(getText());
+        ParsedPage pp = getParsedPage();
 
         if (pp == null) {
             plainText = "";
-            System.out.println("text parse error: id==>" + id + ", title==>" + title + ", ns==>" + ns + ", content==>" + text);
+            System.out.println("text parse error: id==>" + id + ", title==>" + title + ", ns==>" + ns + ", content==>" + getText());
             return;
         }
 
-        plainText = "";
-        for (Section s : pp.getSections()) {
-            if (s.getTitle() != null) {
-                plainText += s.getTitle() + "\n";
-            }
-
-            for (Paragraph p : s.getParagraphs()) {
-                String par = p.getText();
-                if (par.startsWith("TEMPLATE")) {
-                    continue;
-                }
-                if (par.matches("[^:]+:[^\\ ]+")) {
-                    continue;
-                }
-                plainText += par + "\n\n";
-            }
-        }
-
-
+        plainText = WikiTextParser.toPlainText(pp);
         for (Link link : pp.getLinks()) {
             if (link.getType() == Link.type.INTERNAL) {
                 internalLinks.add(link.getTarget());
@@ -217,47 +257,22 @@ public class WikiPage {
         }
     }
 
+    /**
+     * Parse the wiki text only once, the parsed result is shared by plain
+     * text and links, return null if the text can not be parsed.
+     */
+    private ParsedPage getParsedPage() {
+        if (!parsed) {
+            parsed = true;
+            String t = getText();
+            parsedPage = (t == null) ? null : WikiTextParser.parse(t);
+        }
+        return parsedPage;
+    }
+
     public String getPlainText() {
         if (plainText == null) {
-            StringBuilder sb = new StringBuilder();
-
-            MediaWikiParserFactory pf = new MediaWikiParserFactory();
-            MediaWikiParser parser = pf.createParser();
-            ParsedPage pp = parser.parse(text);
-            if (pp != null) {
-                for (Section s : pp.getSections()) {
-                    if (s.getTitle() != null) {
-                        sb.append(s.getTitle()).append("\n");
-                        //plainText += s.getTitle() + "\n";
-                    }
-
-                    for (Paragraph p : s.getParagraphs()) {
-                        String par = p.getText();
-                        if (par.startsWith("TEMPLATE")) {
-                            continue;
-                        }
-                        if (par.matches("[^:]+:[^\\ ]+")) {
-                            continue;
-                        }
-
-                        //处理内容里面是否包含TEMPLATE
-                        Pattern pattern = Pattern.compile("TEMPLATE\\[[^\\]]+\\]", Pattern
-                                .CASE_INSENSITIVE);
-                        Matcher matcher = pattern.matcher(par);
-                        int last = 0;
-                        while(matcher.find(last)) {
-                            sb.append(par.substring(last, matcher.start()));
-                            last = matcher.end();
-                        }
-                        sb.append(par.substring(last));
-                        sb.append("\n\n");
-                        //plainText += par + "\n\n";
-                        //sb.append(par).append("\n\n");
-                    }
-                }
-            }
-
-            plainText = sb.toString();
+            plainText = WikiTextParser.toPlainText(getParsedPage());
         }
         return plainText;
     }
@@ -282,6 +297,14 @@ public class WikiPage {
         this.internalLinks = internalLinks;
     }
 
+    /**
+     * Get the resolved article ids of internal links, only available for the
+     * page read from block dump with LINK_ID column, otherwise return null.
+     */
+    public int[] getInternalLinkIds() {
+        return internalLinkIds;
+    }
+
     public String getCategoryTitle() {
         if(this.title.toLowerCase().startsWith("category:")) {
             return this.title.substring("Category:".length());
@@ -307,26 +330,48 @@ public class WikiPage {
     }
 
 
-    public void writeIn(DataOutputStream dos) throws IOException {
-        //write page type: 0 for article, 1 for category
+    /**
+     * page type: 0 for article, 1 for common category, 2 for category with
+     * commons category tag
+     */
+    private byte getPageType() throws IOException {
         if (isArticle()) {
-            dos.writeByte(0);
+            return 0;
         } else if (isCommonCategory()) {
             //common category
-            dos.writeByte(1);
+            return 1;
         } else if (isCommonsCatTag()) {
             //not command category
-            dos.writeByte(2);
+            return 2;
         } else {
             throw new IOException("The page can not be written to file:" + toString());
         }
+    }
+
+    private void setPageType(byte type) throws IOException {
+        if (type == 0) {
+            ns = "0";
+        } else if (type == 1){
+            ns = "14";
+            commonCategory = true;
+        } else if(type == 2) {
+            ns = "14";
+            commonCategory = false;
+        } else {
+            throw new IOException("Unknown Wiki page type " + type);
+        }
+        format = "text/x-wiki";
+    }
+
+    public void writeIn(DataOutputStream dos) throws IOException {
+        dos.writeByte(getPageType());
 
         dos.writeInt(getId());
         dos.writeUTF(title == null ? "" : title);
         dos.writeUTF((redirect == null) ? "" : redirect);
         dos.writeUTF((commonsCatTag == null) ? "" : commonsCatTag);
 
-        byte[] textBuffer = text.getBytes("utf-8");
+        byte[] textBuffer = getTextBytes();
         dos.writeInt(textBuffer.length);
         dos.write(textBuffer, 0, textBuffer.length);
 
@@ -354,20 +399,9 @@ public class WikiPage {
         try {
             byte type = dis.readByte();
             WikiPage page = new WikiPage(conf);
-
-            if (type == 0) {
-                page.ns = "0";
-            } else if (type == 1){
-                page.ns = "14";
-                page.commonCategory = true;
-            } else if(type == 2) {
-                page.ns = "14";
-                page.commonCategory = false;
-            } else {
-                throw new IOException("Unknown Wiki page type " + type);
-            }
-
-            page.format = "text/x-wiki";
+            page.setPageType(type);
+            //the stored page has been drilled before written
+            page.drilled = true;
 
             page.id = dis.readInt();
             page.title = dis.readUTF();
@@ -380,7 +414,7 @@ public class WikiPage {
 
             byte[] buffer = new byte[dis.readInt()];
             dis.readFully(buffer);
-            page.text = new String(buffer, "utf-8");
+            page.rawText = buffer;
 
             Set<String> categories = new HashSet<>();
             int size = dis.readInt();
@@ -414,6 +448,141 @@ public class WikiPage {
         }
     }
 
+    /**
+     * Write page into the column streams of block dump, see {@link PageColumn}.
+     *
+     * @param columns the output stream of each column, indexed by
+     *                PageColumn.ordinal()
+     * @param mapping used to resolve link names to article ids for LINK_ID
+     *                column, if it is null, the LINK_ID column is marked as
+     *                not resolved
+     */
+    public void writeColumns(DataOutputStream[] columns, NameIdMapping mapping)
+            throws IOException {
+        DataOutputStream dos = columns[PageColumn.META.ordinal()];
+        dos.writeByte(getPageType());
+        dos.writeInt(id);
+        dos.writeUTF(title == null ? "" : title);
+        dos.writeUTF((redirect == null) ? "" : redirect);
+        dos.writeUTF((commonsCatTag == null) ? "" : commonsCatTag);
+        dos.writeInt(inlinkCount);
+
+        dos = columns[PageColumn.CATEGORY.ordinal()];
+        dos.writeInt(categories.size());
+        for (String c : categories) {
+            dos.writeUTF(c);
+        }
+
+        dos = columns[PageColumn.ALIAS.ordinal()];
+        dos.writeInt(aliases.size());
+        for (String alias : aliases) {
+            dos.writeUTF(alias);
+        }
+
+        dos = columns[PageColumn.LINK.ordinal()];
+        dos.writeInt(internalLinks.size());
+        for (String link : internalLinks) {
+            dos.writeUTF(link);
+        }
+
+        dos = columns[PageColumn.LINK_ID.ordinal()];
+        if (mapping == null) {
+            //not resolved, the reader falls back to LINK column
+            dos.writeInt(-1);
+        } else {
+            int[] ids = new int[internalLinks.size()];
+            int size = 0;
+            for (String link : internalLinks) {
+                int linkId = mapping.getIdByName(link, 0);
+                if (linkId > 0) {
+                    ids[size++] = linkId;
+                }
+            }
+            dos.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                dos.writeInt(ids[i]);
+            }
+        }
+
+        byte[] textBuffer = getTextBytes();
+        dos = columns[PageColumn.TEXT.ordinal()];
+        dos.writeInt(textBuffer.length);
+        dos.write(textBuffer, 0, textBuffer.length);
+    }
+
+    /**
+     * Read page from the column streams of block dump, the column whose
+     * stream is null is skipped, i.e., the categories, aliases and links
+     * are empty, link ids are null, and the text is not loaded.
+     *
+     * @param columns the input stream of each column, indexed by
+     *                PageColumn.ordinal(), the META column is required
+     */
+    public static WikiPage readColumns(DataInputStream[] columns, final Conf conf)
+            throws IOException {
+        WikiPage page = new WikiPage(conf);
+        page.drilled = true;
+
+        DataInputStream dis = columns[PageColumn.META.ordinal()];
+        page.setPageType(dis.readByte());
+        page.id = dis.readInt();
+        page.title = dis.readUTF();
+        String redirect = dis.readUTF();
+        page.redirect = redirect.isEmpty()?null:redirect;
+        String commonsCatTag = dis.readUTF();
+        page.commonsCatTag = commonsCatTag.isEmpty()?null:commonsCatTag;
+        page.inlinkCount = dis.readInt();
+
+        page.categories = new HashSet<>();
+        dis = columns[PageColumn.CATEGORY.ordinal()];
+        if (dis != null) {
+            int size = dis.readInt();
+            for (int i = 0; i < size; i++) {
+                page.categories.add(dis.readUTF());
+            }
+        }
+
+        dis = columns[PageColumn.ALIAS.ordinal()];
+        if (dis != null) {
+            int size = dis.readInt();
+            for (int i = 0; i < size; i++) {
+                page.aliases.add(dis.readUTF());
+            }
+        }
+
+        page.internalLinks = new ArrayList<>();
+        dis = columns[PageColumn.LINK.ordinal()];
+        if (dis != null) {
+            int size = dis.readInt();
+            for (int i = 0; i < size; i++) {
+                page.internalLinks.add(dis.readUTF());
+            }
+        }
+
+        dis = columns[PageColumn.LINK_ID.ordinal()];
+        if (dis != null) {
+            int size = dis.readInt();
+            //negative size means the links were not resolved when written
+            if (size >= 0) {
+                int[] ids = new int[size];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = dis.readInt();
+                }
+                page.internalLinkIds = ids;
+            }
+        }
+
+        dis = columns[PageColumn.TEXT.ordinal()];
+        if (dis != null) {
+            byte[] buffer = new byte[dis.readInt()];
+            dis.readFully(buffer);
+            page.rawText = buffer;
+        } else {
+            page.textLoaded = false;
+        }
+        return page;
+    }
+
     @Override
     public String toString() {
         return "WikiPage{" +
@@ -11,6 +11,27 @@ public interface WikiPageFilter extends Closeable {
      */
     public void process(WikiPage wikiPage, final int index);
 
+    /**
+     * Decide whether the page should be read from the page header, i.e.,
+     * title, ns, id and redirect, before its text is read. The dump which
+     * supports it, e.g. PageXmlDump, skips the text of the page and does not
+     * pass it to the filters if none of them selects it. This method may be
+     * called by the dump reader thread, so it should not change the filter.
+     */
+    public default boolean select(WikiPage wikiPage) {
+        return true;
+    }
+
+    /**
+     * Prepare the wiki page before process, when the dump is traversed in
+     * parallel, this method is called by several worker threads at the same
+     * time, so it should only change the given page, e.g. parse the text.
+     * The process method is always called in the dump order by one thread.
+     */
+    public default void prepare(WikiPage wikiPage) {
+
+    }
+
     public default void close() throws IOException {
 
     };
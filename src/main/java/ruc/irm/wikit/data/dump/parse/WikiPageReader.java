@@ -9,7 +9,20 @@ import javax.xml.stream.events.XMLEvent;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.function.Predicate;
 
+/**
+ * Read the wiki pages from xml dump by StAX. The text of the page is kept
+ * as raw UTF-8 bytes, which are encoded from the character buffer of the
+ * StAX reader without creating String, and decoded only when the page text
+ * is accessed.
+ * <p>
+ * If a selector is set, the page is decided by its title, ns, id and
+ * redirect before its revision is read, the revision of the page which is
+ * not selected is skipped and the page is not returned.
+ * </p>
+ */
 
 public class WikiPageReader implements Closeable {
     private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
@@ -23,6 +36,16 @@ public class WikiPageReader implements Closeable {
     private int topN = Integer.MAX_VALUE;
     private Conf conf = null;
 
+    /** drill more info of the page when it has been read or not */
+    private boolean drill = true;
+
+    /** select the pages to read by page header, null to read all pages */
+    private Predicate<WikiPage> selector = null;
+
+    /** the reused buffer of UTF-8 encoded text */
+    private byte[] textBuffer = new byte[1 << 16];
+    private int textSize = 0;
+
     public WikiPageReader(Conf conf, InputStream inputStream) throws IOException {
         this(conf, inputStream, Integer.MAX_VALUE);
     }
@@ -30,6 +53,7 @@ public class WikiPageReader implements Closeable {
 
     public WikiPageReader(Conf conf, InputStream inputStream, int listTopN) throws IOException {
         this.conf = conf;
+        this.drill = "true".equals(conf.getParam("wiki.page.drill", "true"));
         this.stream = inputStream;
         this.index = 0;
         this.topN = listTopN;
@@ -41,6 +65,22 @@ public class WikiPageReader implements Closeable {
         }
     }
 
+    /**
+     * Set whether to drill more info of the page after it has been read, the
+     * parallel dump traverse turns it off and drills the pages in workers.
+     */
+    public void setDrill(boolean drill) {
+        this.drill = drill;
+    }
+
+    /**
+     * Set the selector to decide whether a page is read by its title, ns,
+     * id and redirect, the pages which are not selected are skipped.
+     */
+    public void setSelector(Predicate<WikiPage> selector) {
+        this.selector = selector;
+    }
+
     private void handleRevisionElement(WikiPage page) throws XMLStreamException {
         while (reader.hasNext()) {
             int eventType = reader.next();
@@ -49,7 +89,7 @@ public class WikiPageReader implements Closeable {
             } else if (eventType == XMLEvent.START_ELEMENT) {
                 String tag = reader.getName().getLocalPart();
                 if (tag.equals("text")) {
-                    page.setText(reader.getElementText());
+                    page.setRawText(readTextBytes());
                 } else if (tag.equals("ip")) {
                     //System.out.println("ip==>" + reader.getElementText());
                 } else if (tag.equals("format")) {
@@ -59,12 +99,130 @@ public class WikiPageReader implements Closeable {
         }
     }
 
+    /**
+     * Read the text of current element as UTF-8 bytes, like
+     * getElementText(), the comments and processing instructions are
+     * skipped.
+     */
+    private byte[] readTextBytes() throws XMLStreamException {
+        textSize = 0;
+        char pendingHigh = 0;
+        while (true) {
+            int eventType = reader.next();
+            if (eventType == XMLEvent.CHARACTERS || eventType == XMLEvent.CDATA
+                    || eventType == XMLEvent.SPACE) {
+                pendingHigh = appendUtf8(reader.getTextCharacters(),
+                        reader.getTextStart(), reader.getTextLength(), pendingHigh);
+            } else if (eventType == XMLEvent.ENTITY_REFERENCE) {
+                char[] chars = reader.getText().toCharArray();
+                pendingHigh = appendUtf8(chars, 0, chars.length, pendingHigh);
+            } else if (eventType == XMLEvent.END_ELEMENT) {
+                break;
+            } else if (eventType == XMLEvent.START_ELEMENT) {
+                throw new XMLStreamException("element text content may not " +
+                        "contain START_ELEMENT", reader.getLocation());
+            } else if (eventType == XMLEvent.END_DOCUMENT) {
+                throw new XMLStreamException("unexpected end of document " +
+                        "when reading element text", reader.getLocation());
+            }
+        }
+        if (pendingHigh != 0) {
+            appendByte('?');
+        }
+        return Arrays.copyOf(textBuffer, textSize);
+    }
+
+    /**
+     * Encode the chars to text buffer as UTF-8, the surrogate pair may be
+     * split by two character events, so the trailing high surrogate is
+     * returned and passed to the next call.
+     */
+    private char appendUtf8(char[] chars, int start, int length, char pendingHigh) {
+        for (int i = start; i < start + length; i++) {
+            char c = chars[i];
+            if (pendingHigh != 0) {
+                if (Character.isLowSurrogate(c)) {
+                    int cp = Character.toCodePoint(pendingHigh, c);
+                    appendByte(0xf0 | (cp >> 18));
+                    appendByte(0x80 | ((cp >> 12) & 0x3f));
+                    appendByte(0x80 | ((cp >> 6) & 0x3f));
+                    appendByte(0x80 | (cp & 0x3f));
+                    pendingHigh = 0;
+                    continue;
+                }
+                //unpaired surrogate is replaced as String.getBytes() does
+                appendByte('?');
+                pendingHigh = 0;
+            }
+            if (c < 0x80) {
+                appendByte(c);
+            } else if (c < 0x800) {
+                appendByte(0xc0 | (c >> 6));
+                appendByte(0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c)) {
+                pendingHigh = c;
+            } else if (Character.isLowSurrogate(c)) {
+                appendByte('?');
+            } else {
+                appendByte(0xe0 | (c >> 12));
+                appendByte(0x80 | ((c >> 6) & 0x3f));
+                appendByte(0x80 | (c & 0x3f));
+            }
+        }
+        return pendingHigh;
+    }
+
+    private void appendByte(int b) {
+        if (textSize == textBuffer.length) {
+            textBuffer = Arrays.copyOf(textBuffer, textBuffer.length * 2);
+        }
+        textBuffer[textSize++] = (byte) b;
+    }
+
+    /**
+     * Skip current element and all its children
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int eventType = reader.next();
+            if (eventType == XMLEvent.START_ELEMENT) {
+                depth++;
+            } else if (eventType == XMLEvent.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Read the next page, the pages which are not selected by the selector
+     * are skipped, null is returned if there are no more pages.
+     */
     public WikiPage nextWikiPage() throws XMLStreamException {
+        WikiPage page = readPage();
+        while (page == null) {
+            if (!hasMoreWikiPage()) {
+                return null;
+            }
+            page = readPage();
+        }
+        return page;
+    }
+
+    /**
+     * Read current page after the page element has been started, return
+     * null if the page is not selected.
+     */
+    private WikiPage readPage() throws XMLStreamException {
         WikiPage page = new WikiPage(conf);
+        boolean selected = false;
         while (reader.hasNext()) {
             int eventType = reader.next();
             if (eventType == XMLEvent.END_ELEMENT && reader.getName().getLocalPart().equals("page")) {
-                if("true".equals(conf.getParam("wiki.page.drill", "true"))) {
+                if (!selected && selector != null && !selector.test(page)) {
+                    return null;
+                }
+                if(drill) {
                     page.drillMoreInfo();
                 }
                 return page;
@@ -77,7 +235,14 @@ public class WikiPageReader implements Closeable {
                 } else if (tag.equals("ns")) {
                     page.setNs(reader.getElementText());
                 } else if ("revision".equals(tag)) {
-                     handleRevisionElement(page);
+                    if (!selected && selector != null && !selector.test(page)) {
+                        //skip the revision and the rest of the page
+                        skipElement();
+                        skipElement();
+                        return null;
+                    }
+                    selected = true;
+                    handleRevisionElement(page);
                 } else if ("redirect".equals(tag)) {
                     page.setRedirect(reader.getAttributeValue("", "title"));
                 } else if ("restrictions".equals(tag)) {
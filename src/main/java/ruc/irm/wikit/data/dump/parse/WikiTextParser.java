@@ -46,10 +46,25 @@ public class WikiTextParser {
         return null;
     }
 
+    /**
+     * MediaWikiParser is not thread safe, so each thread reuses its own
+     * parser instead of creating a new one for every page.
+     */
+    private static final ThreadLocal<MediaWikiParser> PARSERS =
+            ThreadLocal.withInitial(() -> new MediaWikiParserFactory().createParser());
+
+    /**
+     * Parse wiki text by MediaWikiParser, return null if parse failed
+     */
+    public static ParsedPage parse(String text) {
+        return PARSERS.get().parse(text);
+    }
+
     public static List<String> parseInternalLinks(String text) {
-        MediaWikiParserFactory pf = new MediaWikiParserFactory();
-        MediaWikiParser parser = pf.createParser();
-        ParsedPage pp = parser.parse(text);
+        return parseInternalLinks(parse(text));
+    }
+
+    public static List<String> parseInternalLinks(ParsedPage pp) {
         List<String> internalLinks = new LinkedList<>();
 
         if (pp != null) {
@@ -62,6 +77,49 @@ public class WikiTextParser {
         return internalLinks;
     }
 
+    private static final Pattern TEMPLATE_PATTERN = Pattern.compile("TEMPLATE\\[[^\\]]+\\]", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern NAMESPACE_PARAGRAPH_PATTERN = Pattern.compile("[^:]+:[^\\ ]+");
+
+    /**
+     * Get plain text from parsed page, section titles are kept, the
+     * template paragraphs and namespace links such as "File:xxx.jpg" are
+     * skipped, and the TEMPLATE[...] snippets in paragraph are removed.
+     */
+    public static String toPlainText(ParsedPage pp) {
+        if (pp == null) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (Section s : pp.getSections()) {
+            if (s.getTitle() != null) {
+                sb.append(s.getTitle()).append("\n");
+            }
+
+            for (Paragraph p : s.getParagraphs()) {
+                String par = p.getText();
+                if (par.startsWith("TEMPLATE")) {
+                    continue;
+                }
+                if (NAMESPACE_PARAGRAPH_PATTERN.matcher(par).matches()) {
+                    continue;
+                }
+
+                //处理内容里面是否包含TEMPLATE
+                Matcher matcher = TEMPLATE_PATTERN.matcher(par);
+                int last = 0;
+                while (matcher.find(last)) {
+                    sb.append(par, last, matcher.start());
+                    last = matcher.end();
+                }
+                sb.append(par, last, par.length());
+                sb.append("\n\n");
+            }
+        }
+        return sb.toString();
+    }
+
     private static final Pattern COMMONS_CATEGORY_PATTERN = Pattern.compile("\\{\\{Commonscat\\|([^\\}]+)\\}\\}", Pattern.CASE_INSENSITIVE);
 
     /**
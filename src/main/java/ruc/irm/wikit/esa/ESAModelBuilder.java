@@ -16,6 +16,7 @@ import ruc.irm.wikit.esa.dataset.WikiDumpDataset;
 import ruc.irm.wikit.esa.dataset.visitor.CacheConceptVisitor;
 import ruc.irm.wikit.esa.dataset.visitor.IndexConceptVisitor;
 import ruc.irm.wikit.esa.index.IndexMining;
+import ruc.irm.wikit.util.Checkpoint;
 import ruc.irm.wikit.util.ProgressCounter;
 
 import java.io.BufferedReader;
@@ -34,53 +35,98 @@ public class ESAModelBuilder {
     private static final Logger LOG = LoggerFactory.getLogger(ESAModelBuilder.class);
     private ProgressCounter progress = new ProgressCounter();
 
-    public void buildModel(Conf conf, ESADataset dataset) throws IOException {
-        final ConceptCacheRedisImpl conceptCache = new ConceptCacheRedisImpl(conf);
-
-        conceptCache.clearAll();
+    /** stage names in build checkpoint */
+    private static final String STAGE_START = "start";
+    private static final String STAGE_INDEX = "index";
+    private static final String STAGE_CACHE = "cache";
+    private static final String STAGE_IMPORT_IDF = "import.idf";
 
-        LOG.warn("Build concept name--id mapping and index all concepts...");
-        DatasetVisitor nameIdMappingVisitor = new DatasetVisitor() {
-            int maxId = 0;
-            @Override
-            public boolean filter(FullConcept concept) {
-                conceptCache.saveNameIdMapping(concept.getTitle(), concept.getId());
-                this.maxId = concept.getId();
+    public void buildModel(Conf conf, ESADataset dataset) throws IOException {
+        buildModel(conf, dataset, true);
+    }
 
-                return true;
-            }
+    /**
+     * Build ESA model, each finished stage is recorded in the checkpoint
+     * file build.checkpoint under the model dir. If resume is true, the
+     * finished stages are skipped, and the interrupted stage continues from
+     * its last saved position if it supports, otherwise build from scratch.
+     */
+    public void buildModel(Conf conf, ESADataset dataset, boolean resume) throws IOException {
+        final ConceptCacheRedisImpl conceptCache = new ConceptCacheRedisImpl(conf);
+        Checkpoint checkpoint = new Checkpoint(new File(conf.getEsaModelDir(),
+                "build.checkpoint"));
+        checkpoint.setStages(STAGE_START, STAGE_INDEX, STAGE_CACHE,
+                IndexMining.STAGE_IDF, IndexMining.STAGE_VECTOR,
+                IndexMining.STAGE_SORT, IndexMining.STAGE_TFIDF,
+                STAGE_IMPORT_IDF, ConceptCacheRedisImpl.STAGE_IMPORT_TFIDF);
+
+        boolean resumed = resume && checkpoint.isDone(STAGE_START);
+        if (!resumed) {
+            checkpoint.clear();
+            conceptCache.clearAll();
+            checkpoint.done(STAGE_START);
+        } else {
+            LOG.warn("Resume ESA model building from last checkpoint.");
+        }
 
-            @Override
-            public void close() throws IOException {
-                conceptCache.saveMaxConceptId(maxId);
-                conceptCache.finishNameIdMapping();
-            }
-        };
-        dataset.traverse(nameIdMappingVisitor,
-                        new IndexConceptVisitor(conf, true));
+        if (!checkpoint.isDone(STAGE_INDEX)) {
+            checkpoint.begin(STAGE_INDEX);
+            //name-id mapping is idempotent, so it is always built again
+            LOG.warn("Build concept name--id mapping and index all concepts...");
+            DatasetVisitor nameIdMappingVisitor = new DatasetVisitor() {
+                int maxId = 0;
+                @Override
+                public boolean filter(FullConcept concept) {
+                    conceptCache.saveNameIdMapping(concept.getTitle(), concept.getId());
+                    this.maxId = concept.getId();
+
+                    return true;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    conceptCache.saveMaxConceptId(maxId);
+                    conceptCache.finishNameIdMapping();
+                }
+            };
+            dataset.traverse(nameIdMappingVisitor,
+                    IndexConceptVisitor.resumable(conf, resumed));
+            checkpoint.done(STAGE_INDEX, new File(conf.getEsaIndexDir()));
+        }
 
         if(!conceptCache.nameIdMapped()){
             throw new IOException("Make Name-Id mapping first before cache full " +
                     "concept.");
         }
 
-        LOG.warn("Build full concept cache...");
-        dataset.traverse(new CacheConceptVisitor(conceptCache));
-
+        if (!checkpoint.isDone(STAGE_CACHE)) {
+            checkpoint.begin(STAGE_CACHE);
+            LOG.warn("Build full concept cache...");
+            dataset.traverse(new CacheConceptVisitor(conceptCache));
+            checkpoint.done(STAGE_CACHE);
+        }
 
         LOG.warn("Make global idf and tf-idf...");
         IndexMining mining = new IndexMining(conf);
         mining.open();
-        mining.modify();
+        mining.modify(checkpoint);
         mining.close();
 
-        LOG.warn("Import IDF into redis...");
-        String termsIdfOutputFile = conf.getWikiTermsIdfFile();
-        conceptCache.importIdf(termsIdfOutputFile);
+        //the imported files are recorded as outputs of import stages, so
+        //the import is executed again if the files are regenerated
+        if (!checkpoint.isDone(STAGE_IMPORT_IDF)) {
+            checkpoint.begin(STAGE_IMPORT_IDF);
+            LOG.warn("Import IDF into redis...");
+            String termsIdfOutputFile = conf.getWikiTermsIdfFile();
+            conceptCache.importIdf(termsIdfOutputFile);
+            checkpoint.done(STAGE_IMPORT_IDF, new File(termsIdfOutputFile));
+        }
 
-        LOG.warn("Import TF-IDF into redis...");
-        String tfidfOutputDataFile = conf.getWikiTfidfFile();
-        conceptCache.importTfIdf(tfidfOutputDataFile);
+        if (!checkpoint.isDone(ConceptCacheRedisImpl.STAGE_IMPORT_TFIDF)) {
+            LOG.warn("Import TF-IDF into redis...");
+            String tfidfOutputDataFile = conf.getWikiTfidfFile();
+            conceptCache.importTfIdf(tfidfOutputDataFile, checkpoint);
+        }
 
         conceptCache.close();
         LOG.warn("ALL DONE!");
@@ -93,7 +139,10 @@ public class ESAModelBuilder {
         CommandLineParser parser = new PosixParser();
         Options options = new Options();
         options.addOption(new Option("c", true, "config file"));
-        options.addOption(new Option("build", false, "Build ESA model."));
+        options.addOption(new Option("build", false, "Build ESA model, " +
+                "resume from the last checkpoint if it exists."));
+        options.addOption(new Option("rebuild", false, "Build ESA model " +
+                "from scratch, do not resume from the last checkpoint."));
         options.addOption(new Option("tfidf", true, "import TF-IDF,specify tfidf filename."));
         options.addOption(new Option("idf", true, "import IDF,specify idf filename."));
 
@@ -107,12 +156,12 @@ public class ESAModelBuilder {
         Conf conf = ConfFactory.createConf(commandLine.getOptionValue("c"), true);
         ESAModelBuilder builder = new ESAModelBuilder();
 
-        if (commandLine.hasOption("build")) {
+        if (commandLine.hasOption("build") || commandLine.hasOption("rebuild")) {
             LOG.info("Start build ESA model...");
             ESADataset dataset = new WikiDumpDataset(new PageSequenceDump(conf,
                     conf.get("wiki.dump.seq.file.article")));
             System.out.println("dataset==>" + dataset.name());
-            builder.buildModel(conf, dataset);
+            builder.buildModel(conf, dataset, !commandLine.hasOption("rebuild"));
             LOG.info("DONE for build ESA model!");
         } else if(commandLine.hasOption("idf")) {
             String idfFile = commandLine.getOptionValue("idf");
@@ -1,7 +1,9 @@
 package ruc.irm.wikit.esa;
 
+import gnu.trove.iterator.TIntDoubleIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntDoubleHashMap;
 import gnu.trove.map.hash.TIntFloatHashMap;
-import gnu.trove.map.hash.TIntIntHashMap;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.slf4j.Logger;
@@ -9,12 +11,16 @@ import org.slf4j.LoggerFactory;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.exception.WikitException;
 import ruc.irm.wikit.esa.concept.ConceptCache;
+import ruc.irm.wikit.esa.concept.ConceptCacheMmapImpl;
+import ruc.irm.wikit.esa.concept.ConceptCacheNearImpl;
 import ruc.irm.wikit.esa.concept.ConceptCacheRedisImpl;
 import ruc.irm.wikit.esa.concept.ConceptVectorSimilarity;
+import ruc.irm.wikit.esa.concept.PostingList;
 import ruc.irm.wikit.esa.concept.vector.ConceptIterator;
 import ruc.irm.wikit.esa.concept.vector.ConceptVector;
 import ruc.irm.wikit.esa.concept.vector.TroveConceptVector;
 import ruc.irm.wikit.util.HeapSort;
+import ruc.irm.wikit.util.Metrics;
 import ruc.irm.wikit.util.text.analysis.ESAAnalyzer;
 
 import java.io.Closeable;
@@ -22,19 +28,23 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 
 /**
  * ESA Model, Performs search on the index located in database.
+ * <p>
+ * The model keeps no per-call state in fields, and the concept cache reads
+ * from a shared read-only store (a JedisPool or memory mapped files), so one
+ * instance can be used by several threads.
+ * </p>
  *
  * @author Cagatay Calli <ccalli@gmail.com>
  */
 public class ESAModelImpl implements ESAModel, Closeable {
     private static final Logger LOG = LoggerFactory.getLogger(ESAModelImpl.class);
 
-    private ConceptCacheRedisImpl conceptCache = null;
+    private ConceptCache conceptCache = null;
     Connection connection;
 
     PreparedStatement pstmtQuery;
@@ -43,48 +53,42 @@ public class ESAModelImpl implements ESAModel, Closeable {
 
     ESAAnalyzer analyzer;
 
-    int maxConceptId;
-
-    int[] ids;
-    double[] values;
-
-    HashMap<String, Integer> freqMap = new HashMap<String, Integer>(30);
-    HashMap<String, Double> tfidfMap = new HashMap<String, Double>(30);
-    HashMap<String, Float> idfMap = new HashMap<String, Float>(30);
-
-    ArrayList<String> termList = new ArrayList<String>(30);
-
-    TIntIntHashMap inlinkMap;
-
     static float LINK_ALPHA = 0.5f;
 
     ConceptVectorSimilarity sim = new ConceptVectorSimilarity();
     private Conf conf = null;
 
-    public void clean() {
-        freqMap.clear();
-        tfidfMap.clear();
-        idfMap.clear();
-        termList.clear();
-        inlinkMap.clear();
-
-        Arrays.fill(ids, 0);
-        Arrays.fill(values, 0);
-    }
-
     public ESAModelImpl(Conf conf) {
         this.conf = conf;
 
-        this.conceptCache = new ConceptCacheRedisImpl(conf);
+        this.conceptCache = ConceptCacheNearImpl.wrap(conf, createConceptCache(conf));
 
 //        initDB();
         analyzer = new ESAAnalyzer(conf);
+    }
 
-        this.maxConceptId = conceptCache.getMaxConceptId() + 1;
-        ids = new int[maxConceptId];
-        values = new double[maxConceptId];
+    /**
+     * The concept cache used by this model, it can be shared by other
+     * components in the same process.
+     */
+    public ConceptCache getConceptCache() {
+        return conceptCache;
+    }
 
-        inlinkMap = new TIntIntHashMap(300);
+    /**
+     * Create concept cache according to "esa.concept.cache", "mmap" means
+     * reading ESA tf-idf vectors from the memory mapped model files, otherwise
+     * reading them from Redis.
+     */
+    private static ConceptCache createConceptCache(Conf conf) {
+        if ("mmap".equalsIgnoreCase(conf.get("esa.concept.cache", "redis"))) {
+            try {
+                return new ConceptCacheMmapImpl(conf);
+            } catch (IOException e) {
+                LOG.error("map ESA model files error, use redis instead.", e);
+            }
+        }
+        return new ConceptCacheRedisImpl(conf);
     }
 
     @Override
@@ -95,19 +99,23 @@ public class ESAModelImpl implements ESAModel, Closeable {
         super.finalize();
     }
 
+    /**
+     * Get the concept vector of text. All the intermediate values are kept in
+     * local variables, and only the concepts matched by the term vectors are
+     * accumulated, so the cost depends on the matched postings rather than
+     * the number of concepts, and the method can be called by several
+     * threads.
+     */
     public ConceptVector getConceptVector(String text) throws WikitException {
         int numTerms = 0;
-        ResultSet rs;
-        int doc;
-
-        this.clean();
 
-        for (int i = 0; i < ids.length; i++) {
-            ids[i] = i;
-        }
+        Map<String, Integer> freqMap = new HashMap<>(30);
+        Map<String, Double> tfidfMap = new HashMap<>(30);
+        Map<String, Float> idfMap = new HashMap<>(30);
 
         try {
             //Get valid terms by Lucene analyzer, and record itd tf, idf
+            long time = System.nanoTime();
             TokenStream tokenStream = analyzer.tokenStream("contents", new StringReader(text));
             tokenStream.reset();
             while (tokenStream.incrementToken()) {
@@ -115,31 +123,28 @@ public class ESAModelImpl implements ESAModel, Closeable {
                 String term = t.toString();
                 LOG.debug("extract term:" + term);
 
-                // global IDF of term
-                if (!idfMap.containsKey(term)) {
-                    float idf = conceptCache.getIdf(term,0);
-                    if (idf > 0) {
-                        idfMap.put(term, idf);
-                    }
-                }
-
                 // term counts for TF
                 if (freqMap.containsKey(term)) {
                     freqMap.put(term, freqMap.get(term) + 1);
                 } else {
                     freqMap.put(term, 1);
                 }
-                termList.add(term);
                 numTerms++;
             }
 
             tokenStream.end();
             tokenStream.close();
+            Metrics.observeStage("tokenize", time);
 
             if (numTerms == 0) {
                 return null;
             }
 
+            // global IDF of distinct terms, fetched in one batch
+            time = System.nanoTime();
+            idfMap.putAll(conceptCache.getIdfs(freqMap.keySet()));
+            Metrics.observeStage("idf_lookup", time);
+
             //calculate TF-IDF vector (normalized)
             double vsum = 0;
             for (String tk : idfMap.keySet()) {
@@ -157,29 +162,37 @@ public class ESAModelImpl implements ESAModel, Closeable {
             }
 
 
-            boolean findOne = false;
-            for (String tk : termList) {
-                ConceptCache.DocScore[] docScores = conceptCache.getTfIdf(tk);
-                if (docScores != null) {
-                    findOne = true;
-                    for (ConceptCache.DocScore docScore : docScores) {
-                        Double v = tfidfMap.get(tk);
-                        values[docScore.docId] += docScore.score * tfidfMap.get(tk);
-                    }
-                }
-            }
+            //fetch each distinct term vector once, a term occurs n times in
+            //the text contributes n times to the concept scores
+            time = System.nanoTime();
+            Map<String, PostingList> postingMap = conceptCache.getPostingLists(idfMap.keySet());
 
             // no result
-            if (!findOne) {
+            if (postingMap.isEmpty()) {
                 return null;
             }
 
-            HeapSort.heapSort(values, ids);
+            //sparse accumulator, only keeps the touched concepts
+            TIntDoubleHashMap scores = new TIntDoubleHashMap(1000);
+            for (Map.Entry<String, PostingList> entry : postingMap.entrySet()) {
+                String tk = entry.getKey();
+                PostingList postings = entry.getValue();
+                double v = tfidfMap.get(tk) * freqMap.get(tk);
+                for (int k = 0; k < postings.size(); k++) {
+                    double score = postings.score(k) * v;
+                    scores.adjustOrPutValue(postings.docId(k), score, score);
+                }
+            }
 
-            ConceptVector newCV = new TroveConceptVector(ids.length);
-            for (int i = ids.length - 1; i >= 0 && values[i] > 0; i--) {
-                newCV.set(ids[i], values[i] / numTerms);
+            ConceptVector newCV = new TroveConceptVector(scores.size());
+            TIntDoubleIterator it = scores.iterator();
+            while (it.hasNext()) {
+                it.advance();
+                if (it.value() > 0) {
+                    newCV.set(it.key(), it.value() / numTerms);
+                }
             }
+            Metrics.observeStage("posting_accumulation", time);
 
             return newCV;
         } catch (IOException e) {
@@ -195,35 +208,30 @@ public class ESAModelImpl implements ESAModel, Closeable {
      * @return
      */
     public ConceptVector trimVector(ConceptVector cv, int LIMIT) {
-        ConceptVector cv_normal = new TroveConceptVector(LIMIT);
-        ConceptIterator it;
-
         if (cv == null)
             return null;
 
-        it = cv.orderedIterator();
-
-        int count = 0;
-        while (it.next()) {
-            if (count >= LIMIT) break;
-            cv_normal.set(it.getId(), it.getValue());
-            count++;
+        //partial heap sort, only the top LIMIT concepts are ordered
+        int count = cv.count();
+        int[] ids = new int[count];
+        double[] values = new double[count];
+        ConceptIterator it = cv.iterator();
+        for (int i = 0; i < count && it.next(); i++) {
+            ids[i] = it.getId();
+            values[i] = it.getValue();
         }
 
-        return cv_normal;
-    }
-
-    private TIntIntHashMap setInlinkCounts(Collection<Integer> ids) {
-        inlinkMap.clear();
+        int top = Math.min(LIMIT, count);
+        HeapSort.heapSort(values, ids, top);
 
-        for (int id : ids) {
-            inlinkMap.put(id, conceptCache.getInlinkCount(id));
+        ConceptVector cv_normal = new TroveConceptVector(LIMIT);
+        for (int i = count - 1; i >= count - top; i--) {
+            cv_normal.set(ids[i], values[i]);
         }
 
-        return inlinkMap;
+        return cv_normal;
     }
 
-
     public ConceptVector getLinkVector(ConceptVector cv, int limit)  {
         if (cv == null)
             return null;
@@ -268,8 +276,6 @@ public class ESAModelImpl implements ESAModel, Closeable {
         //Final normalized inlink weights
         final HashMap<Integer, Float> normalizedInlinkIdValues = new HashMap<Integer, Float>(1000);
 
-        this.clean();
-
         // collect article objects
         ConceptIterator it = cv.orderedIterator();
         int count = 0;
@@ -278,19 +284,16 @@ public class ESAModelImpl implements ESAModel, Closeable {
             originConceptIdValues.put(it.getId(), (float) it.getValue());
         }
 
-        // open inlink counts, assign values for inlinkMap
-        setInlinkCounts(pages);
-
 
         Collection<Integer> allInlinkPages = new HashSet<>();
 
         for (int pageId : pages) {
-            Collection<Integer> inLinkIds = conceptCache.getInlinkIds(pageId);
-            if (inLinkIds.isEmpty()) {
+            int[] inLinkIds = conceptCache.getInlinkIdArray(pageId);
+            if (inLinkIds.length == 0) {
                 //System.out.println("no inlinks for " + pid + "\t" + redisData.getConceptTitleById(pid));
                 continue;
             }
-            ArrayList<Integer> links = new ArrayList<Integer>(inLinkIds.size());
+            TIntArrayList links = new TIntArrayList(inLinkIds.length);
 
             final double inlink_factor_p = Math.log(conceptCache.getInlinkCount(pageId));
 
@@ -308,7 +311,7 @@ public class ESAModelImpl implements ESAModel, Closeable {
             }
 
             //Step 2: update valid inlink's weight
-            for (int linkPageId : links) {
+            for (int linkPageId : links.toArray()) {
 //                if (inlinkConceptIdValues.containsKey(linkPageId)) {
 //                    inlinkConceptIdValues.put(linkPageId, inlinkConceptIdValues.get(linkPageId) + originValue);
 //                } else {
@@ -328,7 +331,7 @@ public class ESAModelImpl implements ESAModel, Closeable {
 
         }
 
-        ConceptVector linkConceptVector = new TroveConceptVector(maxConceptId);
+        ConceptVector linkConceptVector = new TroveConceptVector(inlinkConceptIdValues.size());
         for (int pid : inlinkConceptIdValues.keys()) {
             linkConceptVector.set(pid, inlinkConceptIdValues.get(pid));
         }
@@ -462,8 +465,10 @@ public class ESAModelImpl implements ESAModel, Closeable {
 
         ConceptVector cvNormal = trimVector(cvBase, limit * 2);
         if(considerLinks) {
+            long time = System.nanoTime();
             ConceptVector cvLink = getLinkVector(cvNormal, limit*2);
             cvNormal.add(cvLink);
+            Metrics.observeStage("link_vector", time);
         }
 
         if (considerPageViews) {
@@ -489,7 +494,13 @@ public class ESAModelImpl implements ESAModel, Closeable {
 
 
     public void close() {
-        conceptCache.close();
+        if (conceptCache instanceof Closeable) {
+            try {
+                ((Closeable) conceptCache).close();
+            } catch (IOException e) {
+                LOG.error("close concept cache error", e);
+            }
+        }
     }
 
 }
@@ -12,7 +12,9 @@ import ruc.irm.wikit.util.ConsoleLoop;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -79,6 +81,29 @@ public interface ConceptCache extends NameIdMapping, Cache {
 
     public String getOutIdById(int id);
 
+    /**
+     * Get the names of concepts at once, defaultValue is used for the
+     * concepts which do not exist.
+     */
+    public default String[] getNamesByIds(int[] ids, String defaultValue) {
+        String[] names = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            names[i] = getNameById(ids[i], defaultValue);
+        }
+        return names;
+    }
+
+    /**
+     * Get the out ids of concepts at once, null for the missed ones
+     */
+    public default String[] getOutIdsByIds(int[] ids) {
+        String[] outIds = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            outIds[i] = getOutIdById(ids[i]);
+        }
+        return outIds;
+    }
+
     /**
      * Save link relations from <code>fromId</code> to <code>toId</code>
      */
@@ -88,10 +113,21 @@ public interface ConceptCache extends NameIdMapping, Cache {
 
     public Set<Integer> getInlinkIds(int id);
 
+    /**
+     * Get inlink ids as a sorted primitive array, which avoids boxing when
+     * iterating the links in hot loops.
+     */
+    public int[] getInlinkIdArray(int id);
+
     public int getOutlinkCount(int id);
 
     public Set<Integer> getOutlinkIds(int id);
 
+    /**
+     * Get outlink ids as a sorted primitive array
+     */
+    public int[] getOutlinkIdArray(int id);
+
 
     /**
      * get concept id by name first, if the name does not exist, then get id
@@ -112,6 +148,42 @@ public interface ConceptCache extends NameIdMapping, Cache {
      */
     public DocScore[] getTfIdf(String term) throws IOException;
 
+    /**
+     * Get term vector as a read-only view, if term does not exist, return null
+     */
+    public PostingList getPostingList(String term) throws IOException;
+
+    /**
+     * Get idf values of terms in batch, the terms which do not exist are
+     * not included in the result map.
+     */
+    public default Map<String, Float> getIdfs(Collection<String> terms) {
+        Map<String, Float> idfs = new HashMap<>(terms.size() * 2);
+        for (String term : terms) {
+            float idf = getIdf(term, 0);
+            if (idf > 0) {
+                idfs.put(term, idf);
+            }
+        }
+        return idfs;
+    }
+
+    /**
+     * Get term vectors in batch, the terms which do not exist are not
+     * included in the result map.
+     */
+    public default Map<String, PostingList> getPostingLists(
+            Collection<String> terms) throws IOException {
+        Map<String, PostingList> postings = new HashMap<>(terms.size() * 2);
+        for (String term : terms) {
+            PostingList p = getPostingList(term);
+            if (p != null) {
+                postings.put(term, p);
+            }
+        }
+        return postings;
+    }
+
     public static final class DocScore {
         public int docId;
         public float score;
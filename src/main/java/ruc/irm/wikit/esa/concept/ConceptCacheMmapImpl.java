@@ -0,0 +1,406 @@
+package ruc.irm.wikit.esa.concept;
+
+import gnu.trove.map.hash.TObjectFloatHashMap;
+import gnu.trove.map.hash.TObjectLongHashMap;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.common.exception.MissedException;
+import ruc.irm.wikit.util.ProgressCounter;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Concept cache which serves the ESA term idf and term tf-idf vectors
+ * directly from the model files generated by IndexMining, i.e.,
+ * terms_idf.txt and tfidf.dat, without Redis.
+ * <p>
+ * The tfidf.dat file is memory mapped, the term dictionary only keeps the
+ * position of each term's vector, and the vector is read in place by
+ * {@link PostingList}. The file is mapped as several segments if it is
+ * larger than 2G, a term vector never crosses two segments.
+ * </p>
+ * <p>
+ * Other concept information, such as name-id mapping and link relations,
+ * is still delegated to {@link ConceptCacheRedisImpl}, and the Redis
+ * connection is opened at the first time it is needed, so a pure ESA
+ * vector lookup does not need a Redis server.
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 10:30 AM
+ */
+public class ConceptCacheMmapImpl implements ConceptCache, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(ConceptCacheMmapImpl.class);
+
+    /**
+     * the maximum bytes of one mapped segment
+     */
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private Conf conf = null;
+
+    /**
+     * lower cased term --> idf
+     */
+    private TObjectFloatHashMap<String> idfMap = null;
+
+    /**
+     * term --> (segment index &lt;&lt; 32 | vector offset in the segment)
+     */
+    private TObjectLongHashMap<String> vectorPointers = null;
+
+    private MappedByteBuffer[] segments = null;
+
+    private volatile int maxConceptId = -1;
+
+    private volatile ConceptCacheRedisImpl redisCache = null;
+
+    public ConceptCacheMmapImpl(Conf conf) throws IOException {
+        this(conf, conf.getWikiTermsIdfFile(), conf.getWikiTfidfFile());
+    }
+
+    public ConceptCacheMmapImpl(Conf conf, String idfFile, String tfidfFile)
+            throws IOException {
+        this.conf = conf;
+
+        LOG.info("load idf from {}", idfFile);
+        loadIdf(idfFile);
+
+        LOG.info("map tf-idf vectors from {}", tfidfFile);
+        mapTfIdf(tfidfFile);
+        LOG.info("{} terms, {} tf-idf vectors, {} segments", idfMap.size(),
+                vectorPointers.size(), segments.length);
+    }
+
+    private void loadIdf(String idfFile) throws IOException {
+        idfMap = new TObjectFloatHashMap<>(500000);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(idfFile), ENCODING))) {
+            String line = null;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() > 0) {
+                    String[] items = StringUtils.split(line, "\t");
+                    idfMap.put(items[0].toLowerCase(), Float.parseFloat(items[1]));
+                }
+            }
+        }
+    }
+
+    private void mapTfIdf(String tfidfFile) throws IOException {
+        vectorPointers = new TObjectLongHashMap<>(500000, 0.5f, -1L);
+        List<MappedByteBuffer> buffers = new ArrayList<>();
+        ProgressCounter counter = new ProgressCounter();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(tfidfFile), 1 << 16));
+             RandomAccessFile file = new RandomAccessFile(tfidfFile, "r")) {
+            FileChannel channel = file.getChannel();
+
+            long position = 0;
+            long segmentStart = 0;
+            int len = 0;
+            while ((len = in.readInt()) >= 0) {
+                long recordStart = position;
+                byte[] termArray = new byte[len];
+                in.readFully(termArray);
+                int vectorLength = in.readInt();
+                skipFully(in, vectorLength);
+                position += 4 + len + 4 + vectorLength;
+
+                if (position - segmentStart > MAX_SEGMENT_SIZE) {
+                    buffers.add(channel.map(FileChannel.MapMode.READ_ONLY,
+                            segmentStart, recordStart - segmentStart));
+                    segmentStart = recordStart;
+                }
+
+                if (vectorLength > 0) {
+                    long offset = position - vectorLength - segmentStart;
+                    String term = new String(termArray, ENCODING);
+                    vectorPointers.put(term, ((long) buffers.size() << 32) | offset);
+                }
+                counter.increment();
+            }
+            buffers.add(channel.map(FileChannel.MapMode.READ_ONLY,
+                    segmentStart, position - segmentStart));
+        }
+        counter.done();
+
+        segments = buffers.toArray(new MappedByteBuffer[buffers.size()]);
+    }
+
+    private static void skipFully(DataInputStream in, int n) throws IOException {
+        while (n > 0) {
+            int skipped = in.skipBytes(n);
+            if (skipped <= 0) {
+                throw new EOFException("Unexpected end of tf-idf file.");
+            }
+            n -= skipped;
+        }
+    }
+
+    /**
+     * Redis backed cache for concept information other than ESA tf-idf
+     */
+    private ConceptCacheRedisImpl redis() {
+        if (redisCache == null) {
+            synchronized (this) {
+                if (redisCache == null) {
+                    redisCache = new ConceptCacheRedisImpl(conf);
+                }
+            }
+        }
+        return redisCache;
+    }
+
+    ///////////////////////////////////////
+    //
+    // ESA TF-IDF information
+    //
+    ///////////////////////////////////////
+
+    @Override
+    public float getIdf(String term, float defaultValue) {
+        String key = term.toLowerCase();
+        return idfMap.containsKey(key) ? idfMap.get(key) : defaultValue;
+    }
+
+    @Override
+    public DocScore[] getTfIdf(String term) throws IOException {
+        PostingList postings = getPostingList(term);
+        return (postings == null) ? null : postings.toDocScores();
+    }
+
+    @Override
+    public PostingList getPostingList(String term) {
+        long pointer = vectorPointers.get(term);
+        if (pointer < 0) {
+            return null;
+        }
+        return new PostingList(segments[(int) (pointer >>> 32)],
+                (int) (pointer & 0xFFFFFFFFL));
+    }
+
+    /**
+     * The max concept id is derived from the mapped tf-idf vectors, so it
+     * does not need Redis.
+     */
+    @Override
+    public int getMaxConceptId() {
+        if (maxConceptId < 0) {
+            synchronized (this) {
+                if (maxConceptId < 0) {
+                    int maxId = 0;
+                    for (long pointer : vectorPointers.values()) {
+                        PostingList postings = new PostingList(
+                                segments[(int) (pointer >>> 32)],
+                                (int) (pointer & 0xFFFFFFFFL));
+                        for (int k = 0; k < postings.size(); k++) {
+                            maxId = Math.max(maxId, postings.docId(k));
+                        }
+                    }
+                    maxConceptId = maxId;
+                }
+            }
+        }
+        return maxConceptId;
+    }
+
+    @Override
+    public void saveMaxConceptId(int maxId) {
+        redis().saveMaxConceptId(maxId);
+    }
+
+    @Override
+    public void saveSumOfPageViews(long pv) {
+        redis().saveSumOfPageViews(pv);
+    }
+
+    @Override
+    public long getSumOfPageViews() {
+        return redis().getSumOfPageViews();
+    }
+
+    @Override
+    public void saveAlias(int id, Collection<String> aliasNames) {
+        redis().saveAlias(id, aliasNames);
+    }
+
+    @Override
+    public Collection<String> getAliasNames(int id) {
+        return redis().getAliasNames(id);
+    }
+
+    @Override
+    public int getIdByAlias(String alias, int defaultValue) {
+        return redis().getIdByAlias(alias, defaultValue);
+    }
+
+    @Override
+    public void incPageView(int id, int incCount) {
+        redis().incPageView(id, incCount);
+    }
+
+    @Override
+    public int getPageViewById(int id) {
+        return redis().getPageViewById(id);
+    }
+
+    @Override
+    public void saveCategories(int id, Collection<String> categories) {
+        redis().saveCategories(id, categories);
+    }
+
+    @Override
+    public Collection<String> getCategoriesById(int id) {
+        return redis().getCategoriesById(id);
+    }
+
+    @Override
+    public void saveOutId(int id, String outId) {
+        redis().saveOutId(id, outId);
+    }
+
+    @Override
+    public String getOutIdById(int id) {
+        return redis().getOutIdById(id);
+    }
+
+    @Override
+    public String[] getOutIdsByIds(int[] ids) {
+        return redis().getOutIdsByIds(ids);
+    }
+
+    @Override
+    public String[] getNamesByIds(int[] ids, String defaultValue) {
+        return redis().getNamesByIds(ids, defaultValue);
+    }
+
+    @Override
+    public void saveLinkRelation(int fromId, int toId) {
+        redis().saveLinkRelation(fromId, toId);
+    }
+
+    @Override
+    public int getInlinkCount(int id) {
+        return redis().getInlinkCount(id);
+    }
+
+    @Override
+    public Set<Integer> getInlinkIds(int id) {
+        return redis().getInlinkIds(id);
+    }
+
+    @Override
+    public int[] getInlinkIdArray(int id) {
+        return redis().getInlinkIdArray(id);
+    }
+
+    @Override
+    public int getOutlinkCount(int id) {
+        return redis().getOutlinkCount(id);
+    }
+
+    @Override
+    public Set<Integer> getOutlinkIds(int id) {
+        return redis().getOutlinkIds(id);
+    }
+
+    @Override
+    public int[] getOutlinkIdArray(int id) {
+        return redis().getOutlinkIdArray(id);
+    }
+
+    @Override
+    public void beginBulkLoad() {
+        redis().beginBulkLoad();
+    }
+
+    @Override
+    public void endBulkLoad() {
+        redis().endBulkLoad();
+    }
+
+    @Override
+    public void clearAll() {
+        redis().clearAll();
+    }
+
+    //////////////////////////////////////////////////////
+    //
+    // 以下为NameIdMapping接口实现
+    //
+    ///////////////////////////////////////////////////////
+    @Override
+    public void saveNameIdMapping(String name, int id) {
+        redis().saveNameIdMapping(name, id);
+    }
+
+    @Override
+    public boolean nameExist(String name) {
+        return redis().nameExist(name);
+    }
+
+    @Override
+    public boolean idExist(int id) {
+        return redis().idExist(id);
+    }
+
+    @Override
+    public int getIdByName(String name, int valueForNotExisted) {
+        return redis().getIdByName(name, valueForNotExisted);
+    }
+
+    @Override
+    public int getIdByName(String name) throws MissedException {
+        return redis().getIdByName(name);
+    }
+
+    @Override
+    public List<Integer> getAllIdsByName(String name) {
+        return redis().getAllIdsByName(name);
+    }
+
+    @Override
+    public String getNameById(int conceptId) throws MissedException {
+        return redis().getNameById(conceptId);
+    }
+
+    @Override
+    public String getNameById(int conceptId, String defaultValue) {
+        return redis().getNameById(conceptId, defaultValue);
+    }
+
+    @Override
+    public void finishNameIdMapping() {
+        redis().finishNameIdMapping();
+    }
+
+    @Override
+    public boolean nameIdMapped() {
+        return redis().nameIdMapped();
+    }
+
+    @Override
+    public Set<Integer> listIds() {
+        return redis().listIds();
+    }
+
+    /**
+     * The mapped buffers are released by GC, here we only close the Redis
+     * connection if it has been opened.
+     */
+    @Override
+    public void close() {
+        if (redisCache != null) {
+            redisCache.close();
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package ruc.irm.wikit.esa.concept;
+
+import ruc.irm.wikit.cache.NearCache;
+import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.common.exception.MissedException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Concept cache which serves the read-only lookups, such as name-id
+ * mapping, link relations and idf, from the bounded in-process
+ * {@link NearCache}, and reads from the delegated cache (usually Redis) only
+ * when missed. The term vectors are not cached since they are large, and
+ * the write methods go to the delegated cache directly and drop the cached
+ * values.
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 8:50 PM
+ */
+public class ConceptCacheNearImpl implements ConceptCache, Closeable {
+    private ConceptCache delegate = null;
+
+    private NearCache<String, List<Integer>> name2ids = null;
+    private NearCache<Integer, String> id2name = null;
+    private NearCache<String, Integer> alias2id = null;
+    private NearCache<Integer, Collection<String>> aliases = null;
+    private NearCache<Integer, Collection<String>> categories = null;
+    private NearCache<Integer, Integer> inlinkCounts = null;
+    private NearCache<Integer, Integer> outlinkCounts = null;
+    private NearCache<Integer, int[]> inlinks = null;
+    private NearCache<Integer, int[]> outlinks = null;
+    private NearCache<String, Float> idfs = null;
+
+    public ConceptCacheNearImpl(Conf conf, ConceptCache delegate) {
+        this.delegate = delegate;
+        this.name2ids = NearCache.create(conf, "concept.name2ids");
+        this.id2name = NearCache.create(conf, "concept.id2name");
+        this.alias2id = NearCache.create(conf, "concept.alias2id");
+        this.aliases = NearCache.create(conf, "concept.aliases");
+        this.categories = NearCache.create(conf, "concept.categories");
+        this.inlinkCounts = NearCache.create(conf, "concept.inlink.count");
+        this.outlinkCounts = NearCache.create(conf, "concept.outlink.count");
+        this.inlinks = NearCache.createArrays(conf, "concept.inlinks");
+        this.outlinks = NearCache.createArrays(conf, "concept.outlinks");
+        this.idfs = NearCache.create(conf, "concept.idf");
+    }
+
+    /**
+     * Wrap the concept cache by near cache if "cache.near.size" > 0
+     */
+    public static ConceptCache wrap(Conf conf, ConceptCache delegate) {
+        return NearCache.isEnabled(conf) ? new ConceptCacheNearImpl(conf, delegate) : delegate;
+    }
+
+    public ConceptCache getDelegate() {
+        return delegate;
+    }
+
+    private void invalidateAll() {
+        for (NearCache<?, ?> c : Arrays.asList(name2ids, id2name, alias2id,
+                aliases, categories, inlinkCounts, outlinkCounts, inlinks,
+                outlinks, idfs)) {
+            c.invalidateAll();
+        }
+    }
+
+    @Override
+    public void saveNameIdMapping(String name, int id) {
+        delegate.saveNameIdMapping(name, id);
+        invalidateAll();
+    }
+
+    @Override
+    public Set<Integer> listIds() {
+        return delegate.listIds();
+    }
+
+    @Override
+    public boolean nameExist(String name) {
+        return !getAllIdsByName(name).isEmpty();
+    }
+
+    @Override
+    public boolean idExist(int id) {
+        return getNameById(id, null) != null;
+    }
+
+    @Override
+    public int getIdByName(String name, int valueForNotExisted) {
+        List<Integer> ids = getAllIdsByName(name);
+        return ids.isEmpty() ? valueForNotExisted : ids.get(0);
+    }
+
+    @Override
+    public int getIdByName(String name) throws MissedException {
+        List<Integer> ids = getAllIdsByName(name);
+        if (ids.isEmpty()) {
+            throw new MissedException("concept " + name + " does not exist");
+        }
+        return ids.get(0);
+    }
+
+    @Override
+    public String getNameById(int id) throws MissedException {
+        String name = getNameById(id, null);
+        if (name == null) {
+            throw new MissedException("Concept does not exist for id" + id);
+        }
+        return name;
+    }
+
+    @Override
+    public String getNameById(int id, String defaultValue) {
+        String name = id2name.get(id, key -> delegate.getNameById(key, null));
+        return (name == null) ? defaultValue : name;
+    }
+
+    /**
+     * Read the cached names, and fetch the missed ones from delegate in one
+     * batch.
+     */
+    @Override
+    public String[] getNamesByIds(int[] ids, String defaultValue) {
+        String[] names = new String[ids.length];
+        List<Integer> missed = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            names[i] = id2name.getIfPresent(ids[i]);
+            if (names[i] == null) {
+                missed.add(i);
+            }
+        }
+        if (!missed.isEmpty()) {
+            int[] missedIds = new int[missed.size()];
+            for (int i = 0; i < missedIds.length; i++) {
+                missedIds[i] = ids[missed.get(i)];
+            }
+            String[] loaded = delegate.getNamesByIds(missedIds, null);
+            for (int i = 0; i < missedIds.length; i++) {
+                id2name.put(missedIds[i], loaded[i]);
+                names[missed.get(i)] = loaded[i];
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == null) {
+                names[i] = defaultValue;
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public String[] getOutIdsByIds(int[] ids) {
+        return delegate.getOutIdsByIds(ids);
+    }
+
+    @Override
+    public void finishNameIdMapping() {
+        delegate.finishNameIdMapping();
+    }
+
+    @Override
+    public boolean nameIdMapped() {
+        return delegate.nameIdMapped();
+    }
+
+    @Override
+    public List<Integer> getAllIdsByName(String name) {
+        return name2ids.get(name.toLowerCase(),
+                key -> Collections.unmodifiableList(delegate.getAllIdsByName(key)));
+    }
+
+    @Override
+    public void saveMaxConceptId(int maxId) {
+        delegate.saveMaxConceptId(maxId);
+    }
+
+    @Override
+    public int getMaxConceptId() {
+        return delegate.getMaxConceptId();
+    }
+
+    @Override
+    public void saveSumOfPageViews(long pv) {
+        delegate.saveSumOfPageViews(pv);
+    }
+
+    @Override
+    public long getSumOfPageViews() {
+        return delegate.getSumOfPageViews();
+    }
+
+    @Override
+    public void saveAlias(int id, Collection<String> aliasNames) {
+        delegate.saveAlias(id, aliasNames);
+        invalidateAll();
+    }
+
+    @Override
+    public Collection<String> getAliasNames(int id) {
+        return aliases.get(id, key -> Collections.unmodifiableCollection(
+                delegate.getAliasNames(key)));
+    }
+
+    @Override
+    public int getIdByAlias(String alias, int defaultValue) {
+        int id = alias2id.get(alias, key -> delegate.getIdByAlias(key, Integer.MIN_VALUE));
+        return (id == Integer.MIN_VALUE) ? defaultValue : id;
+    }
+
+    @Override
+    public void incPageView(int id, int incCount) {
+        delegate.incPageView(id, incCount);
+    }
+
+    @Override
+    public int getPageViewById(int id) {
+        return delegate.getPageViewById(id);
+    }
+
+    @Override
+    public void saveCategories(int id, Collection<String> categories) {
+        delegate.saveCategories(id, categories);
+        this.categories.invalidateAll();
+    }
+
+    @Override
+    public Collection<String> getCategoriesById(int id) {
+        return categories.get(id, key -> Collections.unmodifiableCollection(
+                delegate.getCategoriesById(key)));
+    }
+
+    @Override
+    public void saveOutId(int id, String outId) {
+        delegate.saveOutId(id, outId);
+    }
+
+    @Override
+    public String getOutIdById(int id) {
+        return delegate.getOutIdById(id);
+    }
+
+    @Override
+    public void saveLinkRelation(int fromId, int toId) {
+        delegate.saveLinkRelation(fromId, toId);
+        inlinks.invalidateAll();
+        outlinks.invalidateAll();
+        inlinkCounts.invalidateAll();
+        outlinkCounts.invalidateAll();
+    }
+
+    @Override
+    public int getInlinkCount(int id) {
+        return inlinkCounts.get(id, delegate::getInlinkCount);
+    }
+
+    @Override
+    public Set<Integer> getInlinkIds(int id) {
+        return toSet(getInlinkIdArray(id));
+    }
+
+    @Override
+    public int[] getInlinkIdArray(int id) {
+        return inlinks.get(id, delegate::getInlinkIdArray).clone();
+    }
+
+    @Override
+    public int getOutlinkCount(int id) {
+        return outlinkCounts.get(id, delegate::getOutlinkCount);
+    }
+
+    @Override
+    public Set<Integer> getOutlinkIds(int id) {
+        return toSet(getOutlinkIdArray(id));
+    }
+
+    @Override
+    public int[] getOutlinkIdArray(int id) {
+        return outlinks.get(id, delegate::getOutlinkIdArray).clone();
+    }
+
+    private static Set<Integer> toSet(int[] ids) {
+        Set<Integer> set = new HashSet<>(Math.max(16, ids.length * 4 / 3 + 1));
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Override
+    public float getIdf(String term, float defaultValue) {
+        float idf = idfs.get(term, key -> delegate.getIdf(key, Float.NaN));
+        return Float.isNaN(idf) ? defaultValue : idf;
+    }
+
+    /**
+     * Read the cached idf values, and fetch the missed terms from delegate
+     * in one batch, the terms which do not exist are cached as NaN.
+     */
+    @Override
+    public Map<String, Float> getIdfs(Collection<String> terms) {
+        Map<String, Float> result = new HashMap<>(terms.size() * 2);
+        List<String> missed = new ArrayList<>();
+        for (String term : terms) {
+            Float idf = idfs.getIfPresent(term);
+            if (idf == null) {
+                missed.add(term);
+            } else if (!idf.isNaN() && idf > 0) {
+                result.put(term, idf);
+            }
+        }
+        if (!missed.isEmpty()) {
+            Map<String, Float> loaded = delegate.getIdfs(missed);
+            for (String term : missed) {
+                Float idf = loaded.get(term);
+                idfs.put(term, (idf == null) ? Float.NaN : idf);
+                if (idf != null) {
+                    result.put(term, idf);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, PostingList> getPostingLists(Collection<String> terms)
+            throws IOException {
+        return delegate.getPostingLists(terms);
+    }
+
+    @Override
+    public DocScore[] getTfIdf(String term) throws IOException {
+        return delegate.getTfIdf(term);
+    }
+
+    @Override
+    public PostingList getPostingList(String term) throws IOException {
+        return delegate.getPostingList(term);
+    }
+
+    @Override
+    public void beginBulkLoad() {
+        delegate.beginBulkLoad();
+    }
+
+    @Override
+    public void endBulkLoad() throws IOException {
+        delegate.endBulkLoad();
+        invalidateAll();
+    }
+
+    @Override
+    public boolean hasDone() {
+        return delegate.hasDone();
+    }
+
+    @Override
+    public void done() {
+        delegate.done();
+    }
+
+    @Override
+    public void clearAll() {
+        delegate.clearAll();
+        invalidateAll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
@@ -7,15 +7,19 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import ruc.irm.wikit.cache.IntSetBulkWriter;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.exception.MissedException;
+import ruc.irm.wikit.util.Checkpoint;
+import ruc.irm.wikit.util.Metrics;
 import ruc.irm.wikit.util.NumberUtils;
 
 import java.io.*;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -27,40 +31,84 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
     private Logger LOG = LoggerFactory.getLogger(ConceptCacheRedisImpl.class);
 
     private String prefix = "";
-    private Jedis jedis = null;
+    private JedisPool pool = null;
     private Conf conf = null;
 
+    /** the Redis server of concept cache, used by bulk load as well */
+    private String host = null;
+    private int port = 6379;
+
+    /** not null in bulk load mode, see beginBulkLoad() */
+    private IntSetBulkWriter bulkWriter = null;
+
+    /**
+     * The connections are borrowed from a JedisPool for each operation, so one
+     * cache instance can be shared by several threads.
+     */
     public ConceptCacheRedisImpl(Conf conf) {
         this.conf = conf;
         this.prefix = conf.getRedisPrefix();
-        this.jedis = new Jedis(conf.get("esa.redis.host"), conf.getInt("esa.redis.port", 6379), conf.getRedisTimeout());
+        this.host = conf.get("esa.redis.host");
+        this.port = conf.getInt("esa.redis.port", 6379);
+        this.pool = new JedisPool(createPoolConfig(conf.getInt("redis.pool.max.total", 32)),
+                host, port, conf.getRedisTimeout());
     }
 
     public ConceptCacheRedisImpl(String host, int port, String prefix) {
         this.prefix = prefix;
-        this.jedis = new Jedis(host, port);
+        this.host = host;
+        this.port = port;
+        this.pool = new JedisPool(createPoolConfig(32), host, port);
+    }
+
+    private static JedisPoolConfig createPoolConfig(int maxTotal) {
+        JedisPoolConfig config = new JedisPoolConfig();
+        config.setMaxTotal(maxTotal);
+        config.setMaxIdle(maxTotal);
+        return config;
+    }
+
+    /**
+     * Borrow a connection from pool, run action and return the connection.
+     */
+    private <T> T execute(Function<Jedis, T> action) {
+        Metrics.redisCall();
+        Jedis jedis = pool.getResource();
+        boolean broken = false;
+        try {
+            return action.apply(jedis);
+        } catch (JedisConnectionException e) {
+            broken = true;
+            throw e;
+        } finally {
+            if (broken) {
+                pool.returnBrokenResource(jedis);
+            } else {
+                pool.returnResource(jedis);
+            }
+        }
     }
 
 
     @Override
     public void saveMaxConceptId(int maxId) {
-        jedis.hset(KEY_CONFIG, HKEY_CONFIG_MAXID, NumberUtils.int2Bytes(maxId));
+        execute(jedis -> jedis.hset(KEY_CONFIG, HKEY_CONFIG_MAXID, NumberUtils.int2Bytes(maxId)));
     }
 
     @Override
     public int getMaxConceptId() {
-        byte[] value = jedis.hget(KEY_CONFIG, HKEY_CONFIG_MAXID);
+        byte[] value = execute(jedis -> jedis.hget(KEY_CONFIG, HKEY_CONFIG_MAXID));
         return NumberUtils.bytes2Int(value, 0);
     }
 
     @Override
     public void saveSumOfPageViews(long pv) {
-        jedis.hset(KEY_CONFIG, HKEY_CONFIG_PV_SUM, NumberUtils.long2Bytes(pv));
+        execute(jedis -> jedis.hset(KEY_CONFIG, HKEY_CONFIG_PV_SUM, NumberUtils.long2Bytes(pv)));
     }
 
     @Override
     public long getSumOfPageViews() {
-        byte[] value = jedis.hget(KEY_CONFIG, HKEY_CONFIG_PV_SUM);
+        byte[] value = execute(jedis -> jedis.hget(KEY_CONFIG, HKEY_CONFIG_PV_SUM));
         return NumberUtils.bytes2Long(value, 0);
     }
 
@@ -70,22 +118,25 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
             return;
         }
 
-        byte[] key = (prefix + "cpt:id2alias").getBytes(ENCODING);
-        String s = Joiner.on("\n").join(aliasNames);
-        jedis.hset(key, NumberUtils.int2Bytes(id), s.getBytes(ENCODING));
-
-        key = (prefix + "cpt:alias2id").getBytes(ENCODING);
-        byte[] value = NumberUtils.int2Bytes(id);
-        for (String name : aliasNames) {
-            byte[] hkey = name.toLowerCase().getBytes(ENCODING);
-            jedis.hset(key, hkey, value);
-        }
+        execute(jedis -> {
+            byte[] key = (prefix + "cpt:id2alias").getBytes(ENCODING);
+            String s = Joiner.on("\n").join(aliasNames);
+            jedis.hset(key, NumberUtils.int2Bytes(id), s.getBytes(ENCODING));
+
+            key = (prefix + "cpt:alias2id").getBytes(ENCODING);
+            byte[] value = NumberUtils.int2Bytes(id);
+            for (String name : aliasNames) {
+                byte[] hkey = name.toLowerCase().getBytes(ENCODING);
+                jedis.hset(key, hkey, value);
+            }
+            return null;
+        });
     }
 
     @Override
     public Collection<String> getAliasNames(int id) {
         byte[] key = (prefix + "cpt:id2alias").getBytes(ENCODING);
-        byte[] value = jedis.hget(key, NumberUtils.int2Bytes(id));
+        byte[] value = execute(jedis -> jedis.hget(key, NumberUtils.int2Bytes(id)));
         if (value == null) {
             return new HashSet<>();
         } else {
@@ -101,19 +152,19 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
     public int getIdByAlias(String alias, int defaultValue) {
         byte[] key = (prefix + "cpt:alias2id").getBytes(ENCODING);
         byte[] hkey = alias.toLowerCase().getBytes(ENCODING);
-        return NumberUtils.bytes2Int(jedis.hget(key, hkey), defaultValue);
+        return NumberUtils.bytes2Int(execute(jedis -> jedis.hget(key, hkey)), defaultValue);
     }
 
     @Override
     public void incPageView(int id, int incCount) {
         byte[] hkey = NumberUtils.int2Bytes(id);
-        jedis.hincrBy(KEY_PAGE_VIEW, hkey, 1);
+        execute(jedis -> jedis.hincrBy(KEY_PAGE_VIEW, hkey, 1));
     }
 
     @Override
     public int getPageViewById(int id) {
         byte[] hkey = NumberUtils.int2Bytes(id);
-        byte[] value = jedis.hget(KEY_PAGE_VIEW, hkey);
+        byte[] value = execute(jedis -> jedis.hget(KEY_PAGE_VIEW, hkey));
         return NumberUtils.bytes2Int(value, 0);
     }
 
@@ -124,7 +175,7 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
         }
         byte[] key = (prefix + "cpt:id2category").getBytes(ENCODING);
         String s = Joiner.on("\n").join(categories);
-        jedis.hset(key, NumberUtils.int2Bytes(id), s.getBytes(ENCODING));
+        execute(jedis -> jedis.hset(key, NumberUtils.int2Bytes(id), s.getBytes(ENCODING)));
 
     }
 
@@ -132,7 +183,7 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
     public Collection<String> getCategoriesById(int id) {
         byte[] key = (prefix + "cpt:id2category").getBytes(ENCODING);
         byte[] hkey = NumberUtils.int2Bytes(id);
-        byte[] value = jedis.hget(key, hkey);
+        byte[] value = execute(jedis -> jedis.hget(key, hkey));
         if (value == null) {
             return new HashSet<>();
         } else {
@@ -148,83 +199,154 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
     public void saveOutId(int id, String outId) {
         byte[] key = (prefix + "cpt:id2outid").getBytes(ENCODING);
         byte[] hkey = NumberUtils.int2Bytes(id);
-        jedis.hset(key, hkey, outId.getBytes(ENCODING));
+        execute(jedis -> jedis.hset(key, hkey, outId.getBytes(ENCODING)));
     }
 
     @Override
     public String getOutIdById(int id) {
         byte[] key = (prefix + "cpt:id2outid").getBytes(ENCODING);
         byte[] hkey = NumberUtils.int2Bytes(id);
-        byte[] value = jedis.hget(key, hkey);
+        byte[] value = execute(jedis -> jedis.hget(key, hkey));
 
         return (value == null) ? null : new String(value, ENCODING);
     }
 
+    /**
+     * Read all out ids by one HMGET
+     */
     @Override
-    public void saveLinkRelation(int fromId, int toId) {
-        byte[] key = (prefix + "cpt:id2inlink:set").getBytes(ENCODING);
-        byte[] fromBytes =  NumberUtils.int2Bytes(toId);
-        byte[] toBytes = NumberUtils.int2Bytes(toId);
+    public String[] getOutIdsByIds(int[] ids) {
+        return hmget((prefix + "cpt:id2outid").getBytes(ENCODING), ids, null);
+    }
 
-        byte[] value = jedis.hget(key, toBytes);
-        Set<Integer> ids = NumberUtils.bytes2IntSet(value);
-        ids.add(fromId);
-        jedis.hset(key, toBytes, NumberUtils.intSet2Bytes(ids));
+    /**
+     * Read all names by one HMGET
+     */
+    @Override
+    public String[] getNamesByIds(int[] ids, String defaultValue) {
+        return hmget((prefix + "cpt:id2name").getBytes(ENCODING), ids, defaultValue);
+    }
 
-        //save inlink count
-        key = (prefix + "cpt:id2inlink:count").getBytes(ENCODING);
-        jedis.hset(key, toBytes, NumberUtils.int2Bytes(ids.size()));
+    private String[] hmget(byte[] key, int[] ids, String defaultValue) {
+        String[] result = new String[ids.length];
+        if (ids.length == 0) {
+            return result;
+        }
+        byte[][] fields = new byte[ids.length][];
+        for (int i = 0; i < ids.length; i++) {
+            fields[i] = NumberUtils.int2Bytes(ids[i]);
+        }
+        List<byte[]> values = execute(jedis -> jedis.hmget(key, fields));
+        for (int i = 0; i < ids.length; i++) {
+            byte[] value = values.get(i);
+            result[i] = (value == null) ? defaultValue : new String(value, ENCODING);
+        }
+        return result;
+    }
 
-        //save outlink set
-        key = (prefix + "cpt:id2outlink:set").getBytes(ENCODING);
-        value = jedis.hget(key, fromBytes);
-        ids = NumberUtils.bytes2IntSet(value);
-        ids.add(toId);
-        jedis.hset(key, fromBytes, NumberUtils.intSet2Bytes(ids));
+    @Override
+    public void saveLinkRelation(int fromId, int toId) {
+        if (bulkWriter != null) {
+            bulkWriter.add(prefix + "cpt:id2inlink:set", toId, fromId);
+            bulkWriter.add(prefix + "cpt:id2outlink:set", fromId, toId);
+            return;
+        }
 
-        //save outlink count
-        key = (prefix + "cpt:id2outlink:count").getBytes(ENCODING);
-        jedis.hset(key, fromBytes, NumberUtils.int2Bytes(ids.size()));
+        execute(jedis -> {
+            byte[] key = (prefix + "cpt:id2inlink:set").getBytes(ENCODING);
+            byte[] fromBytes =  NumberUtils.int2Bytes(fromId);
+            byte[] toBytes = NumberUtils.int2Bytes(toId);
+
+            byte[] value = jedis.hget(key, toBytes);
+            Set<Integer> ids = NumberUtils.bytes2IntSet(value);
+            ids.add(fromId);
+            jedis.hset(key, toBytes, NumberUtils.intSet2Bytes(ids));
+
+            //save inlink count
+            key = (prefix + "cpt:id2inlink:count").getBytes(ENCODING);
+            jedis.hset(key, toBytes, NumberUtils.int2Bytes(ids.size()));
+
+            //save outlink set
+            key = (prefix + "cpt:id2outlink:set").getBytes(ENCODING);
+            value = jedis.hget(key, fromBytes);
+            ids = NumberUtils.bytes2IntSet(value);
+            ids.add(toId);
+            jedis.hset(key, fromBytes, NumberUtils.intSet2Bytes(ids));
+
+            //save outlink count
+            key = (prefix + "cpt:id2outlink:count").getBytes(ENCODING);
+            jedis.hset(key, fromBytes, NumberUtils.int2Bytes(ids.size()));
+            return null;
+        });
+    }
 
+    @Override
+    public void beginBulkLoad() {
+        if (conf == null) {
+            throw new IllegalStateException("bulk load needs the configuration");
+        }
+        bulkWriter = new IntSetBulkWriter(conf, host, port);
+        bulkWriter.setCountKey(prefix + "cpt:id2inlink:set", prefix + "cpt:id2inlink:count");
+        bulkWriter.setCountKey(prefix + "cpt:id2outlink:set", prefix + "cpt:id2outlink:count");
+    }
+
+    @Override
+    public void endBulkLoad() {
+        if (bulkWriter != null) {
+            bulkWriter.close();
+            bulkWriter = null;
+        }
     }
 
     @Override
     public int getInlinkCount(int id) {
         byte[] key = (prefix + "cpt:id2inlink:count").getBytes(ENCODING);
-        byte[] value = jedis.hget(key, NumberUtils.int2Bytes(id));
+        byte[] value = execute(jedis -> jedis.hget(key, NumberUtils.int2Bytes(id)));
         return NumberUtils.bytes2Int(value, 0);
     }
 
     @Override
     public Set<Integer> getInlinkIds(int id) {
         byte[] key = (prefix + "cpt:id2inlink:set").getBytes(ENCODING);
-        byte[] value = jedis.hget(key, NumberUtils.int2Bytes(id));
+        byte[] value = execute(jedis -> jedis.hget(key, NumberUtils.int2Bytes(id)));
         return NumberUtils.bytes2IntSet(value);
     }
 
+    @Override
+    public int[] getInlinkIdArray(int id) {
+        byte[] key = (prefix + "cpt:id2inlink:set").getBytes(ENCODING);
+        byte[] value = execute(jedis -> jedis.hget(key, NumberUtils.int2Bytes(id)));
+        return NumberUtils.decodeIntSet(value);
+    }
+
     @Override
     public int getOutlinkCount(int id) {
         byte[] key = (prefix + "cpt:id2outlink:count").getBytes(ENCODING);
-        byte[] value = jedis.hget(key, NumberUtils.int2Bytes(id));
+        byte[] value = execute(jedis -> jedis.hget(key, NumberUtils.int2Bytes(id)));
         return NumberUtils.bytes2Int(value, 0);
     }
 
     @Override
     public Set<Integer> getOutlinkIds(int id) {
         byte[] key = (prefix + "cpt:id2outlink:set").getBytes(ENCODING);
-        byte[] value = jedis.hget(key, NumberUtils.int2Bytes(id));
+        byte[] value = execute(jedis -> jedis.hget(key, NumberUtils.int2Bytes(id)));
         return NumberUtils.bytes2IntSet(value);
     }
 
+    @Override
+    public int[] getOutlinkIdArray(int id) {
+        byte[] key = (prefix + "cpt:id2outlink:set").getBytes(ENCODING);
+        byte[] value = execute(jedis -> jedis.hget(key, NumberUtils.int2Bytes(id)));
+        return NumberUtils.decodeIntSet(value);
+    }
+
     @Override
     public void clearAll() {
         LOG.info("Remove id2name");
-        byte[] key = (prefix + "cpt:id2name").getBytes(ENCODING);
-        jedis.del(key);
+        execute(jedis -> jedis.del((prefix + "cpt:id2name").getBytes(ENCODING)));
 
         LOG.info("Remove name2id");
-        key = (prefix + "cpt:name2id").getBytes(ENCODING);
-        jedis.del(key);
+        execute(jedis -> jedis.del((prefix + "cpt:name2id").getBytes(ENCODING)));
     }
 
 
@@ -245,29 +367,29 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
         }
 
         //save name->id mapping
-        byte[] key = (prefix + "cpt:name2id").getBytes(ENCODING);
         List<Integer> ids = getAllIdsByName(name);
         if (!ids.contains(id)) {
             ids.add(id);
-            jedis.hset(key, name.toLowerCase().getBytes(ENCODING),
-                    NumberUtils.intList2Bytes(ids));
+            byte[] key = (prefix + "cpt:name2id").getBytes(ENCODING);
+            execute(jedis -> jedis.hset(key, name.toLowerCase().getBytes(ENCODING),
+                    NumberUtils.intList2Bytes(ids)));
         }
 
         //save id->name mapping
-        key = (prefix + "cpt:id2name").getBytes(ENCODING);
-        jedis.hset(key, NumberUtils.int2Bytes(id), name.getBytes(ENCODING));
+        byte[] key = (prefix + "cpt:id2name").getBytes(ENCODING);
+        execute(jedis -> jedis.hset(key, NumberUtils.int2Bytes(id), name.getBytes(ENCODING)));
     }
 
     @Override
     public boolean nameExist(String name) {
         byte[] key = (prefix + "cpt:name2id").getBytes(ENCODING);
-        return jedis.hexists(key, name.toLowerCase().getBytes(ENCODING));
+        return execute(jedis -> jedis.hexists(key, name.toLowerCase().getBytes(ENCODING)));
     }
 
     @Override
     public boolean idExist(int id) {
         byte[] key = (prefix + "cpt:id2name").getBytes(ENCODING);
-        return jedis.hexists(key, NumberUtils.int2Bytes(id));
+        return execute(jedis -> jedis.hexists(key, NumberUtils.int2Bytes(id)));
     }
 
     @Override
@@ -290,14 +412,14 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
     @Override
     public List<Integer> getAllIdsByName(String name) {
         byte[] key = (prefix + "cpt:name2id").getBytes(ENCODING);
-        byte[] value = jedis.hget(key, name.toLowerCase().getBytes(ENCODING));
+        byte[] value = execute(jedis -> jedis.hget(key, name.toLowerCase().getBytes(ENCODING)));
         return NumberUtils.bytes2IntList(value);
     }
 
     @Override
     public String getNameById(int conceptId) throws MissedException {
         byte[] key = (prefix + "cpt:id2name").getBytes(ENCODING);
-        byte[] value = jedis.hget(key, NumberUtils.int2Bytes(conceptId));
+        byte[] value = execute(jedis -> jedis.hget(key, NumberUtils.int2Bytes(conceptId)));
         if (value == null) {
             throw new MissedException("Concept does not exist for id"
                     + conceptId);
@@ -308,26 +430,26 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
     @Override
     public String getNameById(int conceptId, String defaultValue) {
         byte[] key = (prefix + "cpt:id2name").getBytes(ENCODING);
-        byte[] value = jedis.hget(key, NumberUtils.int2Bytes(conceptId));
+        byte[] value = execute(jedis -> jedis.hget(key, NumberUtils.int2Bytes(conceptId)));
 
         return (value==null)?defaultValue:new String(value, ENCODING);
     }
 
     @Override
     public void finishNameIdMapping() {
-        jedis.hset(KEY_CONFIG, HKEY_CONFIG_NAMEID_MAPPED, "true".getBytes(ENCODING));
+        execute(jedis -> jedis.hset(KEY_CONFIG, HKEY_CONFIG_NAMEID_MAPPED, "true".getBytes(ENCODING)));
     }
 
     @Override
     public boolean nameIdMapped() {
-        byte[] value = jedis.hget(KEY_CONFIG, HKEY_CONFIG_NAMEID_MAPPED);
+        byte[] value = execute(jedis -> jedis.hget(KEY_CONFIG, HKEY_CONFIG_NAMEID_MAPPED));
         return value!=null && new String(value, ENCODING).equals("true");
     }
 
 
     @Override
     public Set<Integer> listIds() {
-        Set<byte[]> keys = jedis.hkeys((prefix + "cpt:id2name").getBytes(ENCODING));
+        Set<byte[]> keys = execute(jedis -> jedis.hkeys((prefix + "cpt:id2name").getBytes(ENCODING)));
         return keys.stream().mapToInt(NumberUtils::bytes2Int).boxed().collect(Collectors.toSet());
     }
 
@@ -339,49 +461,98 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
 
     public void saveIdf(String term, float idf) {
         byte[] key = (prefix + "cpt:term2idf").getBytes(ENCODING);
-        jedis.hset(key, term.toLowerCase().getBytes(ENCODING),
-                NumberUtils.float2Bytes(idf));
+        execute(jedis -> jedis.hset(key, term.toLowerCase().getBytes(ENCODING),
+                NumberUtils.float2Bytes(idf)));
     }
 
 
     public float getIdf(String term, float defaultValue) {
         byte[] key = (prefix + "cpt:term2idf").getBytes(ENCODING);
-        byte[] value = jedis.hget(key, term.toLowerCase().getBytes(ENCODING));
+        byte[] value = execute(jedis -> jedis.hget(key, term.toLowerCase().getBytes(ENCODING)));
         return NumberUtils.bytes2Float(value, defaultValue);
     }
 
     public void saveTfIdf(String term, byte[] vector) {
         byte[] key = (prefix + "cpt:term2tfidf").getBytes(ENCODING);
-        jedis.hset(key, term.getBytes(ENCODING), vector);
+        execute(jedis -> jedis.hset(key, term.getBytes(ENCODING), vector));
     }
 
     public DocScore[] getTfIdf(String term) throws IOException {
+        PostingList postings = getPostingList(term);
+        return (postings == null) ? null : postings.toDocScores();
+    }
+
+    @Override
+    public PostingList getPostingList(String term) throws IOException {
         byte[] key = (prefix + "cpt:term2tfidf").getBytes(ENCODING);
-        byte[] vector = jedis.hget(key, term.getBytes(ENCODING));
+        byte[] vector = execute(jedis -> jedis.hget(key, term.getBytes(ENCODING)));
         if (vector == null) {
             return null;
         }
 
-        ByteArrayInputStream bais = new ByteArrayInputStream(vector);
-        DataInputStream dis = new DataInputStream(bais);
-        /**
-         * 4 bytes: int - length of array
-         * 4 byte (doc) - 8 byte (tfidf) pairs
-         */
-        int vectorLength = dis.readInt();
-        DocScore[] docScores = new DocScore[vectorLength];
-
-        // System.out.println("vector len: " + vectorLength);
-        for (int k = 0; k < vectorLength; k++) {
-            docScores[k] = new DocScore(dis.readInt(), dis.readFloat());
+        return PostingList.wrap(vector);
+    }
+
+    /**
+     * Get idf values of terms by one HMGET round trip
+     */
+    @Override
+    public Map<String, Float> getIdfs(Collection<String> terms) {
+        Map<String, Float> idfs = new HashMap<>(terms.size() * 2);
+        if (terms.isEmpty()) {
+            return idfs;
+        }
+
+        byte[] key = (prefix + "cpt:term2idf").getBytes(ENCODING);
+        List<String> termList = new ArrayList<>(terms);
+        byte[][] fields = new byte[termList.size()][];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = termList.get(i).toLowerCase().getBytes(ENCODING);
+        }
+
+        List<byte[]> values = execute(jedis -> jedis.hmget(key, fields));
+        for (int i = 0; i < fields.length; i++) {
+            float idf = NumberUtils.bytes2Float(values.get(i), 0);
+            if (idf > 0) {
+                idfs.put(termList.get(i), idf);
+            }
+        }
+        return idfs;
+    }
+
+    /**
+     * Get term vectors by one HMGET round trip
+     */
+    @Override
+    public Map<String, PostingList> getPostingLists(Collection<String> terms) {
+        Map<String, PostingList> postings = new HashMap<>(terms.size() * 2);
+        if (terms.isEmpty()) {
+            return postings;
         }
 
-        return docScores;
+        byte[] key = (prefix + "cpt:term2tfidf").getBytes(ENCODING);
+        List<String> termList = new ArrayList<>(terms);
+        byte[][] fields = new byte[termList.size()][];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = termList.get(i).getBytes(ENCODING);
+        }
+
+        List<byte[]> vectors = execute(jedis -> jedis.hmget(key, fields));
+        for (int i = 0; i < fields.length; i++) {
+            byte[] vector = vectors.get(i);
+            if (vector != null) {
+                postings.put(termList.get(i), PostingList.wrap(vector));
+            }
+        }
+        return postings;
     }
 
+    /** stage name of tf-idf import in build checkpoint */
+    public static final String STAGE_IMPORT_TFIDF = "import.tfidf";
+
     public void importIdf(String idfFile) throws IOException {
         byte[] key = (prefix + "cpt:term2idf").getBytes(ENCODING);
-        jedis.del(key);
+        execute(jedis -> jedis.del(key));
         BufferedReader reader = new BufferedReader(new FileReader(idfFile));
         String line = null;
         int count = 0;
@@ -400,10 +571,28 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
     }
 
     public void importTfIdf(String tfidfFile) throws IOException {
+        importTfIdf(tfidfFile, Checkpoint.none());
+    }
+
+    /**
+     * Import tf-idf vectors, the position of imported vectors is saved into
+     * checkpoint periodically, if the last import is interrupted, continue
+     * from the saved position.
+     */
+    public void importTfIdf(String tfidfFile, Checkpoint checkpoint) throws IOException {
         byte[] key = (prefix + "cpt:term2tfidf").getBytes(ENCODING);
-        jedis.del(key);
+        String progressKey = STAGE_IMPORT_TFIDF + ".offset";
+        long offset = checkpoint.getProgress(progressKey, 0);
+        if (offset == 0) {
+            execute(jedis -> jedis.del(key));
+        } else {
+            LOG.info("continue to import tf-idf from offset {}", offset);
+        }
 
-        DataInputStream in = new DataInputStream(new FileInputStream(tfidfFile));
+        int interval = conf.getInt("esa.build.checkpoint.interval", 10000);
+        FileInputStream fis = new FileInputStream(tfidfFile);
+        fis.getChannel().position(offset);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(fis));
 
         int count = 0;
         int len = 0;
@@ -415,20 +604,27 @@ public class ConceptCacheRedisImpl implements ConceptCache, Closeable {
             byte[] termArray = new byte[len];
             in.readFully(termArray);
 
-            len = in.readInt();
-            if (len > 0) {
-                byte[] vector = new byte[len];
+            int vectorLength = in.readInt();
+            if (vectorLength > 0) {
+                byte[] vector = new byte[vectorLength];
                 in.readFully(vector);
                 String term = new String(termArray, "utf-8");
                 saveTfIdf(term, vector);
             }
+
+            offset += 4 + len + 4 + Math.max(vectorLength, 0);
+            if (count % interval == 0) {
+                checkpoint.setProgress(progressKey, offset);
+                checkpoint.save();
+            }
         }
         in.close();
+        checkpoint.done(STAGE_IMPORT_TFIDF, new File(tfidfFile));
     }
 
     @Override
     public void close() {
-        jedis.close();
+        pool.destroy();
     }
 
     private final byte[] KEY_PAGE_VIEW =  (prefix + "cpt:pv").getBytes(ENCODING);
@@ -0,0 +1,57 @@
+package ruc.irm.wikit.esa.concept;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only view of one term's tf-idf vector, i.e., the &lt;docId,
+ * score&gt; pairs written by IndexMining. The view reads the pairs in place
+ * from the underlying buffer (a Redis value or a memory mapped file), no
+ * DocScore object is created.
+ * <p>
+ * The layout is: 4 bytes int - length of array, then 4 bytes int (doc) and
+ * 4 bytes float (tfidf) pairs.
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 10:20 AM
+ */
+public final class PostingList {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int size;
+
+    /**
+     * @param buffer the buffer holds the vector, only absolute get methods
+     *               are called, so the buffer can be shared between threads
+     * @param offset the position of vector length in buffer
+     */
+    public PostingList(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.size = buffer.getInt(offset);
+    }
+
+    public static PostingList wrap(byte[] vector) {
+        return new PostingList(ByteBuffer.wrap(vector), 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int docId(int index) {
+        return buffer.getInt(offset + 4 + (index << 3));
+    }
+
+    public float score(int index) {
+        return buffer.getFloat(offset + 8 + (index << 3));
+    }
+
+    public ConceptCache.DocScore[] toDocScores() {
+        ConceptCache.DocScore[] docScores = new ConceptCache.DocScore[size];
+        for (int k = 0; k < size; k++) {
+            docScores[k] = new ConceptCache.DocScore(docId(k), score(k));
+        }
+        return docScores;
+    }
+}
@@ -18,6 +18,8 @@ public class CacheConceptVisitor implements DatasetVisitor {
 
     public CacheConceptVisitor(ConceptCache conceptCache) {
         this.conceptCache = conceptCache;
+        //link relations are written in batch
+        this.conceptCache.beginBulkLoad();
     }
 
     @Override
@@ -41,5 +43,6 @@ public class CacheConceptVisitor implements DatasetVisitor {
 
     @Override
     public void close() throws IOException {
+        conceptCache.endBulkLoad();
     }
 }
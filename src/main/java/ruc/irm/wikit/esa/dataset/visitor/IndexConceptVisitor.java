@@ -4,6 +4,7 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.store.Directory;
@@ -16,22 +17,92 @@ import ruc.irm.wikit.util.text.analysis.ESASimilarity;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Index all the concept through lucene full text search engine.
+ * <p>
+ * The documents are analyzed and added to the shared IndexWriter by
+ * "esa.index.threads" worker threads, each worker reuses its own document
+ * and fields. At most threads * 4 concepts are waiting to be indexed, and
+ * all of them are indexed before commit, so the count of indexed concepts
+ * saved in the commit is still exact for resume.
+ * </p>
  *
  * User: xiatian
  * Date: 4/13/14
  * Time: 12:08 PM
  */
 public class IndexConceptVisitor implements DatasetVisitor {
+    private static final String COMMIT_KEY_INDEXED = "indexed";
+
+    /** The customized field type for contents field */
+    private static final FieldType CONTENT_FIELD_TYPE = new FieldType();
+
+    static {
+        CONTENT_FIELD_TYPE.setIndexed(true);
+        CONTENT_FIELD_TYPE.setStored(true);
+        CONTENT_FIELD_TYPE.setStoreTermVectors(true);
+        CONTENT_FIELD_TYPE.setTokenized(true);
+        CONTENT_FIELD_TYPE.freeze();
+    }
+
     private IndexWriter writer = null;
 
+    /** null if the concepts are indexed by the traverse thread */
+    private ExecutorService executor = null;
+    private Semaphore pending = null;
+    private int maxPending = 0;
+    private AtomicReference<Throwable> indexError = new AtomicReference<>();
+
+    private ThreadLocal<ConceptDocument> documents =
+            ThreadLocal.withInitial(ConceptDocument::new);
+
+    /** commit the index every commitInterval concepts, 0 for no commit */
+    private int commitInterval = 0;
+
+    /** the concepts which have been committed in the last run are skipped */
+    private long skipCount = 0;
+    private long count = 0;
+
     public IndexConceptVisitor(Conf conf, boolean create) throws IOException {
-        writer = openWriter(conf, create);
+        int threads = conf.getInt("esa.index.threads",
+                Runtime.getRuntime().availableProcessors());
+        writer = openWriter(conf, create, threads);
+        if (threads > 1) {
+            this.executor = Executors.newFixedThreadPool(threads);
+            this.maxPending = threads * 4;
+            this.pending = new Semaphore(maxPending);
+        }
+        System.out.println("Index concepts with " + threads + " threads.");
+    }
+
+    /**
+     * Create a visitor which commits the index periodically, and records
+     * the number of indexed concepts in the commit. If resume is true, the
+     * existing index is opened, and the concepts which have been committed
+     * are skipped, the dataset should be traversed in the same order.
+     */
+    public static IndexConceptVisitor resumable(Conf conf, boolean resume)
+            throws IOException {
+        IndexConceptVisitor visitor = new IndexConceptVisitor(conf, !resume);
+        visitor.commitInterval = conf.getInt("esa.build.checkpoint.interval", 10000);
+        if (resume) {
+            String indexed = visitor.writer.getCommitData().get(COMMIT_KEY_INDEXED);
+            visitor.skipCount = (indexed == null) ? 0 : Long.parseLong(indexed);
+            System.out.println("Resume index, skip " + visitor.skipCount + " concepts.");
+        }
+        return visitor;
     }
 
-    private IndexWriter openWriter(Conf conf, boolean create) throws IOException {
+    private IndexWriter openWriter(Conf conf, boolean create, int threads)
+            throws IOException {
         File indexDir = new File(conf.getEsaIndexDir());
         indexDir.mkdirs();
         System.out.println("Create index on " + indexDir.getAbsolutePath());
@@ -39,6 +110,13 @@ public class IndexConceptVisitor implements DatasetVisitor {
 
         IndexWriterConfig config = new IndexWriterConfig(Conf.LUCENE_VERSION, new ESAAnalyzer(conf));
         config.setSimilarity(new ESASimilarity());
+        config.setRAMBufferSizeMB(conf.getDouble("esa.index.ram.buffer.mb", 256));
+        config.setMaxThreadStates(Math.max(threads, IndexWriterConfig.DEFAULT_MAX_THREAD_STATES));
+
+        ConcurrentMergeScheduler mergeScheduler = new ConcurrentMergeScheduler();
+        int mergeThreads = conf.getInt("esa.index.merge.threads", 2);
+        mergeScheduler.setMaxMergesAndThreads(mergeThreads + 2, mergeThreads);
+        config.setMergeScheduler(mergeScheduler);
         if (create) {
             // Create a new index in the directory, removing any
             // previously indexed documents:
@@ -52,23 +130,29 @@ public class IndexConceptVisitor implements DatasetVisitor {
 
     @Override
     public boolean filter(FullConcept concept) {
-        //index
-        Document doc = new Document();
-
-        /** The customized field type for contents field */
-        FieldType contentFieldType = new FieldType();
-        contentFieldType.setIndexed(true);
-        contentFieldType.setStored(true);
-        contentFieldType.setStoreTermVectors(true);
-        contentFieldType.setTokenized(true);
-
-        doc.add(new Field("contents", concept.getTitle() + "\n" + concept.getPlainContent(), contentFieldType));
-        doc.add(new StringField("id", Integer.toString(concept.getId()), Field.Store.YES));
-        doc.add(new StringField("outId", concept.getOutId(), Field.Store.YES));
-        doc.add(new Field("title", concept.getTitle(), contentFieldType));
+        count++;
+        if (count <= skipCount) {
+            return true;
+        }
 
         try {
-            writer.addDocument(doc);
+            if (executor == null) {
+                index(concept);
+            } else {
+                pending.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        index(concept);
+                    } catch (Throwable t) {
+                        indexError.compareAndSet(null, t);
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+            if (commitInterval > 0 && count % commitInterval == 0) {
+                commit();
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -76,8 +160,77 @@ public class IndexConceptVisitor implements DatasetVisitor {
         return true;
     }
 
+    private void index(FullConcept concept) throws IOException {
+        ConceptDocument doc = documents.get();
+        doc.contents.setStringValue(concept.getTitle() + "\n" + concept.getPlainContent());
+        doc.id.setStringValue(Integer.toString(concept.getId()));
+        doc.outId.setStringValue(concept.getOutId());
+        doc.title.setStringValue(concept.getTitle());
+        writer.addDocument(doc.document);
+    }
+
+    /**
+     * Wait until all submitted concepts have been indexed
+     */
+    private void waitIndexed() throws IOException {
+        if (executor != null) {
+            pending.acquireUninterruptibly(maxPending);
+            pending.release(maxPending);
+        }
+        Throwable t = indexError.get();
+        if (t != null) {
+            throw new IOException("index concept error", t);
+        }
+    }
+
+    /**
+     * The count of indexed concepts is saved with the commit, so the index
+     * and the resume position are always consistent.
+     */
+    private void commit() throws IOException {
+        waitIndexed();
+        Map<String, String> commitData = new HashMap<>();
+        commitData.put(COMMIT_KEY_INDEXED, Long.toString(count));
+        writer.setCommitData(commitData);
+        writer.commit();
+    }
+
     @Override
     public void close() throws IOException {
-        writer.close();
+        try {
+            if (commitInterval > 0) {
+                commit();
+            } else {
+                waitIndexed();
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+                try {
+                    executor.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            writer.close();
+        }
+    }
+
+    /**
+     * The reused document of a worker thread
+     */
+    private static class ConceptDocument {
+        final Document document = new Document();
+        final Field contents = new Field("contents", "", CONTENT_FIELD_TYPE);
+        final Field id = new StringField("id", "", Field.Store.YES);
+        final Field outId = new StringField("outId", "", Field.Store.YES);
+        final Field title = new Field("title", "", CONTENT_FIELD_TYPE);
+
+        ConceptDocument() {
+            document.add(contents);
+            document.add(id);
+            document.add(outId);
+            document.add(title);
+        }
     }
 }
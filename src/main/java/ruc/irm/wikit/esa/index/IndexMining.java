@@ -1,8 +1,10 @@
 package ruc.irm.wikit.esa.index;
 
 import com.google.common.primitives.Chars;
+import gnu.trove.list.array.TFloatArrayList;
 import gnu.trove.map.hash.TIntDoubleHashMap;
 import gnu.trove.map.hash.TIntFloatHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.*;
@@ -11,18 +13,23 @@ import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.conf.ConfFactory;
+import ruc.irm.wikit.util.Checkpoint;
 import ruc.irm.wikit.util.HeapSort;
 import ruc.irm.wikit.util.text.analysis.ESAAnalyzer;
 
 import java.io.*;
 import java.text.DecimalFormat;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Reads TF and IDF from the index and writes cosine-normalized TF.IDF values to files.
@@ -46,7 +53,8 @@ public class IndexMining {
     private String tfidfOutputDataFile = null;
 
     private File vectorFileName = null;
-    private File sortedVectorFileName = null;
+    private File vectorTermsFileName = null;
+    private TermVectorSorter sorter = null;
 
     private Analyzer analyzer = null;
     private IndexReader reader = null;
@@ -59,6 +67,12 @@ public class IndexMining {
     private static DecimalFormat decimalFormat = new DecimalFormat("#.#######");
     private float tfidfBoost = 1.5f;
 
+    /** stage names in build checkpoint */
+    public static final String STAGE_IDF = "mining.idf";
+    public static final String STAGE_VECTOR = "mining.vector";
+    public static final String STAGE_SORT = "mining.sort";
+    public static final String STAGE_TFIDF = "mining.tfidf";
+
     private Conf conf = null;
     public IndexMining(Conf conf) {
         this.conf = conf;
@@ -66,9 +80,11 @@ public class IndexMining {
         this.termsIdfOutputTextFile = conf.getWikiTermsIdfFile();
         this.tfidfOutputDataFile = conf.getWikiTfidfFile();
 
-        this.vectorFileName = new File(conf.getEsaModelDir(), "vector.txt");
-        this.sortedVectorFileName = new File(conf.getEsaModelDir(), "vector.sorted.txt");
+        this.vectorFileName = new File(conf.getEsaModelDir(), "vector.bin");
+        this.vectorTermsFileName = new File(conf.getEsaModelDir(), "vector.terms");
         this.vectorFileName.getParentFile().mkdirs();
+        this.sorter = new TermVectorSorter(new File(conf.getEsaModelDir(), "vector.runs"),
+                conf.getInt("esa.mining.sort.chunk.records", 8000000));
         this.tfidfBoost = conf.getFloat("esa.model.title.boost", 1.5f);
     }
 
@@ -89,26 +105,60 @@ public class IndexMining {
     private static final char[] SPECIAL_CHARS = new char[]{'.', '"', '\'',
             ']', '[', '%', '@', '!', '}', '{', '|'} ;
     public void modify() throws IOException {
-        //maintain the term name and index number mapping
-        HashMap<String, Integer> termHash = new HashMap<String, Integer>(500000);
+        modify(Checkpoint.none());
+    }
+
+    /**
+     * Generate idf and tf-idf files, the finished steps recorded in
+     * checkpoint are skipped, and step 3 continues from the last saved
+     * document if it is interrupted. The sorted runs are removed when the
+     * tf-idf file is saved, so the vector and sort stages are only checked
+     * when the tf-idf stage is not done.
+     */
+    public void modify(Checkpoint checkpoint) throws IOException {
+        if (checkpoint.isDone(STAGE_TFIDF)) {
+            return;
+        }
 
-        //maintain the term and global idf mapping
-        HashMap<String, Float> idfMap = new HashMap<String, Float>(500000);
+        //the unsorted vector file is removed after sorting
+        if (!checkpoint.isDone(STAGE_SORT)) {
+            if (!checkpoint.isDone(STAGE_VECTOR)) {
+                //the workers write sorted runs directly
+                generateVectors(checkpoint);
+            } else if (vectorFileName.exists()) {
+                checkpoint.begin(STAGE_SORT);
+                //the unsorted vector file left by the serial version
+                LOG.warn("Step 3: sorting tf-idf records...");
+                sorter.spill(vectorFileName);
+                vectorFileName.delete();
+            }
+            checkpoint.done(STAGE_SORT, sorter.getRunDir(), vectorTermsFileName);
+        }
+
+        //Step 4: save term tf-idf indexes table
+        checkpoint.begin(STAGE_TFIDF);
+        LOG.warn("Step 4: save term tf-idf indexes...");
+        saveTermTfIdfIndexes();
+        checkpoint.done(STAGE_TFIDF, new File(tfidfOutputDataFile));
+        sorter.clearRuns();
+    }
 
-        //maintain the term and tfidf mapping for one document
-        HashMap<String, Float> tfidfMap = new HashMap<String, Float>(5000);
+    private void generateVectors(Checkpoint checkpoint) throws IOException {
+        //term --> term index, the indexes are assigned in the term order
+        TObjectIntHashMap<BytesRef> termIndexes = new TObjectIntHashMap<>(500000, 0.5f, -1);
+        List<String> termList = new ArrayList<>(500000);
+        TFloatArrayList idfList = new TFloatArrayList(500000);
 
         int maxDocId = reader.maxDoc();
         int numDocs = reader.numDocs();
         LOG.debug("maxId=" + maxDocId + ", numDocs=" + numDocs);
 
 
-        //Step 1: get global idf hash map and termHash
+        //Step 1: get global idf and term indexes
         LOG.warn("Step 1: generate global terms idf...");
         Terms globalTerms = MultiFields.getTerms(reader, "contents");
         TermsEnum termsEnum = globalTerms.iterator(null);
         BytesRef text = null;
-        int hashInt = 0;
         while((text = termsEnum.next()) != null) {
             String term = text.utf8ToString();
             //如果term全为特殊符号，则滤掉
@@ -138,123 +188,264 @@ public class IndexMining {
             }
 
             float idf = (float) (Math.log(numDocs / (double) (docFreq)));
-            idfMap.put(term, idf);
-            termHash.put(term, hashInt++);
+            termIndexes.put(BytesRef.deepCopyOf(text), termList.size());
+            termList.add(term);
+            idfList.add(idf);
         }
 
+        String[] terms = termList.toArray(new String[termList.size()]);
+        float[] idfs = idfList.toArray();
+        saveTerms(terms);
+
         //Step 5: save global idf
-        LOG.warn("Step 2: save global terms idf...");
-        saveIDF(idfMap);
-
-        //Step 2: make tf-idf for each document, and save them to file resultVectorFile
-        LOG.warn("Step 3: generate tf-idf for each document...");
-        FileOutputStream fos = new FileOutputStream(vectorFileName);
-        OutputStreamWriter writer = new OutputStreamWriter(fos, "UTF-8");
-        for(int docId=0; docId<maxDocId; docId++) {
-            //@TODO skip deleted documents
-            Document document = reader.document(docId);
-            if(document==null) continue;
-
-            tfidfMap.clear();
-            String conceptId = document.get("id");
+        if (!checkpoint.isDone(STAGE_IDF)) {
+            checkpoint.begin(STAGE_IDF);
+            LOG.warn("Step 2: save global terms idf...");
+            saveIDF(terms, idfs);
+            checkpoint.done(STAGE_IDF, new File(termsIdfOutputTextFile));
+        }
+
+        //Step 2: make tf-idf for each document by workers, each worker
+        //processes one part of doc id space and writes its sorted runs.
+        //the term index numbers are assigned in the same order as last run,
+        //so the saved runs can be reused.
+        checkpoint.begin(STAGE_VECTOR);
+        int parts = (int) checkpoint.getProgress(STAGE_VECTOR + ".parts", 0);
+        if (parts > 0) {
+            LOG.warn("Step 3: continue to generate tf-idf in " + parts + " parts");
+        } else {
+            parts = conf.getInt("esa.mining.threads", Runtime.getRuntime().availableProcessors());
+            parts = Math.max(1, Math.min(parts, Math.max(maxDocId, 1)));
+            LOG.warn("Step 3: generate tf-idf for each document in " + parts + " parts...");
+            sorter.clearRuns();
+            synchronized (checkpoint) {
+                checkpoint.setProgress(STAGE_VECTOR + ".parts", parts);
+                checkpoint.save();
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parts);
+        List<Future<?>> futures = new ArrayList<>();
+        final int totalParts = parts;
+        for (int part = 0; part < parts; part++) {
+            final int p = part;
+            final int from = (int) ((long) maxDocId * part / parts);
+            final int to = (int) ((long) maxDocId * (part + 1) / parts);
+            futures.add(executor.submit(() -> {
+                generatePartVectors(checkpoint, p, totalParts, from, to, termIndexes, idfs);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException("generate tf-idf error", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        checkpoint.done(STAGE_VECTOR, sorter.getRunDir(), vectorTermsFileName);
+    }
+
+    /**
+     * Generate the tf-idf records of documents in [from, to), the records
+     * are sorted and written as runs named by part, the progress is saved
+     * when a run is written.
+     */
+    private void generatePartVectors(Checkpoint checkpoint, int part, int parts,
+                                     int from, int to,
+                                     TObjectIntHashMap<BytesRef> termIndexes,
+                                     float[] idfs) throws IOException {
+        String key = STAGE_VECTOR + ".part" + part;
+        int runCount = (int) checkpoint.getProgress(key + ".runs", 0);
+        int docId = (int) checkpoint.getProgress(key + ".doc", from);
+        String runPrefix = String.format("run-p%03d-", part);
+        for (File run : sorter.listRuns()) {
+            //remove the run written after the last saved progress
+            String name = run.getName();
+            if (name.startsWith(runPrefix) && Integer.parseInt(
+                    name.substring(runPrefix.length(), name.indexOf('.'))) >= runCount) {
+                run.delete();
+            }
+        }
+
+        int checkpointInterval = conf.getInt("esa.build.checkpoint.interval", 10000);
+        //the chunk of external sort is shared by all parts
+        int capacity = Math.max(1 << 16,
+                conf.getInt("esa.mining.sort.chunk.records", 8000000) / parts);
+        RunBuffer buffer = new RunBuffer(capacity);
+
+        //the term indexes and tf-idf of current document, the terms of term
+        //vector are in term order, so the indexes are increasing
+        int[] docTerms = new int[1024];
+        float[] docScores = new float[1024];
+
+        Set<String> fieldsToLoad = new HashSet<>(Arrays.asList("id", "title"));
+        List<AtomicReaderContext> leaves = reader.leaves();
+        int leafIndex = (docId < to) ? ReaderUtil.subIndex(docId, leaves) : 0;
+        TermsEnum termsEnum = null;
+        BytesRef text = null;
+        int docsInRun = 0;
+        for (; docId < to; docId++) {
+            AtomicReaderContext leaf = leaves.get(leafIndex);
+            while (docId >= leaf.docBase + leaf.reader().maxDoc()) {
+                leaf = leaves.get(++leafIndex);
+            }
+            AtomicReader leafReader = leaf.reader();
+            int localId = docId - leaf.docBase;
+            Bits liveDocs = leafReader.getLiveDocs();
+            if (liveDocs != null && !liveDocs.get(localId)) continue;
+
+            Document document = leafReader.document(localId, fieldsToLoad);
+            int conceptId = Integer.parseInt(document.get("id"));
             double inlinkBoost = 1.0;//inlinkMap.get(wikiId);
-            Terms contentTerms = reader.getTermVector(docId, "contents");
+            Terms contentTerms = leafReader.getTermVector(localId, "contents");
             if (contentTerms == null) {
                 System.out.println("skip id==>" + conceptId + ", title==>" + document.get("title"));
                 continue;
             }
-            termsEnum = contentTerms.iterator(null);
+            termsEnum = contentTerms.iterator(termsEnum);
             double sum = 0.0;
-            //
+            int size = 0;
             while ((text=termsEnum.next()) != null) {
-                String term = text.utf8ToString();
-                long termFreq = termsEnum.totalTermFreq();
-                if(!idfMap.containsKey(term)) continue;
+                int term = termIndexes.get(text);
+                if (term < 0) continue;
 
-                float idf = idfMap.get(term);
+                long termFreq = termsEnum.totalTermFreq();
                 float tf = (float) (1.0 + Math.log(termFreq));
-                float tfidf = (float) (tf * idf);
-                tfidfMap.put(term, tfidf);
+                float tfidf = (float) (tf * idfs[term]);
+                if (size == docTerms.length) {
+                    docTerms = Arrays.copyOf(docTerms, size * 2);
+                    docScores = Arrays.copyOf(docScores, size * 2);
+                }
+                docTerms[size] = term;
+                docScores[size] = tfidf;
+                size++;
                 sum += tfidf * tfidf;
-
-                //System.out.println("id==>" + wikiId + ", title==>" + document.get("title") + ", term==>" + text.utf8ToString() + ", termFreq==>" + termFreq);
             }
 
             //boost title field terms
             if(tfidfBoost>1.1) {
                 //boost tf-idf
-                Terms titleTerms = reader.getTermVector(docId, "title");
+                Terms titleTerms = leafReader.getTermVector(localId, "title");
                 if (titleTerms != null) {
-                    TermsEnum titleTermsEnum = titleTerms.iterator(null);
-                    while ((text = titleTermsEnum.next()) != null) {
-                        String term = text.utf8ToString();
-                        if (!idfMap.containsKey(term)) continue;
-
-                        float tfidf = tfidfMap.get(term);
-                        tfidfMap.put(term, tfidf * tfidfBoost);
+                    termsEnum = titleTerms.iterator(termsEnum);
+                    while ((text = termsEnum.next()) != null) {
+                        int term = termIndexes.get(text);
+                        if (term < 0) continue;
+                        int pos = Arrays.binarySearch(docTerms, 0, size, term);
+                        if (pos < 0) continue;
+
+                        float tfidf = docScores[pos];
+                        docScores[pos] = tfidf * tfidfBoost;
                         sum = sum + tfidf * (tfidfBoost - 1);
                     }
                 }
             }
 
             sum = Math.sqrt(sum);
-            //re-scan document terms to normalize the value, then save to the output writer
-            contentTerms = reader.getTermVector(docId, "contents");
-            termsEnum = contentTerms.iterator(null);
-            while ((text=termsEnum.next()) != null) {
-                String term = text.utf8ToString();
-                if(!idfMap.containsKey(term)) continue;
+            if (buffer.size + size > buffer.capacity() && buffer.size > 0) {
+                //save current run, the document is added to next run
+                saveRun(checkpoint, key, runPrefix, runCount++, buffer, docId);
+                docsInRun = 0;
+            }
+            buffer.ensureCapacity(size);
+            for (int i = 0; i < size; i++) {
+                //normalize the value and add to the run
+                buffer.add(docTerms[i], conceptId, (float) (docScores[i] * inlinkBoost / sum));
+            }
 
-                float tfidf = (float)(tfidfMap.get(term)* inlinkBoost / sum );
-                writer.write(termHash.get(term) + "\t" + term + "\t" + conceptId + "\t" + decimalFormat.format(tfidf) + "\n");
+            if (++docsInRun >= checkpointInterval) {
+                saveRun(checkpoint, key, runPrefix, runCount++, buffer, docId + 1);
+                docsInRun = 0;
             }
         }
+        if (buffer.size > 0) {
+            saveRun(checkpoint, key, runPrefix, runCount++, buffer, to);
+        }
+    }
 
-        writer.close();
-        fos.close();
+    /**
+     * Write the records in buffer as the next run of the part, and save the
+     * progress, i.e., the next document and the count of runs, together.
+     */
+    private void saveRun(Checkpoint checkpoint, String key, String runPrefix,
+                         int runIndex, RunBuffer buffer, int nextDocId)
+            throws IOException {
+        sorter.writeRun(String.format("%s%05d.bin", runPrefix, runIndex),
+                buffer.terms, buffer.docs, buffer.scores, buffer.size);
+        buffer.size = 0;
+        synchronized (checkpoint) {
+            checkpoint.setProgress(key + ".doc", nextDocId);
+            checkpoint.setProgress(key + ".runs", runIndex + 1);
+            checkpoint.save();
+        }
+    }
 
-        //Step 3: sort vector file into sorted vector file and remove original vector file
-        LOG.warn("Step 3: sorting tf-idf text file...");
-        sort();
+    /**
+     * The &lt;term index, doc, tf-idf&gt; records of a run in memory
+     */
+    private static class RunBuffer {
+        int[] terms;
+        int[] docs;
+        float[] scores;
+        int size = 0;
+
+        RunBuffer(int capacity) {
+            this.terms = new int[capacity];
+            this.docs = new int[capacity];
+            this.scores = new float[capacity];
+        }
 
-        //Step 4: save term tf-idf indexes table
-        LOG.warn("Step 4: save term tf-idf indexes...");
-        saveTermTfIdfIndexes();
+        int capacity() {
+            return terms.length;
+        }
+
+        /** make sure n more records can be added, for very long document */
+        void ensureCapacity(int n) {
+            if (size + n > terms.length) {
+                int capacity = size + n;
+                terms = Arrays.copyOf(terms, capacity);
+                docs = Arrays.copyOf(docs, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+        }
+
+        void add(int term, int doc, float score) {
+            terms[size] = term;
+            docs[size] = doc;
+            scores[size] = score;
+            size++;
+        }
     }
 
-    private void sort() throws IOException {
-        // sort tfidf entries according to terms
-//        String command = String.format("sort -T /home/xiatian/tmp -S 2000M -n -t\\\t  -k1 < %s > %s",
-//                vectorFileName.getAbsolutePath(),
-//                sortedVectorFileName.getAbsolutePath());
-        String command = String.format("sort -T ~/tmp -S 2000M -n -t\\\t  -k1 < %s > %s",
-                vectorFileName.getAbsolutePath(),
-                sortedVectorFileName.getAbsolutePath());
-        new File("~/tmp").mkdirs();
-
-        String[] cmd = {"/bin/sh", "-c", command};
-        Process p1 = Runtime.getRuntime().exec(cmd);
-        try {
-            int exitV = p1.waitFor();
-            if (exitV != 0) {
-                System.exit(1);
+    /**
+     * Save terms in the order of term index, which are used to restore the
+     * term of sorted records.
+     */
+    private void saveTerms(String[] terms) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(vectorTermsFileName)))) {
+            out.writeInt(terms.length);
+            for (String term : terms) {
+                out.writeUTF(term);
             }
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            System.exit(1);
         }
+    }
 
-        // delete unsorted doc-score file
-        command = String.format("rm %s", vectorFileName);
-        p1 = Runtime.getRuntime().exec(command);
-        try {
-            int exitV = p1.waitFor();
-            if (exitV != 0) {
-                System.exit(1);
+    private String[] loadTerms() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(vectorTermsFileName)))) {
+            String[] terms = new String[in.readInt()];
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = in.readUTF();
             }
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            System.exit(1);
+            return terms;
         }
     }
 
@@ -273,130 +464,125 @@ public class IndexMining {
      * @throws IOException
      */
     private void saveTermTfIdfIndexes() throws IOException {
-        FileInputStream fis = new FileInputStream(sortedVectorFileName);
-        InputStreamReader isr = new InputStreamReader(fis, "UTF-8");
-        BufferedReader reader = new BufferedReader(isr);
+        final String[] terms = loadTerms();
 
         FileOutputStream tfidfFOS = new FileOutputStream(tfidfOutputDataFile);
-        DataOutputStream tfidfDOS = new DataOutputStream(tfidfFOS);
+        final DataOutputStream tfidfDOS = new DataOutputStream(
+                new BufferedOutputStream(tfidfFOS, 1 << 16));
 
-        String prevTerm = null;
-        int doc;
-        float score;
-        TIntFloatHashMap hmap = new TIntFloatHashMap(100);
-
-        float first = 0, last = 0, highest = 0;
-        float[] window = new float[WINDOW_SIZE];
-
-        String line = null;
-        while ((line = reader.readLine()) != null) {
-            final String[] parts = line.split("\t");
-            String term = parts[1];
-
-            // prune and write the vector
-            //处理之前的term的<doc, score>向量
-            if (prevTerm != null && !prevTerm.equals(term)) {
-                int[] arrDocs = hmap.keys();
-                float[] arrScores = hmap.values();
-
-                HeapSort.heapSort(arrScores, arrDocs);
-
-                //termBAOS中保存了term的排序后的<doc,score>对。score为tf-idf值
-                // 为了降低数据维度，我们对每个term对应的向量v={<doc_1, score_1>, <doc_2,
-                // score_2>...}（score_i>=socre_{i+1}）进行简化，首先v至少由m=WINDOW_SIZE
-                // 个文档组成，如果超过该数值，则判断窗口内文档得分的差值决定是否继续把后续的文档加入到向量中：
-                //如果窗口第一个文档的得分和最后一个文档的的得分差值小于 (score_1×threshold)
-                // ，说明后面的文档得分变化不大，从向量中移除。
-                int pairCount = 0; //向量中保存的<doc, score>数量
-                int pairCountInWindow = 0;
-                highest = first = last = 0;
-
-                //此处用ByteArrayOutputStream和DataOutputStream，主要是为了调用不同的方法
-                //DataOutputStream中写入的内容，通过ByteArrayOutputStream也可以获得,
-                //我们用其toByteArray()方法获得写入的内容
-                ByteArrayOutputStream termBAOS = new ByteArrayOutputStream(50000);
-                DataOutputStream termDOS = new DataOutputStream(termBAOS);
-                for (int j = arrDocs.length - 1; j >= 0; j--) {
-                    score = arrScores[j];
-
-                    // sliding window
-                    window[pairCountInWindow] = score;
-
-                    if (pairCount == 0) {
-                        highest = score;
-                        first = score;
-                    }
+        final TIntFloatHashMap hmap = new TIntFloatHashMap(100);
+        final float[] window = new float[WINDOW_SIZE];
+        final int[] prevTerm = new int[]{-1};
 
-                    if (pairCount < WINDOW_SIZE) {
-                        termDOS.writeInt(arrDocs[j]);
-                        termDOS.writeFloat(score);
-                    } else if (highest * WINDOW_THRES < (first - last)) {
-                        termDOS.writeInt(arrDocs[j]);
-                        termDOS.writeFloat(score);
-
-                        if (pairCountInWindow < WINDOW_SIZE - 1) {
-                            first = window[pairCountInWindow + 1];
-                        } else {
-                            first = window[0];
-                        }
-                    } else {
-                        // truncate
-                        break;
-                    }
+        //the records of the same term are adjacent in the merged runs
+        sorter.merge(sorter.listRuns(), (term, doc, score) -> {
+            if (prevTerm[0] >= 0 && prevTerm[0] != term) {
+                saveTermVector(tfidfDOS, terms[prevTerm[0]], hmap, window);
+                hmap.clear();
+            }
+            hmap.put(doc, score);
+            prevTerm[0] = term;
+        });
 
-                    last = score;
+        if (prevTerm[0] >= 0) {
+            saveTermVector(tfidfDOS, terms[prevTerm[0]], hmap, window);
+        }
 
-                    pairCount++;
-                    pairCountInWindow++;
+        tfidfDOS.writeInt(-1); //write -1 as end indicator
+        tfidfDOS.close();
+        tfidfFOS.close();
+    }
 
-                    pairCountInWindow = pairCountInWindow % WINDOW_SIZE;
+    /**
+     * prune the &lt;doc, score&gt; vector of term and write it
+     */
+    private void saveTermVector(DataOutputStream tfidfDOS, String term,
+                                TIntFloatHashMap hmap, float[] window)
+            throws IOException {
+        float score;
+        float first, last, highest;
+
+        int[] arrDocs = hmap.keys();
+        float[] arrScores = hmap.values();
+
+        HeapSort.heapSort(arrScores, arrDocs);
+
+        //termBAOS中保存了term的排序后的<doc,score>对。score为tf-idf值
+        // 为了降低数据维度，我们对每个term对应的向量v={<doc_1, score_1>, <doc_2,
+        // score_2>...}（score_i>=socre_{i+1}）进行简化，首先v至少由m=WINDOW_SIZE
+        // 个文档组成，如果超过该数值，则判断窗口内文档得分的差值决定是否继续把后续的文档加入到向量中：
+        //如果窗口第一个文档的得分和最后一个文档的的得分差值小于 (score_1×threshold)
+        // ，说明后面的文档得分变化不大，从向量中移除。
+        int pairCount = 0; //向量中保存的<doc, score>数量
+        int pairCountInWindow = 0;
+        highest = first = last = 0;
+
+        //此处用ByteArrayOutputStream和DataOutputStream，主要是为了调用不同的方法
+        //DataOutputStream中写入的内容，通过ByteArrayOutputStream也可以获得,
+        //我们用其toByteArray()方法获得写入的内容
+        ByteArrayOutputStream termBAOS = new ByteArrayOutputStream(50000);
+        DataOutputStream termDOS = new DataOutputStream(termBAOS);
+        for (int j = arrDocs.length - 1; j >= 0; j--) {
+            score = arrScores[j];
+
+            // sliding window
+            window[pairCountInWindow] = score;
+
+            if (pairCount == 0) {
+                highest = score;
+                first = score;
+            }
 
+            if (pairCount < WINDOW_SIZE) {
+                termDOS.writeInt(arrDocs[j]);
+                termDOS.writeFloat(score);
+            } else if (highest * WINDOW_THRES < (first - last)) {
+                termDOS.writeInt(arrDocs[j]);
+                termDOS.writeFloat(score);
+
+                if (pairCountInWindow < WINDOW_SIZE - 1) {
+                    first = window[pairCountInWindow + 1];
+                } else {
+                    first = window[0];
                 }
-
-                ByteArrayOutputStream vectorBAOS = new ByteArrayOutputStream();
-                DataOutputStream vectorDOS = new DataOutputStream(vectorBAOS);
-                vectorDOS.writeInt(pairCount);
-                vectorDOS.flush();
-                vectorBAOS.write(termBAOS.toByteArray());
-                vectorBAOS.flush();
-                vectorDOS.close();
-
-                //vector保存了term所对应的由文档-得分构成的向量的长度和具体值
-                byte[] vector = vectorBAOS.toByteArray();
-                //把term和对应的vector写入到文件中
-                saveTfIdfIndexToFile(tfidfDOS, prevTerm, vector);
-                tfidfDOS.flush();
-
-                termDOS.close();
-                termBAOS.close();
-
-                hmap.clear();
+            } else {
+                // truncate
+                break;
             }
 
-            doc = Integer.valueOf(parts[2]);
-            score = Float.valueOf(parts[3]);
+            last = score;
 
-            hmap.put(doc, score);
+            pairCount++;
+            pairCountInWindow++;
 
-            prevTerm = term;
-        }
+            pairCountInWindow = pairCountInWindow % WINDOW_SIZE;
 
-        reader.close();
-        isr.close();
-        fis.close();
+        }
 
-        tfidfDOS.writeInt(-1); //write -1 as end indicator
-        tfidfDOS.close();
-        tfidfFOS.close();
+        ByteArrayOutputStream vectorBAOS = new ByteArrayOutputStream();
+        DataOutputStream vectorDOS = new DataOutputStream(vectorBAOS);
+        vectorDOS.writeInt(pairCount);
+        vectorDOS.flush();
+        vectorBAOS.write(termBAOS.toByteArray());
+        vectorBAOS.flush();
+        vectorDOS.close();
+
+        //vector保存了term所对应的由文档-得分构成的向量的长度和具体值
+        byte[] vector = vectorBAOS.toByteArray();
+        //把term和对应的vector写入到文件中
+        saveTfIdfIndexToFile(tfidfDOS, term, vector);
+
+        termDOS.close();
+        termBAOS.close();
     }
 
 
-    private void saveIDF(Map<String, Float> idfMap) throws IOException {
+    private void saveIDF(String[] terms, float[] idfs) throws IOException {
         //record term IDFs
         FileOutputStream tos = new FileOutputStream(termsIdfOutputTextFile);
         OutputStreamWriter writer = new OutputStreamWriter(tos, "UTF-8");
-        for (Map.Entry<String, Float> entry : idfMap.entrySet()) {
-            writer.write(entry.getKey() + "\t" + decimalFormat.format(entry.getValue()) + "\n");
+        for (int i = 0; i < terms.length; i++) {
+            writer.write(terms[i] + "\t" + decimalFormat.format(idfs[i]) + "\n");
         }
         writer.close();
         tos.close();
@@ -0,0 +1,203 @@
+package ruc.irm.wikit.esa.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * External sort for the &lt;term index, doc, tf-idf&gt; records generated by
+ * IndexMining, each record is a fixed width binary triple (int, int, float).
+ * <p>
+ * The records are read in chunks of bounded size, each chunk is sorted in
+ * memory by term index (in parallel by Arrays.parallelSort) and spilled to
+ * a run file, then the runs are k-way merged and passed to a
+ * {@link RecordHandler}. The runs can also be written directly by
+ * {@link #writeRun}, e.g., by the workers of IndexMining. The sort is
+ * stable, i.e., the records of the same term keep their original order,
+ * given the runs are named in the order of records.
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 5:20 PM
+ */
+class TermVectorSorter {
+    private static final Logger LOG = LoggerFactory.getLogger(TermVectorSorter.class);
+
+    public static final int RECORD_SIZE = 12;
+
+    private File runDir = null;
+    private int chunkRecords = 0;
+
+    public interface RecordHandler {
+        void handle(int term, int doc, float score) throws IOException;
+    }
+
+    /**
+     * @param runDir       the directory to store sorted runs
+     * @param chunkRecords the maximum records sorted in memory at one time,
+     *                     each record takes 16 bytes of heap when sorting
+     */
+    public TermVectorSorter(File runDir, int chunkRecords) {
+        this.runDir = runDir;
+        this.chunkRecords = chunkRecords;
+    }
+
+    public File getRunDir() {
+        return runDir;
+    }
+
+    /**
+     * Sort the records of vector file into runs, the previous runs are
+     * removed.
+     */
+    public List<File> spill(File vectorFile) throws IOException {
+        clearRuns();
+        runDir.mkdirs();
+
+        long totalRecords = vectorFile.length() / RECORD_SIZE;
+        int capacity = (int) Math.min(chunkRecords, Math.max(totalRecords, 1));
+        int[] terms = new int[capacity];
+        int[] docs = new int[capacity];
+        float[] scores = new float[capacity];
+
+        List<File> runs = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(vectorFile), 1 << 20))) {
+            long remaining = totalRecords;
+            while (remaining > 0) {
+                int size = (int) Math.min(capacity, remaining);
+                for (int i = 0; i < size; i++) {
+                    terms[i] = in.readInt();
+                    docs[i] = in.readInt();
+                    scores[i] = in.readFloat();
+                }
+                remaining -= size;
+
+                runs.add(writeRun(String.format("run-%05d.bin", runs.size()),
+                        terms, docs, scores, size));
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Sort the first size records by term index and write them to a run
+     * file with the given name, the name should start with "run-".
+     */
+    public File writeRun(String name, int[] terms, int[] docs, float[] scores,
+                         int size) throws IOException {
+        runDir.mkdirs();
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            //term index in high bits, the position in low bits to keep the order
+            keys[i] = ((long) terms[i] << 32) | i;
+        }
+        Arrays.parallelSort(keys);
+
+        File run = new File(runDir, name);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(run), 1 << 20))) {
+            for (int i = 0; i < size; i++) {
+                int pos = (int) keys[i];
+                out.writeInt((int) (keys[i] >>> 32));
+                out.writeInt(docs[pos]);
+                out.writeFloat(scores[pos]);
+            }
+        }
+        LOG.info("spill run {} with {} records", run.getName(), size);
+        return run;
+    }
+
+    /**
+     * List the runs spilled before, in the order of spilling
+     */
+    public List<File> listRuns() {
+        File[] files = runDir.listFiles((dir, name) -> name.startsWith("run-"));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    public void clearRuns() {
+        for (File run : listRuns()) {
+            run.delete();
+        }
+    }
+
+    /**
+     * Merge the sorted runs, and pass the records to handler in the order of
+     * term index.
+     */
+    public void merge(List<File> runs, RecordHandler handler) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(runs.size(), 1));
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                RunReader reader = new RunReader(runs.get(i), i);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                handler.handle(reader.term, reader.doc, reader.score);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+        }
+    }
+
+    private static class RunReader implements Comparable<RunReader>, Closeable {
+        private final DataInputStream in;
+        private final int runIndex;
+        private long remaining;
+
+        int term;
+        int doc;
+        float score;
+
+        RunReader(File run, int runIndex) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(run), 1 << 16));
+            this.runIndex = runIndex;
+            this.remaining = run.length() / RECORD_SIZE;
+        }
+
+        boolean next() throws IOException {
+            if (remaining == 0) return false;
+
+            term = in.readInt();
+            doc = in.readInt();
+            score = in.readFloat();
+            remaining--;
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunReader o) {
+            int c = Integer.compare(term, o.term);
+            return (c != 0) ? c : Integer.compare(runIndex, o.runIndex);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -6,7 +6,6 @@ import org.apache.commons.lang3.tuple.Pair;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.exception.WikitException;
 import ruc.irm.wikit.espm.graph.CategoryTreeGraph;
-import ruc.irm.wikit.espm.graph.CategoryTreeGraphRedisImpl;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -26,22 +25,27 @@ public class EspmRandomWalk {
 
     public EspmRandomWalk(Conf conf) throws WikitException {
         this.conf = conf;
-        this.categoryTreeCache = new CategoryTreeGraphRedisImpl(conf);
+        this.categoryTreeCache = CategoryTreeGraph.create(conf);
     }
 
     public double calculateRandomWalkScore(List<Pair<String,Double>> pathListOne, List<Pair<String,Double>> pathListTwo) {
+        //each path is converted to category ids only once
+        List<IdPath> idPathsTwo = new ArrayList<>(pathListTwo.size());
+        for (Pair<String, Double> p : pathListTwo) {
+            idPathsTwo.add(toIdPath(p.getLeft()));
+        }
+
         double sum = 0.0;
         for (int i = 0; i < pathListOne.size(); i++) {
-            String path1 = pathListOne.get(i).getLeft();
+            IdPath path1 = toIdPath(pathListOne.get(i).getLeft());
             double weight1 = pathListOne.get(i).getRight();
 
             double maxScore = 0;
             double maxWeight2 = 0;
             for (int j = 0; j < pathListTwo.size(); j++) {
-                String path2 = pathListTwo.get(j).getLeft();
                 double score2 = pathListTwo.get(j).getRight();
 
-                double value = calculateRandomWalkScore(StringUtils.split(path1, "/", true), 0, StringUtils.split(path2, "/", true), 0);
+                double value = calculateRandomWalkScore(path1, idPathsTwo.get(j));
                 if (maxScore < value) {
                     maxScore = value;
                     maxWeight2 = score2;
@@ -84,20 +88,62 @@ public class EspmRandomWalk {
     }
      */
 
-    private double calculateRandomWalkScore(List<String> path1, int position1, List<String> path2, int position2) {
-        double result = 0.0;
+    /**
+     * A path of categories, the category names are kept to compare the
+     * categories which do not exist in the graph (id is -1).
+     */
+    private static class IdPath {
+        String[] names;
+        int[] ids;
+        int[] childCounts;
+    }
 
-        if (position1 >= path1.size() || position2 >= path2.size()) {
-            return 0;
+    private IdPath toIdPath(String path) {
+        List<String> names = StringUtils.split(path, "/", true);
+        IdPath p = new IdPath();
+        p.names = names.toArray(new String[names.size()]);
+        p.ids = new int[p.names.length];
+        p.childCounts = new int[p.names.length];
+        for (int i = 0; i < p.names.length; i++) {
+            p.ids[i] = categoryTreeCache.getIdByName(p.names[i], -1);
+            p.childCounts[i] = categoryTreeCache.getChildCount(p.ids[i]);
         }
+        return p;
+    }
 
-        String c1 = path1.get(position1);
-        String c2 = path2.get(position2);
-
-        double part1 = getTransferProbability(c1, path2, position2);
-        double part2 = getTransferProbability(c1, c2) * calculateRandomWalkScore(path1, position1 + 1, path2, position2 + 1);
+    /**
+     * score(i, j) = alpha * P(c1[i] -> path2[j..]) +
+     *              (1 - alpha) * P(c1[i] -> c2[j]) * score(i + 1, j + 1),
+     * which is calculated backward along the diagonal from the last pair.
+     */
+    private double calculateRandomWalkScore(IdPath path1, IdPath path2) {
+        int steps = Math.min(path1.ids.length, path2.ids.length);
+        double score = 0.0;
+        for (int k = steps - 1; k >= 0; k--) {
+            double p = 1.0 / (path1.childCounts[k] + 1);
+            double part1 = 0.0;
+            for (int t = k; t < path2.ids.length; t++) {
+                if (reachable(path1, k, path2, t)) {
+                    part1 += p;
+                }
+            }
+            double part2 = reachable(path1, k, path2, k) ? p * score : 0.0;
+            score = alpha * part1 + (1 - alpha) * part2;
+        }
+        return score;
+    }
 
-        return alpha*part1 + (1-alpha)*part2;
+    /**
+     * Whether the walk can go from path1[i] to path2[j], i.e., they are the
+     * same category or path2[j] is a child of path1[i]
+     */
+    private boolean reachable(IdPath path1, int i, IdPath path2, int j) {
+        int from = path1.ids[i];
+        int to = path2.ids[j];
+        if (from < 0 || to < 0) {
+            return path1.names[i].equalsIgnoreCase(path2.names[j]);
+        }
+        return from == to || categoryTreeCache.isChild(from, to);
     }
 
     public double getTransferProbability(String fromCategory, List<String> toPath, int toPathStartPosition) {
@@ -5,6 +5,7 @@ import com.google.common.io.Files;
 import org.apache.commons.cli.*;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.LoggerFactory;
 import ruc.irm.wikit.cache.Cache;
 import ruc.irm.wikit.cache.CategoryCache;
 import ruc.irm.wikit.cache.NameIdMapping;
@@ -74,12 +75,28 @@ public interface CategoryTreeGraph extends NameIdMapping, Cache {
 
     Set<Integer> getCategoryIdsByConceptId(int conceptId);
 
+    /**
+     * Same as {@link #getCategoryIdsByConceptId(int)}, but return the ids
+     * as a sorted primitive array to avoid boxing
+     */
+    int[] getCategoryIdArrayByConceptId(int conceptId);
+
     Set<Integer> getParentIds(int catId);
 
+    /**
+     * Get parent ids as a sorted primitive array, used in hot loops
+     */
+    int[] getParentIdArray(int catId);
+
     Set<String> getParentNames(String catName);
 
     Set<Integer> getChildIds(int catId);
 
+    /**
+     * Get child ids as a sorted primitive array, used in hot loops
+     */
+    int[] getChildIdArray(int catId);
+
     /**
      * Get all children by given catName
      */
@@ -220,6 +237,23 @@ public interface CategoryTreeGraph extends NameIdMapping, Cache {
     }
 
 
+    /**
+     * Create the category tree graph for ESPM mining, if "espm.tree.graph"
+     * is "snapshot" and the snapshot file exists, the shared in-memory
+     * snapshot is used, otherwise, use Redis graph with near cache.
+     */
+    static CategoryTreeGraph create(Conf conf) throws WikitException {
+        if ("snapshot".equalsIgnoreCase(conf.get("espm.tree.graph", "redis"))) {
+            try {
+                return CategoryTreeGraphCsrImpl.getInstance(conf);
+            } catch (IOException e) {
+                LoggerFactory.getLogger(CategoryTreeGraph.class).error(
+                        "load category tree snapshot error, use redis instead.", e);
+            }
+        }
+        return CategoryTreeGraphNearImpl.wrap(conf, new CategoryTreeGraphRedisImpl(conf));
+    }
+
     public static void main(String[] args) throws ParseException, WikitException, IOException {
         String helpMsg = "usage: CategoryTreeGraph -c config.xml";
 
@@ -232,6 +266,8 @@ public interface CategoryTreeGraph extends NameIdMapping, Cache {
                 "category node."));
         options.addOption(new Option("test", false, "loop test on terminal"));
         options.addOption(new Option("stat", false, "show statistics info"));
+        options.addOption(new Option("snapshot", false, "export the built " +
+                "tree graph to snapshot file for in-memory access"));
 
         options.addOption(new Option("exp", false, "Output all categories if their depth is less or equal 3."));
 
@@ -247,6 +283,11 @@ public interface CategoryTreeGraph extends NameIdMapping, Cache {
 
         if (commandLine.hasOption("build")) {
             treeGraph.build();
+        } else if (commandLine.hasOption("snapshot")) {
+            File f = new File(conf.get("espm.tree.snapshot.file"));
+            CategoryTreeGraphCsrImpl.export(treeGraph,
+                    treeGraph.getIdByName(conf.getWikiRootCategoryName()), f);
+            System.out.println("Export tree graph snapshot to " + f.getAbsolutePath());
         } else if (commandLine.hasOption("stat")) {
             Set<Integer> ids = treeGraph.listIds();
             System.out.println("node count:\t" + ids.size());
@@ -0,0 +1,638 @@
+package ruc.irm.wikit.espm.graph;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ruc.irm.wikit.cache.CategoryCache;
+import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.common.exception.MissedException;
+import ruc.irm.wikit.common.exception.WikitException;
+import ruc.irm.wikit.esa.concept.ConceptCache;
+import ruc.irm.wikit.model.Category;
+import ruc.irm.wikit.util.ProgressCounter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable in-memory category tree graph, loaded from a snapshot file
+ * which is exported from the Redis graph after it has been built.
+ * <p>
+ * Each relation, i.e., category to parents, category to children and
+ * category to concepts, is kept in CSR (compressed sparse row) form: an
+ * offset array indexed by the node index, and an edge array holding the
+ * sorted ids of all nodes one after another. The node index is the
+ * position of the category id in the sorted id array. The concept to
+ * categories relation is inverted from the category to concepts relation
+ * at loading time.
+ * </p>
+ * <p>
+ * The snapshot file layout (big-endian):
+ * <pre>
+ *   magic, version, rootId, nodeCount
+ *   ids[nodeCount], depths[nodeCount], conceptCounts[nodeCount],
+ *   recursiveConceptCounts[nodeCount]
+ *   parentOffsets[nodeCount+1], parentIds[...]
+ *   childOffsets[nodeCount+1], childIds[...]
+ *   conceptOffsets[nodeCount+1], conceptIds[...]
+ *   names: (byte length, utf-8 bytes) * nodeCount
+ * </pre>
+ * </p>
+ * <p>
+ * The snapshot is loaded once and shared in the process, the write
+ * methods are delegated to Redis and are not visible until the snapshot is
+ * exported and loaded again.
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 10:10 PM
+ */
+public class CategoryTreeGraphCsrImpl implements CategoryTreeGraph {
+    private static final Logger LOG = LoggerFactory.getLogger(CategoryTreeGraphCsrImpl.class);
+
+    private static final int MAGIC = 0x57435452;
+    private static final int VERSION = 1;
+
+    private static final Map<String, CategoryTreeGraphCsrImpl> SNAPSHOTS = new ConcurrentHashMap<>();
+
+    private Conf conf = null;
+    private int rootId = -1;
+
+    /** sorted category ids, the position of id is its node index */
+    private int[] ids = null;
+    private String[] names = null;
+    private int[] depths = null;
+    private int[] conceptCounts = null;
+    private int[] recursiveConceptCounts = null;
+
+    private int[] parentOffsets = null;
+    private int[] parentIds = null;
+    private int[] childOffsets = null;
+    private int[] childIds = null;
+    private int[] conceptOffsets = null;
+    private int[] conceptIds = null;
+
+    /** concept id --> index in conceptCategoryOffsets */
+    private TIntIntHashMap conceptIndex = null;
+    private int[] conceptCategoryOffsets = null;
+    private int[] conceptCategoryIds = null;
+
+    private TIntIntHashMap id2index = null;
+    private TObjectIntHashMap<String> name2id = null;
+
+    private Set<Integer> levelOneIds = null;
+
+    private volatile CategoryTreeGraphRedisImpl redisGraph = null;
+
+    public CategoryTreeGraphCsrImpl(Conf conf, File snapshotFile) throws IOException {
+        this.conf = conf;
+        LOG.info("load category tree snapshot from {}", snapshotFile);
+        load(snapshotFile);
+        LOG.info("{} categories, {} edges, {} concept relations", ids.length,
+                childIds.length, conceptIds.length);
+    }
+
+    /**
+     * Get the shared snapshot graph of the file configured by
+     * "espm.tree.snapshot.file", the file is loaded at the first time.
+     */
+    public static CategoryTreeGraphCsrImpl getInstance(Conf conf) throws IOException {
+        File f = new File(conf.get("espm.tree.snapshot.file"));
+        String key = f.getCanonicalPath();
+        CategoryTreeGraphCsrImpl graph = SNAPSHOTS.get(key);
+        if (graph == null) {
+            synchronized (SNAPSHOTS) {
+                graph = SNAPSHOTS.get(key);
+                if (graph == null) {
+                    graph = new CategoryTreeGraphCsrImpl(conf, f);
+                    SNAPSHOTS.put(key, graph);
+                }
+            }
+        }
+        return graph;
+    }
+
+    private void load(File snapshotFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "r")) {
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a category tree snapshot: " + snapshotFile);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version " + version);
+            }
+            rootId = buffer.getInt();
+            int n = buffer.getInt();
+
+            ids = readInts(buffer, n);
+            depths = readInts(buffer, n);
+            conceptCounts = readInts(buffer, n);
+            recursiveConceptCounts = readInts(buffer, n);
+            parentOffsets = readInts(buffer, n + 1);
+            parentIds = readInts(buffer, parentOffsets[n]);
+            childOffsets = readInts(buffer, n + 1);
+            childIds = readInts(buffer, childOffsets[n]);
+            conceptOffsets = readInts(buffer, n + 1);
+            conceptIds = readInts(buffer, conceptOffsets[n]);
+
+            names = new String[n];
+            id2index = new TIntIntHashMap(n * 2, 0.5f, -1, -1);
+            name2id = new TObjectIntHashMap<>(n * 2, 0.5f, Integer.MIN_VALUE);
+            for (int i = 0; i < n; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                names[i] = new String(bytes, ENCODING);
+                id2index.put(ids[i], i);
+                name2id.putIfAbsent(names[i].toLowerCase(), ids[i]);
+            }
+        }
+
+        invertConceptRelation();
+
+        Set<Integer> levelOne = new LinkedHashSet<>();
+        for (int id : getChildIdArray(rootId)) {
+            levelOne.add(id);
+        }
+        levelOneIds = Collections.unmodifiableSet(levelOne);
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] array = new int[count];
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.get(array);
+        buffer.position(buffer.position() + count * 4);
+        return array;
+    }
+
+    /**
+     * Build concept --> categories relation by counting sort over the
+     * category --> concepts relation.
+     */
+    private void invertConceptRelation() {
+        conceptIndex = new TIntIntHashMap(conceptIds.length, 0.5f, -1, -1);
+        int[] counts = new int[16];
+        for (int cid : conceptIds) {
+            int index = conceptIndex.get(cid);
+            if (index < 0) {
+                index = conceptIndex.size();
+                conceptIndex.put(cid, index);
+                if (index >= counts.length) {
+                    counts = Arrays.copyOf(counts, counts.length * 2);
+                }
+            }
+            counts[index]++;
+        }
+
+        int conceptCount = conceptIndex.size();
+        conceptCategoryOffsets = new int[conceptCount + 1];
+        for (int i = 0; i < conceptCount; i++) {
+            conceptCategoryOffsets[i + 1] = conceptCategoryOffsets[i] + counts[i];
+        }
+
+        //categories are visited in ascending order, so the result is sorted
+        int[] next = Arrays.copyOf(conceptCategoryOffsets, conceptCount);
+        conceptCategoryIds = new int[conceptIds.length];
+        for (int i = 0; i < ids.length; i++) {
+            for (int j = conceptOffsets[i]; j < conceptOffsets[i + 1]; j++) {
+                int index = conceptIndex.get(conceptIds[j]);
+                conceptCategoryIds[next[index]++] = ids[i];
+            }
+        }
+    }
+
+    /**
+     * Export the graph, usually the Redis graph after building, to snapshot
+     * file.
+     */
+    public static void export(CategoryTreeGraph graph, int rootId, File snapshotFile)
+            throws IOException {
+        int[] ids = graph.listIds().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int n = ids.length;
+        LOG.info("export {} categories to {}", n, snapshotFile);
+
+        int[][] parents = new int[n][];
+        int[][] children = new int[n][];
+        int[][] concepts = new int[n][];
+        String[] names = new String[n];
+        int[] depths = new int[n];
+        int[] conceptCounts = new int[n];
+        int[] recursiveConceptCounts = new int[n];
+
+        ProgressCounter counter = new ProgressCounter(n);
+        for (int i = 0; i < n; i++) {
+            int id = ids[i];
+            names[i] = graph.getNameById(id, "");
+            depths[i] = graph.getDepth(id);
+            conceptCounts[i] = graph.getConceptCount(id);
+            recursiveConceptCounts[i] = graph.getRecursiveConceptCount(id);
+            parents[i] = graph.getParentIdArray(id);
+            children[i] = graph.getChildIdArray(id);
+            concepts[i] = graph.getConceptIds(id).stream().mapToInt(Integer::intValue)
+                    .sorted().toArray();
+            counter.increment();
+        }
+        counter.done();
+
+        snapshotFile.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = new File(snapshotFile.getAbsolutePath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tmp), 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rootId);
+            out.writeInt(n);
+            writeInts(out, ids);
+            writeInts(out, depths);
+            writeInts(out, conceptCounts);
+            writeInts(out, recursiveConceptCounts);
+            writeCsr(out, parents);
+            writeCsr(out, children);
+            writeCsr(out, concepts);
+            for (String name : names) {
+                byte[] bytes = name.getBytes(ENCODING);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        if (snapshotFile.exists()) {
+            snapshotFile.delete();
+        }
+        if (!tmp.renameTo(snapshotFile)) {
+            throw new IOException("rename " + tmp + " to " + snapshotFile + " failed.");
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] array) throws IOException {
+        for (int v : array) {
+            out.writeInt(v);
+        }
+    }
+
+    private static void writeCsr(DataOutputStream out, int[][] rows) throws IOException {
+        int offset = 0;
+        out.writeInt(offset);
+        for (int[] row : rows) {
+            offset += row.length;
+            out.writeInt(offset);
+        }
+        for (int[] row : rows) {
+            writeInts(out, row);
+        }
+    }
+
+    /**
+     * Redis graph for the write methods
+     */
+    private CategoryTreeGraphRedisImpl redis() {
+        if (redisGraph == null) {
+            synchronized (this) {
+                if (redisGraph == null) {
+                    try {
+                        redisGraph = new CategoryTreeGraphRedisImpl(conf);
+                    } catch (MissedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        }
+        return redisGraph;
+    }
+
+    private static int[] slice(int[] offsets, int[] edges, int index) {
+        if (index < 0) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(edges, offsets[index], offsets[index + 1]);
+    }
+
+    private static Set<Integer> toSet(int[] array) {
+        Set<Integer> set = new HashSet<>(Math.max(16, array.length * 4 / 3 + 1));
+        for (int id : array) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    public int getRootId() {
+        return rootId;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * The node index of category id, -1 if the id does not exist
+     */
+    public int indexOf(int catId) {
+        return id2index.get(catId);
+    }
+
+    /**
+     * The category id of node index
+     */
+    public int idAt(int index) {
+        return ids[index];
+    }
+
+    ///////////////////////////////////////
+    //
+    // Name id mapping
+    //
+    ///////////////////////////////////////
+
+    @Override
+    public void saveNameIdMapping(String name, int id) {
+        redis().saveNameIdMapping(name, id);
+    }
+
+    @Override
+    public Set<Integer> listIds() {
+        return toSet(ids);
+    }
+
+    @Override
+    public Set<String> listNames() {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    @Override
+    public boolean nameExist(String name) {
+        return name2id.containsKey(name.toLowerCase());
+    }
+
+    @Override
+    public boolean idExist(int id) {
+        return id2index.containsKey(id);
+    }
+
+    @Override
+    public int getIdByName(String name, int valueForNotExisted) {
+        int id = name2id.get(name.toLowerCase());
+        return (id == Integer.MIN_VALUE) ? valueForNotExisted : id;
+    }
+
+    @Override
+    public int getIdByName(String name) throws MissedException {
+        int id = name2id.get(name.toLowerCase());
+        if (id == Integer.MIN_VALUE) {
+            throw new MissedException("wiki category " + name + " does not exist");
+        }
+        return id;
+    }
+
+    @Override
+    public String getNameById(int id) {
+        return getNameById(id, "Not Exist:" + id);
+    }
+
+    @Override
+    public String getNameById(int id, String defaultValue) {
+        int index = id2index.get(id);
+        return (index < 0) ? defaultValue : names[index];
+    }
+
+    @Override
+    public void finishNameIdMapping() {
+        redis().finishNameIdMapping();
+    }
+
+    @Override
+    public boolean nameIdMapped() {
+        return true;
+    }
+
+    ///////////////////////////////////////
+    //
+    // Graph relations
+    //
+    ///////////////////////////////////////
+
+    @Override
+    public void saveConceptRelation(int catId, int conceptId) {
+        redis().saveConceptRelation(catId, conceptId);
+    }
+
+    @Override
+    public Set<Integer> getConceptIds(int catId) {
+        return toSet(slice(conceptOffsets, conceptIds, id2index.get(catId)));
+    }
+
+    @Override
+    public int getConceptCount(int catId) {
+        int index = id2index.get(catId);
+        return (index < 0) ? 0 : conceptCounts[index];
+    }
+
+    @Override
+    public int getRecursiveConceptCount(int catId) {
+        int index = id2index.get(catId);
+        return (index < 0) ? 0 : recursiveConceptCounts[index];
+    }
+
+    @Override
+    public Set<Integer> getCategoryIdsByConceptId(int conceptId) {
+        return toSet(getCategoryIdArrayByConceptId(conceptId));
+    }
+
+    @Override
+    public int[] getCategoryIdArrayByConceptId(int conceptId) {
+        return slice(conceptCategoryOffsets, conceptCategoryIds, conceptIndex.get(conceptId));
+    }
+
+    @Override
+    public Set<Integer> getParentIds(int catId) {
+        return toSet(getParentIdArray(catId));
+    }
+
+    @Override
+    public int[] getParentIdArray(int catId) {
+        return slice(parentOffsets, parentIds, id2index.get(catId));
+    }
+
+    @Override
+    public Set<String> getParentNames(String catName) {
+        Set<String> result = new HashSet<>();
+        for (int id : getParentIdArray(getIdByName(catName, 0))) {
+            result.add(getNameById(id));
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Integer> getChildIds(int catId) {
+        return toSet(getChildIdArray(catId));
+    }
+
+    @Override
+    public int[] getChildIdArray(int catId) {
+        return slice(childOffsets, childIds, id2index.get(catId));
+    }
+
+    @Override
+    public Set<String> getChildNames(String catName) {
+        Set<String> result = new HashSet<>();
+        int index = id2index.get(getIdByName(catName, Integer.MIN_VALUE));
+        if (index >= 0) {
+            for (int i = childOffsets[index]; i < childOffsets[index + 1]; i++) {
+                result.add(getNameById(childIds[i]));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int getDepth(int catId) {
+        int index = id2index.get(catId);
+        return (index < 0) ? -1 : depths[index];
+    }
+
+    @Override
+    public Category getCategory(String catName) throws MissedException {
+        return getCategory(getIdByName(catName));
+    }
+
+    @Override
+    public Category getCategory(int catId) throws MissedException {
+        if (!idExist(catId)) {
+            throw new MissedException("wiki category does not exist for id " + catId);
+        }
+        Category c = new Category();
+        c.setPageId(catId);
+        c.setTitle(getNameById(catId));
+        c.setParentIds(getParentIds(catId));
+        c.setArticleIds(getConceptIds(catId));
+        c.setArticleCount(getConceptCount(catId));
+        return c;
+    }
+
+    @Override
+    public boolean isChild(String parent, String child) {
+        return isChild(getIdByName(parent, -1), getIdByName(child, -1));
+    }
+
+    @Override
+    public boolean isChild(int parentId, int childId) {
+        int index = id2index.get(childId);
+        return index >= 0 && Arrays.binarySearch(parentIds, parentOffsets[index],
+                parentOffsets[index + 1], parentId) >= 0;
+    }
+
+    @Override
+    public Set<String> getLevelOneCategoryNames() {
+        Set<String> result = new LinkedHashSet<>();
+        for (int id : levelOneIds) {
+            result.add(getNameById(id));
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Integer> getLevelOneCategoryIds() {
+        return levelOneIds;
+    }
+
+    @Override
+    public Collection<Integer> getLeafCategoryIds() {
+        LinkedList<Integer> result = new LinkedList<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (childOffsets[i] == childOffsets[i + 1]) {
+                result.add(ids[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int getChildCount(String catName) {
+        return getChildCount(getIdByName(catName, -1));
+    }
+
+    @Override
+    public int getChildCount(int catId) {
+        int index = id2index.get(catId);
+        return (index < 0) ? 0 : childOffsets[index + 1] - childOffsets[index];
+    }
+
+    @Override
+    public List<String> getPaths(int catId) {
+        //each path is from catId to a level one category
+        List<int[]> idPaths = new LinkedList<>();
+        idPaths.add(new int[]{catId});
+        for (int i = getDepth(catId); i > 1; i--) {
+            List<int[]> upperPaths = new LinkedList<>();
+            for (int[] path : idPaths) {
+                int last = path[path.length - 1];
+                if (getDepth(last) <= 1) {
+                    upperPaths.add(path);
+                    continue;
+                }
+                for (int parentId : getParentIdArray(last)) {
+                    int[] upper = Arrays.copyOf(path, path.length + 1);
+                    upper[path.length] = parentId;
+                    upperPaths.add(upper);
+                }
+            }
+            idPaths = upperPaths;
+        }
+
+        List<String> list = new LinkedList<>();
+        for (int[] path : idPaths) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = path.length - 1; i >= 0; i--) {
+                sb.append("/").append(getNameById(path[i]))
+                        .append("(").append(getConceptCount(path[i])).append(")");
+            }
+            list.add(sb.toString());
+        }
+        return list;
+    }
+
+    @Override
+    public boolean hasEdgeRelationCreated() {
+        return true;
+    }
+
+    @Override
+    public boolean hasConceptRelationCreated() {
+        return true;
+    }
+
+    @Override
+    public void buildEdgeRelation(CategoryCache categoryCache) throws WikitException {
+        redis().buildEdgeRelation(categoryCache);
+    }
+
+    @Override
+    public void buildConceptRelation(ConceptCache conceptCache) throws WikitException {
+        redis().buildConceptRelation(conceptCache);
+    }
+
+    @Override
+    public void buildRecursiveCountInfo() throws WikitException {
+        redis().buildRecursiveCountInfo();
+    }
+
+    @Override
+    public void build() throws WikitException {
+        redis().build();
+    }
+
+    @Override
+    public boolean hasDone() {
+        return true;
+    }
+
+    @Override
+    public void clearAll() {
+        redis().clearAll();
+    }
+}
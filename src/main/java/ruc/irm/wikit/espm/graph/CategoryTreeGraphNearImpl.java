@@ -0,0 +1,366 @@
+package ruc.irm.wikit.espm.graph;
+
+import ruc.irm.wikit.cache.CategoryCache;
+import ruc.irm.wikit.cache.NearCache;
+import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.common.exception.MissedException;
+import ruc.irm.wikit.common.exception.WikitException;
+import ruc.irm.wikit.esa.concept.ConceptCache;
+import ruc.irm.wikit.model.Category;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Category tree graph which serves the lookups of name-id mapping, parent
+ * and child relations, depth and concept counts from the bounded in-process
+ * {@link NearCache}. The graph is read-only after it has been built, so the
+ * hot categories, e.g., the ones near the root, are read from Redis only
+ * once. The build methods go to the delegated graph directly and drop all
+ * cached values.
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 9:10 PM
+ */
+public class CategoryTreeGraphNearImpl implements CategoryTreeGraph, Closeable {
+    private CategoryTreeGraph delegate = null;
+
+    private NearCache<String, Integer> name2id = null;
+    private NearCache<Integer, String> id2name = null;
+    private NearCache<Integer, int[]> parents = null;
+    private NearCache<Integer, int[]> children = null;
+    private NearCache<Integer, int[]> conceptCategories = null;
+    private NearCache<Integer, Integer> conceptCounts = null;
+    private NearCache<Integer, Integer> recursiveConceptCounts = null;
+    private NearCache<Integer, Integer> depths = null;
+    private volatile Set<Integer> levelOneIds = null;
+
+    public CategoryTreeGraphNearImpl(Conf conf, CategoryTreeGraph delegate) {
+        this.delegate = delegate;
+        this.name2id = NearCache.create(conf, "tree.name2id");
+        this.id2name = NearCache.create(conf, "tree.id2name");
+        this.parents = NearCache.createArrays(conf, "tree.parents");
+        this.children = NearCache.createArrays(conf, "tree.children");
+        this.conceptCategories = NearCache.createArrays(conf, "tree.concept.categories");
+        this.conceptCounts = NearCache.create(conf, "tree.concept.count");
+        this.recursiveConceptCounts = NearCache.create(conf, "tree.concept.count.recursive");
+        this.depths = NearCache.create(conf, "tree.depth");
+    }
+
+    /**
+     * Wrap the graph by near cache if "cache.near.size" > 0
+     */
+    public static CategoryTreeGraph wrap(Conf conf, CategoryTreeGraph delegate) {
+        return NearCache.isEnabled(conf) ? new CategoryTreeGraphNearImpl(conf, delegate) : delegate;
+    }
+
+    public CategoryTreeGraph getDelegate() {
+        return delegate;
+    }
+
+    private void invalidateAll() {
+        for (NearCache<?, ?> c : Arrays.asList(name2id, id2name, parents,
+                children, conceptCategories, conceptCounts,
+                recursiveConceptCounts, depths)) {
+            c.invalidateAll();
+        }
+        levelOneIds = null;
+    }
+
+    private static Set<Integer> toSet(int[] ids) {
+        Set<Integer> set = new HashSet<>(Math.max(16, ids.length * 4 / 3 + 1));
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Override
+    public void saveNameIdMapping(String name, int id) {
+        delegate.saveNameIdMapping(name, id);
+        invalidateAll();
+    }
+
+    @Override
+    public Set<Integer> listIds() {
+        return delegate.listIds();
+    }
+
+    @Override
+    public Set<String> listNames() {
+        return delegate.listNames();
+    }
+
+    @Override
+    public boolean nameExist(String name) {
+        return getIdByName(name, Integer.MIN_VALUE) != Integer.MIN_VALUE;
+    }
+
+    @Override
+    public boolean idExist(int id) {
+        return getNameById(id, null) != null;
+    }
+
+    @Override
+    public int getIdByName(String name, int valueForNotExisted) {
+        int id = name2id.get(name.toLowerCase(),
+                key -> delegate.getIdByName(key, Integer.MIN_VALUE));
+        return (id == Integer.MIN_VALUE) ? valueForNotExisted : id;
+    }
+
+    @Override
+    public int getIdByName(String name) throws MissedException {
+        int id = getIdByName(name, Integer.MIN_VALUE);
+        if (id == Integer.MIN_VALUE) {
+            throw new MissedException("wiki category " + name + " does not exist");
+        }
+        return id;
+    }
+
+    @Override
+    public String getNameById(int id) {
+        return getNameById(id, "Not Exist:" + id);
+    }
+
+    @Override
+    public String getNameById(int id, String defaultValue) {
+        String name = id2name.get(id, key -> delegate.getNameById(key, null));
+        return (name == null) ? defaultValue : name;
+    }
+
+    @Override
+    public void finishNameIdMapping() {
+        delegate.finishNameIdMapping();
+    }
+
+    @Override
+    public boolean nameIdMapped() {
+        return delegate.nameIdMapped();
+    }
+
+    @Override
+    public void saveConceptRelation(int catId, int conceptId) {
+        delegate.saveConceptRelation(catId, conceptId);
+        conceptCategories.invalidateAll();
+        conceptCounts.invalidateAll();
+    }
+
+    @Override
+    public Set<Integer> getConceptIds(int catId) {
+        //the concept set of a category can be very large, so it is not cached
+        return delegate.getConceptIds(catId);
+    }
+
+    @Override
+    public int getConceptCount(int catId) {
+        return conceptCounts.get(catId, delegate::getConceptCount);
+    }
+
+    @Override
+    public int getRecursiveConceptCount(int catId) {
+        return recursiveConceptCounts.get(catId, delegate::getRecursiveConceptCount);
+    }
+
+    @Override
+    public Set<Integer> getCategoryIdsByConceptId(int conceptId) {
+        return toSet(getCategoryIdArrayByConceptId(conceptId));
+    }
+
+    @Override
+    public int[] getCategoryIdArrayByConceptId(int conceptId) {
+        return conceptCategories.get(conceptId,
+                delegate::getCategoryIdArrayByConceptId).clone();
+    }
+
+    /**
+     * The cached parent array, it is shared and must not escape to callers
+     */
+    private int[] parentArray(int catId) {
+        return parents.get(catId, delegate::getParentIdArray);
+    }
+
+    /**
+     * The cached child array, it is shared and must not escape to callers
+     */
+    private int[] childArray(int catId) {
+        return children.get(catId, delegate::getChildIdArray);
+    }
+
+    @Override
+    public Set<Integer> getParentIds(int catId) {
+        return toSet(parentArray(catId));
+    }
+
+    @Override
+    public int[] getParentIdArray(int catId) {
+        return parentArray(catId).clone();
+    }
+
+    @Override
+    public Set<String> getParentNames(String catName) {
+        Set<String> names = new HashSet<>();
+        for (int id : parentArray(getIdByName(catName, 0))) {
+            names.add(getNameById(id));
+        }
+        return names;
+    }
+
+    @Override
+    public Set<Integer> getChildIds(int catId) {
+        return toSet(childArray(catId));
+    }
+
+    @Override
+    public int[] getChildIdArray(int catId) {
+        return childArray(catId).clone();
+    }
+
+    @Override
+    public Set<String> getChildNames(String catName) {
+        Set<String> names = new HashSet<>();
+        int catId = getIdByName(catName, Integer.MIN_VALUE);
+        if (catId == Integer.MIN_VALUE) {
+            return names;
+        }
+        for (int id : childArray(catId)) {
+            String name = getNameById(id, null);
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public int getDepth(int catId) {
+        return depths.get(catId, delegate::getDepth);
+    }
+
+    @Override
+    public Category getCategory(String catName) throws MissedException {
+        return getCategory(getIdByName(catName));
+    }
+
+    @Override
+    public Category getCategory(int catId) throws MissedException {
+        Category c = new Category();
+        c.setPageId(catId);
+        c.setTitle(getNameById(catId));
+        c.setParentIds(getParentIds(catId));
+        c.setArticleIds(getConceptIds(catId));
+        c.setArticleCount(getConceptCount(catId));
+        return c;
+    }
+
+    @Override
+    public boolean isChild(String parent, String child) {
+        return isChild(getIdByName(parent, -1), getIdByName(child, -1));
+    }
+
+    @Override
+    public boolean isChild(int parentId, int childId) {
+        return Arrays.binarySearch(parentArray(childId), parentId) >= 0;
+    }
+
+    @Override
+    public Set<String> getLevelOneCategoryNames() {
+        return delegate.getLevelOneCategoryNames();
+    }
+
+    @Override
+    public Set<Integer> getLevelOneCategoryIds() {
+        if (levelOneIds == null) {
+            levelOneIds = Collections.unmodifiableSet(delegate.getLevelOneCategoryIds());
+        }
+        return levelOneIds;
+    }
+
+    @Override
+    public Collection<Integer> getLeafCategoryIds() {
+        return delegate.getLeafCategoryIds();
+    }
+
+    @Override
+    public int getChildCount(String catName) {
+        return childArray(getIdByName(catName, -1)).length;
+    }
+
+    @Override
+    public int getChildCount(int catId) {
+        return childArray(catId).length;
+    }
+
+    @Override
+    public List<String> getPaths(int catId) {
+        return delegate.getPaths(catId);
+    }
+
+    @Override
+    public boolean hasEdgeRelationCreated() {
+        return delegate.hasEdgeRelationCreated();
+    }
+
+    @Override
+    public boolean hasConceptRelationCreated() {
+        return delegate.hasConceptRelationCreated();
+    }
+
+    @Override
+    public void buildEdgeRelation(CategoryCache categoryCache) throws WikitException {
+        delegate.buildEdgeRelation(categoryCache);
+        invalidateAll();
+    }
+
+    @Override
+    public void buildConceptRelation(ConceptCache conceptCache) throws WikitException {
+        delegate.buildConceptRelation(conceptCache);
+        invalidateAll();
+    }
+
+    @Override
+    public void buildRecursiveCountInfo() throws WikitException {
+        delegate.buildRecursiveCountInfo();
+        invalidateAll();
+    }
+
+    @Override
+    public void build() throws WikitException {
+        delegate.build();
+        invalidateAll();
+    }
+
+    @Override
+    public void saveCacheToGZipFile() throws IOException {
+        delegate.saveCacheToGZipFile();
+    }
+
+    @Override
+    public void buildCacheFromGZipFile() throws IOException {
+        delegate.buildCacheFromGZipFile();
+        invalidateAll();
+    }
+
+    @Override
+    public void done() {
+        delegate.done();
+    }
+
+    @Override
+    public boolean hasDone() {
+        return delegate.hasDone();
+    }
+
+    @Override
+    public void clearAll() {
+        delegate.clearAll();
+        invalidateAll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+}
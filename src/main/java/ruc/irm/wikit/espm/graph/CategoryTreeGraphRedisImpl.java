@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
 import ruc.irm.wikit.cache.Cache;
 import ruc.irm.wikit.cache.CategoryCache;
+import ruc.irm.wikit.cache.MeteredJedis;
 import ruc.irm.wikit.cache.impl.CategoryCacheRedisImpl;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.exception.MissedException;
@@ -42,7 +43,7 @@ public class CategoryTreeGraphRedisImpl implements CategoryTreeGraph,
         this.conf = conf;
         this.prefix = conf.get("category.redis.prefix", "");
         this.prefix += "tg:";
-        this.jedis = new Jedis(conf.getRedisHost(), conf.getRedisPort(), conf.getRedisTimeout());
+        this.jedis = new MeteredJedis(conf.getRedisHost(), conf.getRedisPort(), conf.getRedisTimeout());
 
         if (hasDone()) {
             this.rootId = getIdByName(conf.getWikiRootCategoryName());
@@ -143,20 +144,33 @@ public class CategoryTreeGraphRedisImpl implements CategoryTreeGraph,
 
     @Override
     public Set<Integer> getParentIds(int catId) {
+        int[] array = getParentIdArray(catId);
+        Set<Integer> ids = new HashSet<>(Math.max(16, array.length * 4 / 3 + 1));
+        for (int id : array) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    @Override
+    public int[] getParentIdArray(int catId) {
         byte[] key = (prefix + "id2pids").getBytes(ENCODING);
         byte[] hkey = NumberUtils.int2Bytes(catId);
 
         byte[] value = jedis.hget(key, hkey);
-        Set<Integer> ids = NumberUtils.bytes2IntSet(value);
+        int[] ids = NumberUtils.decodeIntSet(value);
 
         //remove skipped categories:
         //35321838 Wikipedia categories named after scientific buildings
         //35321841 Wikipedia categories named after scientific organizations
         //35321847 Wikipedia categories named after scientists
-        ids.remove(35321838);
-        ids.remove(35321841);
-        ids.remove(35321847);
-        return ids;
+        int n = 0;
+        for (int id : ids) {
+            if (id != 35321838 && id != 35321841 && id != 35321847) {
+                ids[n++] = id;
+            }
+        }
+        return (n == ids.length) ? ids : Arrays.copyOf(ids, n);
     }
 
     @Override
@@ -178,6 +192,15 @@ public class CategoryTreeGraphRedisImpl implements CategoryTreeGraph,
         return ids;
     }
 
+    @Override
+    public int[] getChildIdArray(int catId) {
+        byte[] key = (prefix + "id2cids").getBytes(ENCODING);
+        byte[] hkey = NumberUtils.int2Bytes(catId);
+
+        byte[] value = jedis.hget(key, hkey);
+        return NumberUtils.decodeIntSet(value);
+    }
+
     @Override
     public Set<String> getChildNames(String catName) {
         Set<String> names = new HashSet<>();
@@ -285,6 +308,14 @@ public class CategoryTreeGraphRedisImpl implements CategoryTreeGraph,
         return NumberUtils.bytes2IntSet(value);
     }
 
+    @Override
+    public int[] getCategoryIdArrayByConceptId(int conceptId) {
+        byte[] key = (prefix + "ctp:catids").getBytes(ENCODING);
+        byte[] hkey = NumberUtils.int2Bytes(conceptId);
+        byte[] value = jedis.hget(key, hkey);
+        return NumberUtils.decodeIntSet(value);
+    }
+
     private void saveDepth(int catId, int depth) {
         byte[] key = (prefix + "id2depth").getBytes(ENCODING);
         byte[] hkey = NumberUtils.int2Bytes(catId);
@@ -441,8 +472,7 @@ public class CategoryTreeGraphRedisImpl implements CategoryTreeGraph,
 
     @Override
     public boolean isChild(int parentId, int childId) {
-        Set<Integer> parentIds = getParentIds(childId);
-        return parentIds.contains(parentId);
+        return Arrays.binarySearch(getParentIdArray(childId), parentId) >= 0;
     }
 
     @Override
@@ -471,12 +501,12 @@ public class CategoryTreeGraphRedisImpl implements CategoryTreeGraph,
     @Override
     public int getChildCount(String catName) {
         int catId = getIdByName(catName, -1);
-        return getChildIds(catId).size();
+        return getChildIdArray(catId).length;
     }
 
     @Override
     public int getChildCount(int catId) {
-        return getChildIds(catId).size();
+        return getChildIdArray(catId).length;
     }
 
     /**
@@ -494,8 +524,7 @@ public class CategoryTreeGraphRedisImpl implements CategoryTreeGraph,
             if (depth <= 1) {
                 results.add(subPath);
             } else {
-                Set<Integer> parentIds = getParentIds(currentId);
-                for (int parentId : parentIds) {
+                for (int parentId : getParentIdArray(currentId)) {
                     Stack<Integer> path = (Stack<Integer>) subPath.clone();
                     path.push(parentId);
                     results.add(path);
@@ -702,8 +731,7 @@ public class CategoryTreeGraphRedisImpl implements CategoryTreeGraph,
             queue.add(catId);
             while (!queue.isEmpty()) {
                 int childId = queue.poll();
-                Set<Integer> parentIds = getParentIds(childId);
-                for (int pid : parentIds) {
+                for (int pid : getParentIdArray(childId)) {
                     incRecursiveConceptCount(pid, cptCount);
                     queue.add(pid);
                 }
@@ -7,7 +7,6 @@ import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.exception.WikitException;
 import ruc.irm.wikit.espm.SemanticPath;
 import ruc.irm.wikit.espm.graph.CategoryTreeGraph;
-import ruc.irm.wikit.espm.graph.CategoryTreeGraphRedisImpl;
 
 import java.util.*;
 
@@ -37,8 +36,16 @@ public class DynamicPathTree {
 
 
     public DynamicPathTree(Conf conf) throws WikitException {
+        this(conf, CategoryTreeGraph.create(conf));
+    }
+
+    /**
+     * Construct the tree on the given category graph, which can be shared
+     * by all trees.
+     */
+    public DynamicPathTree(Conf conf, CategoryTreeGraph catTreeGraph) throws WikitException {
         this.conf = conf;
-        this.catTreeGraph = new CategoryTreeGraphRedisImpl(conf);
+        this.catTreeGraph = catTreeGraph;
 
         //get root id
         this.rootId = catTreeGraph.getIdByName(conf.getWikiRootCategoryName());
@@ -80,10 +87,10 @@ public class DynamicPathTree {
             DynamicTreeNode currentNode = id2NodeIndex.get(currentTransitScore.catId);
             currentNode.weight += currentTransitScore.score;
 
-            Collection<Integer> parents = catTreeGraph.getParentIds(currentTransitScore.catId);
+            int[] parents = catTreeGraph.getParentIdArray(currentTransitScore.catId);
             double parentTransitScoreValue = 0;
-            if(parents.size()>0) {
-                parentTransitScoreValue = currentTransitScore.score/parents.size();
+            if(parents.length>0) {
+                parentTransitScoreValue = currentTransitScore.score/parents.length;
             }
 
             for (int pid : parents) {
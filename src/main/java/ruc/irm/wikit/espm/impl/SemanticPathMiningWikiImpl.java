@@ -8,13 +8,12 @@ import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.exception.WikitException;
 import ruc.irm.wikit.esa.ESAModelImpl;
 import ruc.irm.wikit.esa.concept.ConceptCache;
-import ruc.irm.wikit.esa.concept.ConceptCacheRedisImpl;
 import ruc.irm.wikit.esa.concept.vector.ConceptIterator;
 import ruc.irm.wikit.esa.concept.vector.ConceptVector;
 import ruc.irm.wikit.espm.SemanticPath;
 import ruc.irm.wikit.espm.SemanticPathMining;
 import ruc.irm.wikit.espm.graph.CategoryTreeGraph;
-import ruc.irm.wikit.espm.graph.CategoryTreeGraphRedisImpl;
+import ruc.irm.wikit.util.Metrics;
 import ruc.irm.wikit.util.ValueComparator;
 
 import java.io.*;
@@ -89,11 +88,18 @@ public class SemanticPathMiningWikiImpl implements SemanticPathMining {
     private ESAModelImpl esaModel = null;
 
     public SemanticPathMiningWikiImpl(Conf conf) throws WikitException {
-        this.conf = conf;
-        this.conceptCache = new ConceptCacheRedisImpl(conf);
-        this.treeCache = new CategoryTreeGraphRedisImpl(conf);
+        this(conf, new ESAModelImpl(conf));
+    }
 
-        this.esaModel = new ESAModelImpl(conf);
+    /**
+     * Share the given ESA model and its concept cache, ESAModelImpl is
+     * thread-safe, so one model can serve several miners.
+     */
+    public SemanticPathMiningWikiImpl(Conf conf, ESAModelImpl esaModel) throws WikitException {
+        this.conf = conf;
+        this.esaModel = esaModel;
+        this.conceptCache = esaModel.getConceptCache();
+        this.treeCache = CategoryTreeGraph.create(conf);
     }
 
     /**
@@ -106,6 +112,14 @@ public class SemanticPathMiningWikiImpl implements SemanticPathMining {
      */
     public SortedMap<Integer, Double> getCategoryDistribution(ConceptVector cv,
                                                               int conceptLimit) throws WikitException {
+        long time = System.nanoTime();
+        SortedMap<Integer, Double> distribution = calculateCategoryDistribution(cv, conceptLimit);
+        Metrics.observeStage("category_distribution", time);
+        return distribution;
+    }
+
+    private SortedMap<Integer, Double> calculateCategoryDistribution(ConceptVector cv,
+                                                                     int conceptLimit) throws WikitException {
         ConceptIterator conceptIterator = cv.orderedIterator();
 
         //Category ID --> Category
@@ -158,15 +172,15 @@ public class SemanticPathMiningWikiImpl implements SemanticPathMining {
             for (ConceptItem conceptItem : category.concepts()) {
                 double v1 = conceptItem.value;
                 double v2 = 0.0;
-                Set<Integer> inlinkIds = conceptCache.getInlinkIds(conceptItem.id);
+                int[] inlinkIds = conceptCache.getInlinkIdArray(conceptItem.id);
                 for (int inlinkId : inlinkIds) {
                     if (category.hasConcept(inlinkId)) {
                         v2 += category.getConcept(inlinkId).value;
                         //System.out.println(inlink + "==>" + item.id + "\t" + item.title);
                     }
                 }
-                if (inlinkIds.size() > 0) {
-                    v2 = v2 / inlinkIds.size(); //normalize
+                if (inlinkIds.length > 0) {
+                    v2 = v2 / inlinkIds.length; //normalize
                 }
 
                 //if item connected with
@@ -240,10 +254,12 @@ public class SemanticPathMiningWikiImpl implements SemanticPathMining {
 
     public DynamicPathTree constructCategoryTree(SortedMap<Integer, Double> categoryDistribution)
             throws WikitException {
-        DynamicPathTree tree = new DynamicPathTree(conf);
+        long time = System.nanoTime();
+        DynamicPathTree tree = new DynamicPathTree(conf, treeCache);
         for (Map.Entry<Integer, Double> score : categoryDistribution.entrySet()) {
             tree.addLeafNode(score.getKey(), score.getValue());
         }
+        Metrics.observeStage("tree_build", time);
 
         return tree;
     }
@@ -301,6 +317,7 @@ public class SemanticPathMiningWikiImpl implements SemanticPathMining {
 //            if (++count >= 200) break;
 //        }
 
+        long time = System.nanoTime();
         GreedyMWIS greedyMWIS = new GreedyMWIS(treeCache);
         greedyMWIS.buildMWISGraph(paths);
         for (int i = 0; i < topN; i++) {
@@ -311,6 +328,7 @@ public class SemanticPathMiningWikiImpl implements SemanticPathMining {
                 break;
             }
         }
+        Metrics.observeStage("mwis", time);
         return results;
     }
 
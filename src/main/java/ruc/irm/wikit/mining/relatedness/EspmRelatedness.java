@@ -22,6 +22,11 @@ public class EspmRelatedness {
         this.espm = new SemanticPathMiningWikiImpl(conf);
     }
 
+    public EspmRelatedness(Conf conf, SemanticPathMining espm) {
+        this.conf = conf;
+        this.espm = espm;
+    }
+
     public double calculate(String word1, String word2) {
         try {
             List<SemanticPath> path1 = espm.getSemanticPaths(word1, 50, 5);
@@ -1,19 +1,33 @@
 package ruc.irm.wikit.mining.relatedness;
 
 import gnu.trove.map.TIntFloatMap;
+import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.hash.TIntFloatHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.TIntHashSet;
 import org.apache.commons.cli.*;
 import ruc.irm.wikit.cache.LinkCache;
+import ruc.irm.wikit.cache.impl.LinkCacheNearImpl;
 import ruc.irm.wikit.cache.impl.LinkCacheRedisImpl;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.conf.ConfFactory;
 import ruc.irm.wikit.util.SimUtils;
+import ruc.irm.wikit.util.SortedIntArrays;
 
 import java.io.IOException;
 
 /**
+ * Link based relatedness, which is the average of the cosine similarity of
+ * out link vectors and the Google distance of in links (WLM).
+ * <p>
+ * The relatedness of many page pairs can be calculated in one batch by
+ * {@link #getRelatedness(int[], int[])}: the in links and out links of all
+ * pages are fetched once, the link vector of each page is built once and
+ * shared by all pairs, and the idf weights of link targets are kept in the
+ * near cache of the link cache.
+ * </p>
+ *
  * @author Tian Xia
  * @date Jan 20, 2016 10:30 PM
  */
@@ -25,80 +39,178 @@ public class LinkRelatedness {
     public LinkRelatedness(Conf conf) {
         this.conf = conf;
         this.wlmExtended = conf.getBoolean("wlm.extend", false);
-        this.linkCache = new LinkCacheRedisImpl(conf);
+        this.linkCache = LinkCacheNearImpl.wrap(conf, new LinkCacheRedisImpl(conf));
     }
 
     public double getRelatedness(int pageId1, int pageId2) {
-        return 0.5*cosineOutlink(pageId1, pageId2) + 0.5*googleInlink
-            (pageId1, pageId2);
+        return getRelatedness(new int[]{pageId1}, new int[]{pageId2})[0][0];
     }
 
-
-    public double googleInlink(int pageId1, int pageId2) {
-        TIntSet inlinks1 = linkCache.getInlinks(pageId1);
-        TIntSet inlinks2 = linkCache.getInlinks(pageId2);
-
-        if (inlinks1.isEmpty() || inlinks2.isEmpty()) {
-            return 0.0;
+    /**
+     * Calculate the relatedness of every pair in ids1 x ids2, the result
+     * [i][j] is the relatedness of ids1[i] and ids2[j].
+     */
+    public double[][] getRelatedness(int[] ids1, int[] ids2) {
+        LinkBatch batch = new LinkBatch(union(ids1, ids2), true);
+        double[][] result = new double[ids1.length][ids2.length];
+        for (int i = 0; i < ids1.length; i++) {
+            for (int j = 0; j < ids2.length; j++) {
+                result[i][j] = 0.5 * batch.cosineOutlink(ids1[i], ids2[j])
+                        + 0.5 * batch.googleInlink(ids1[i], ids2[j]);
+            }
         }
+        return result;
+    }
 
-        int a = inlinks1.size();
-        int b = inlinks2.size();
-        TIntSet intersection = new TIntHashSet(inlinks1.toArray());
-        intersection.retainAll(inlinks2);
-        int ab = intersection.size();
+    /**
+     * Calculate the relatedness of the pairs (ids1[i], ids2[i]) in one batch
+     */
+    public double[] getPairRelatedness(int[] ids1, int[] ids2) {
+        if (ids1.length != ids2.length) {
+            throw new IllegalArgumentException("the two id arrays have different lengths");
+        }
+        LinkBatch batch = new LinkBatch(union(ids1, ids2), true);
+        double[] result = new double[ids1.length];
+        for (int i = 0; i < ids1.length; i++) {
+            result[i] = 0.5 * batch.cosineOutlink(ids1[i], ids2[i])
+                    + 0.5 * batch.googleInlink(ids1[i], ids2[i]);
+        }
+        return result;
+    }
 
-        if (ab == 0) {
-            return 0;
+    /**
+     * Calculate the relatedness matrix of all pairs of the given pages, only
+     * the upper triangle is calculated since the relatedness is symmetric.
+     */
+    public double[][] getRelatedness(int[] ids) {
+        LinkBatch batch = new LinkBatch(union(ids, new int[0]), true);
+        double[][] result = new double[ids.length][ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            for (int j = i; j < ids.length; j++) {
+                result[i][j] = 0.5 * batch.cosineOutlink(ids[i], ids[j])
+                        + 0.5 * batch.googleInlink(ids[i], ids[j]);
+                result[j][i] = result[i][j];
+            }
         }
+        return result;
+    }
 
-        return 1.0 - (
-                      (Math.log(Math.max(a, b)) - Math.log(ab))
-                      / (Math.log(linkCache.getTotalPages()) - Math.log(Math.min(a, b)))
-                      );
+    public double googleInlink(int pageId1, int pageId2) {
+        return new LinkBatch(new int[]{pageId1, pageId2}, false)
+                .googleInlink(pageId1, pageId2);
     }
 
     public double cosineOutlink(int pageId1, int pageId2) {
-        TIntSet outlinks1 = linkCache.getOutlinks(pageId1);
-        TIntSet outlinks2 = linkCache.getOutlinks(pageId2);
-
-        TIntFloatMap v1 = makeOutlinkVector(outlinks1);
-        TIntFloatMap v2 = makeOutlinkVector(outlinks2);
-        if (v1.isEmpty() || v2.isEmpty()) {
-            return 0.0;
-        }
+        return new LinkBatch(new int[]{pageId1, pageId2}, true)
+                .cosineOutlink(pageId1, pageId2);
+    }
 
-        return SimUtils.cosineSimilarity(v1, v2);
+    private static int[] union(int[] ids1, int[] ids2) {
+        TIntSet ids = new TIntHashSet(ids1);
+        ids.addAll(ids2);
+        return ids.toArray();
     }
 
-    private TIntFloatMap makeOutlinkVector(TIntSet links) {
-        TIntFloatMap vector = new TIntFloatHashMap();
-        for (int wpId : links.toArray()) {
-            vector.put(wpId, (float) Math.log(1.0 * linkCache.getTotalPages() / linkCache
-                                              .getInlinks(wpId).size()));
+    /**
+     * The link data of a batch of pages, which is fetched once and shared by
+     * all pairs in the batch.
+     */
+    private class LinkBatch {
+        private int totalPages = 0;
+        private TIntObjectMap<int[]> inlinks = new TIntObjectHashMap<>();
+        private TIntObjectMap<TIntFloatMap> vectors = new TIntObjectHashMap<>();
+
+        LinkBatch(int[] pageIds, boolean withVectors) {
+            this.totalPages = linkCache.getTotalPages();
+            int[][] in = linkCache.getInlinkArrays(pageIds);
+            for (int i = 0; i < pageIds.length; i++) {
+                inlinks.put(pageIds[i], in[i]);
+            }
+
+            if (withVectors) {
+                makeOutlinkVectors(pageIds);
+            }
         }
 
-        if(wlmExtended) {
-            TIntFloatMap vector2 = new TIntFloatHashMap();
+        private void makeOutlinkVectors(int[] pageIds) {
+            int[][] out = linkCache.getOutlinkArrays(pageIds);
+            TIntSet targets = new TIntHashSet();
+            for (int[] links : out) {
+                targets.addAll(links);
+            }
+
             //考虑二级链接
-            for (int id1 : links.toArray()) {
-                for (int id2 : linkCache.getOutlinks(id1).toArray()) {
-                    double tfidf = Math.log(1.0 * linkCache.getTotalPages()
-                            / linkCache.getInlinks(id2).size());
-                    float w = (float) tfidf * vector.get(id1);
-
-                    float old = 0;
-                    if (vector2.containsKey(id2)) {
-                        old = vector2.get(id2);
+            TIntObjectMap<int[]> secondLinks = new TIntObjectHashMap<>();
+            int[] firstLevel = targets.toArray();
+            if (wlmExtended) {
+                int[][] out2 = linkCache.getOutlinkArrays(firstLevel);
+                for (int i = 0; i < firstLevel.length; i++) {
+                    secondLinks.put(firstLevel[i], out2[i]);
+                    targets.addAll(out2[i]);
+                }
+            }
+
+            TIntFloatMap idf = getIdfs(targets.toArray());
+            for (int i = 0; i < pageIds.length; i++) {
+                TIntFloatMap vector = new TIntFloatHashMap();
+                for (int wpId : out[i]) {
+                    vector.put(wpId, idf.get(wpId));
+                }
+
+                if (wlmExtended) {
+                    TIntFloatMap vector2 = new TIntFloatHashMap();
+                    for (int id1 : out[i]) {
+                        for (int id2 : secondLinks.get(id1)) {
+                            float w = idf.get(id2) * vector.get(id1);
+                            vector2.adjustOrPutValue(id2, w, w);
+                        }
                     }
-                    vector2.put(id2, old + w);
+                    vector.putAll(vector2);
                 }
+                vectors.put(pageIds[i], vector);
             }
-            vector.putAll(vector2);
         }
-        return vector;
-    }
 
+        /**
+         * Get idf weights of pages in one batch, the link cache keeps them
+         * in its near cache.
+         */
+        private TIntFloatMap getIdfs(int[] pageIds) {
+            TIntFloatMap result = new TIntFloatHashMap(pageIds.length * 2);
+            float[] weights = linkCache.getIdfs(pageIds);
+            for (int i = 0; i < pageIds.length; i++) {
+                result.put(pageIds[i], weights[i]);
+            }
+            return result;
+        }
+
+        double googleInlink(int pageId1, int pageId2) {
+            int[] inlinks1 = inlinks.get(pageId1);
+            int[] inlinks2 = inlinks.get(pageId2);
+
+            if (inlinks1.length == 0 || inlinks2.length == 0) {
+                return 0.0;
+            }
+
+            int ab = SortedIntArrays.intersectionSize(inlinks1, inlinks2);
+            if (ab == 0) {
+                return 0;
+            }
+
+            return SimUtils.googleSimilarity(inlinks1.length, inlinks2.length,
+                    ab, totalPages);
+        }
+
+        double cosineOutlink(int pageId1, int pageId2) {
+            TIntFloatMap v1 = vectors.get(pageId1);
+            TIntFloatMap v2 = vectors.get(pageId2);
+            if (v1.isEmpty() || v2.isEmpty()) {
+                return 0.0;
+            }
+
+            return SimUtils.cosineSimilarity(v1, v2);
+        }
+    }
 
     public static void main(String[] args) throws ParseException, IOException {
         String helpMsg = "usage: LinkRelatedness -c config.xml";
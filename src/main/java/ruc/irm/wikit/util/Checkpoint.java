@@ -0,0 +1,214 @@
+package ruc.irm.wikit.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Record the progress of a long running job, such as building the ESA
+ * model, so the job can be resumed after a crash.
+ * <p>
+ * A job consists of several stages, when a stage is done, its output files
+ * and their sizes and modified times are recorded, and the stage will be
+ * skipped next time if the outputs are not changed. A long stage can also
+ * save its partial progress, e.g., the number of processed documents, and
+ * continue from there.
+ * </p>
+ * <p>
+ * The stages are declared in order by {@link #setStages(String...)}, each
+ * stage depends on the outputs of its previous stages. When a stage is
+ * executed again, {@link #begin(String)} invalidates all later stages, so
+ * they are executed again with the new outputs.
+ * </p>
+ * <p>
+ * The checkpoint is saved as a properties file, which is replaced
+ * atomically at each save.
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 4:10 PM
+ */
+public class Checkpoint {
+    private static final Logger LOG = LoggerFactory.getLogger(Checkpoint.class);
+
+    private File file = null;
+    private Properties props = new Properties();
+    private List<String> stages = new ArrayList<>();
+
+    /**
+     * Load checkpoint from file, if the file is null, nothing is recorded,
+     * i.e., no stage is done and nothing can be resumed.
+     */
+    public Checkpoint(File file) throws IOException {
+        this.file = file;
+        if (file != null && file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                props.load(in);
+            }
+        }
+    }
+
+    /**
+     * A checkpoint which is not persisted, used when resume is not needed.
+     */
+    public static Checkpoint none() {
+        try {
+            return new Checkpoint(null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Declare the stages of the job in executing order, the stages not
+     * declared are never invalidated by {@link #begin(String)}.
+     */
+    public synchronized void setStages(String... stages) {
+        this.stages = new ArrayList<>(Arrays.asList(stages));
+    }
+
+    /**
+     * The stage is going to be executed, all the stages after it are
+     * invalidated together with their partial progress, because their
+     * inputs will be changed.
+     */
+    public synchronized void begin(String stage) throws IOException {
+        int pos = stages.indexOf(stage);
+        if (pos < 0) return;
+
+        boolean changed = false;
+        for (String later : stages.subList(pos + 1, stages.size())) {
+            List<String> keys = new ArrayList<>();
+            for (String key : props.stringPropertyNames()) {
+                if (key.startsWith(later + ".")) {
+                    keys.add(key);
+                }
+            }
+            if (!keys.isEmpty()) {
+                LOG.warn("stage {} is invalidated by stage {}.", later, stage);
+                keys.forEach(props::remove);
+                changed = true;
+            }
+        }
+        if (changed) {
+            save();
+        }
+    }
+
+    public boolean isEmpty() {
+        return props.isEmpty();
+    }
+
+    /**
+     * The stage is done and all its output files are not changed since then
+     */
+    public synchronized boolean isDone(String stage) {
+        if (!"true".equals(props.getProperty(stage + ".done"))) {
+            return false;
+        }
+
+        String outputs = props.getProperty(stage + ".outputs", "");
+        for (String name : outputs.split("\n")) {
+            if (name.isEmpty()) continue;
+
+            File f = new File(name);
+            String expected = props.getProperty(stage + ".checksum." + name);
+            if (!f.exists() || !checksum(f).equals(expected)) {
+                LOG.warn("output {} of stage {} has been changed.", name, stage);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mark the stage as done with its output files, the partial progress of
+     * this stage is removed.
+     */
+    public synchronized void done(String stage, File... outputs) throws IOException {
+        if (file == null) return;
+
+        props.stringPropertyNames().stream()
+                .filter(key -> key.startsWith(stage + "."))
+                .forEach(props::remove);
+
+        StringBuilder names = new StringBuilder();
+        for (File f : outputs) {
+            String name = f.getAbsolutePath();
+            names.append(name).append("\n");
+            props.setProperty(stage + ".checksum." + name, checksum(f));
+        }
+        props.setProperty(stage + ".outputs", names.toString());
+        props.setProperty(stage + ".done", "true");
+        save();
+        LOG.info("stage {} is done.", stage);
+    }
+
+    public synchronized long getProgress(String key, long defaultValue) {
+        String value = props.getProperty(key + ".progress");
+        return (value == null) ? defaultValue : Long.parseLong(value);
+    }
+
+    /**
+     * Set the partial progress, it is not persisted until {@link #save()} is
+     * called, so several related values can be saved together.
+     */
+    public synchronized void setProgress(String key, long value) {
+        props.setProperty(key + ".progress", Long.toString(value));
+    }
+
+    public synchronized void clear() throws IOException {
+        props.clear();
+        if (file != null && file.exists()) {
+            file.delete();
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        if (file == null) return;
+
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = new File(file.getAbsolutePath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            props.store(out, "build checkpoint");
+            out.flush();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The size and modified time of file, the content is not read because
+     * the outputs, e.g., the Lucene index and tf-idf data, are very large.
+     * For directory, CRC32 of the names, sizes and modified times of its
+     * files is used.
+     */
+    private static String checksum(File f) {
+        if (!f.isDirectory()) {
+            return f.length() + ":" + f.lastModified();
+        }
+
+        CRC32 crc = new CRC32();
+        long size = 0;
+        File[] files = f.listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File child : files) {
+                String entry = child.getName() + ":" + child.length() + ":"
+                        + child.lastModified() + "\n";
+                crc.update(entry.getBytes(StandardCharsets.UTF_8));
+                size += child.length();
+            }
+        }
+        return Long.toHexString(crc.getValue()) + ":" + size;
+    }
+}
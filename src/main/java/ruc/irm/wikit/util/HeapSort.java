@@ -32,33 +32,21 @@ package ruc.irm.wikit.util;
  * array are placed in the array's last N positions (the maximum entry of 
  * the array will be in array[array.length-1], the second maximum in 
  * array[array.length-2] etc. 
+ * <p>The heap size and temporary values are kept in local variables, so
+ * the sort methods can be called from several threads at the same time.
  * @author Vassilis Plachouras
  * @version $Revision: 1.15 $
  */
 public class HeapSort {
-	/** The size of the heap.*/
-	private static int heapSize;
-	/** The left child.*/
-	private static int l;
-	/** The right child.*/
-	private static int r;
-	/** The largest.*/
-	private static int largest;
-	/** A temporary double.*/
-	private static double tmpDouble;
-	/** A temporary float.*/
-	private static float tmpFloat;
-	/** A temporary int.*/
-	private static int tmpInt;
 	
 	/**
 	 * Builds a maximum heap.
 	 * @param A int[] the array which will be transformed into a heap.
 	 */
 	private static void buildMaxHeap(double[] A, int[] B) {
-		heapSize = A.length;
+		final int heapSize = A.length;
 		for (int i = (int) Math.floor(heapSize / 2.0D); i > 0; i--)
-			maxHeapify(A, B, i);
+			maxHeapify(A, B, i, heapSize);
 	}
 	
 	/**
@@ -66,9 +54,9 @@ public class HeapSort {
 	 * @param A int[] the array which will be transformed into a heap.
 	 */
 	private static void buildMaxHeap(float[] A, int[] B) {
-		heapSize = A.length;
+		final int heapSize = A.length;
 		for (int i = (int) Math.floor(heapSize / 2.0D); i > 0; i--)
-			maxHeapify(A, B, i);
+			maxHeapify(A, B, i, heapSize);
 	}
 	
 	/**
@@ -76,17 +64,7 @@ public class HeapSort {
 	 * @param A int[] the array to be sorted
 	 */
 	public static void heapSort(double[] A, int[] B) {
-		buildMaxHeap(A, B);
-		for (int i = A.length; i > 0; i--) {
-			tmpDouble = A[i - 1];
-			A[i - 1] = A[0];
-			A[0] = tmpDouble;
-			tmpInt = B[i - 1];
-			B[i - 1] = B[0];
-			B[0] = tmpInt;
-			heapSize--;
-			maxHeapify(A, B, 1);
-		}
+		heapSort(A, B, A.length);
 	}
 	/**
 	 * Sorts the top <tt>topElements</tt> of the given array in 
@@ -96,17 +74,18 @@ public class HeapSort {
 	 */
 	public static void heapSort(double[] A, int[] B, int topElements) {
 		buildMaxHeap(A, B);
+		int heapSize = A.length;
 		final int end = A.length - topElements;
 		
 		for (int i = A.length; i > end; i--) {
-			tmpDouble = A[i - 1];
+			double tmpDouble = A[i - 1];
 			A[i - 1] = A[0];
 			A[0] = tmpDouble;
-			tmpInt = B[i - 1];
+			int tmpInt = B[i - 1];
 			B[i - 1] = B[0];
 			B[0] = tmpInt;
 			heapSize--;
-			maxHeapify(A, B, 1);
+			maxHeapify(A, B, 1, heapSize);
 		}
 	}
 	/**
@@ -114,24 +93,28 @@ public class HeapSort {
 	 * @param A int[] The array on which we operate.
 	 * @param i int a position in the array. This number is 
 	 * between 1 and A.length inclusive.
+	 * @param heapSize int the size of the heap.
 	 */
-	private static void maxHeapify(double[] A, int[] B, int i) {
-		l = 2 * i;
-		r = 2 * i + 1;
-		if (l <= heapSize && A[l - 1] > A[i - 1])
-			largest = l;
-		else
-			largest = i;
-		if (r <= heapSize && A[r - 1] > A[largest - 1])
-			largest = r;
-		if (largest != i) {
-			tmpDouble = A[largest - 1];
+	private static void maxHeapify(double[] A, int[] B, int i, int heapSize) {
+		while (true) {
+			final int l = 2 * i;
+			final int r = 2 * i + 1;
+			int largest;
+			if (l <= heapSize && A[l - 1] > A[i - 1])
+				largest = l;
+			else
+				largest = i;
+			if (r <= heapSize && A[r - 1] > A[largest - 1])
+				largest = r;
+			if (largest == i)
+				return;
+			double tmpDouble = A[largest - 1];
 			A[largest - 1] = A[i - 1];
 			A[i - 1] = tmpDouble;
-			tmpInt = B[largest - 1];
+			int tmpInt = B[largest - 1];
 			B[largest - 1] = B[i - 1];
 			B[i - 1] = tmpInt;
-			maxHeapify(A, B, largest);
+			i = largest;
 		}
 	}
 	
@@ -141,17 +124,7 @@ public class HeapSort {
 	 * @param A int[] the array to be sorted
 	 */
 	public static void heapSort(float[] A, int[] B) {
-		buildMaxHeap(A, B);
-		for (int i = A.length; i > 0; i--) {
-			tmpFloat = A[i - 1];
-			A[i - 1] = A[0];
-			A[0] = tmpFloat;
-			tmpInt = B[i - 1];
-			B[i - 1] = B[0];
-			B[0] = tmpInt;
-			heapSize--;
-			maxHeapify(A, B, 1);
-		}
+		heapSort(A, B, A.length);
 	}
 	/**
 	 * Sorts the top <tt>topElements</tt> of the given array in 
@@ -161,17 +134,18 @@ public class HeapSort {
 	 */
 	public static void heapSort(float[] A, int[] B, int topElements) {
 		buildMaxHeap(A, B);
+		int heapSize = A.length;
 		final int end = A.length - topElements;
 		
 		for (int i = A.length; i > end; i--) {
-			tmpFloat = A[i - 1];
+			float tmpFloat = A[i - 1];
 			A[i - 1] = A[0];
 			A[0] = tmpFloat;
-			tmpInt = B[i - 1];
+			int tmpInt = B[i - 1];
 			B[i - 1] = B[0];
 			B[0] = tmpInt;
 			heapSize--;
-			maxHeapify(A, B, 1);
+			maxHeapify(A, B, 1, heapSize);
 		}
 	}
 	/**
@@ -179,24 +153,28 @@ public class HeapSort {
 	 * @param A int[] The array on which we operate.
 	 * @param i int a position in the array. This number is 
 	 * between 1 and A.length inclusive.
+	 * @param heapSize int the size of the heap.
 	 */
-	private static void maxHeapify(float[] A, int[] B, int i) {
-		l = 2 * i;
-		r = 2 * i + 1;
-		if (l <= heapSize && A[l - 1] > A[i - 1])
-			largest = l;
-		else
-			largest = i;
-		if (r <= heapSize && A[r - 1] > A[largest - 1])
-			largest = r;
-		if (largest != i) {
-			tmpFloat = A[largest - 1];
+	private static void maxHeapify(float[] A, int[] B, int i, int heapSize) {
+		while (true) {
+			final int l = 2 * i;
+			final int r = 2 * i + 1;
+			int largest;
+			if (l <= heapSize && A[l - 1] > A[i - 1])
+				largest = l;
+			else
+				largest = i;
+			if (r <= heapSize && A[r - 1] > A[largest - 1])
+				largest = r;
+			if (largest == i)
+				return;
+			float tmpFloat = A[largest - 1];
 			A[largest - 1] = A[i - 1];
 			A[i - 1] = tmpFloat;
-			tmpInt = B[largest - 1];
+			int tmpInt = B[largest - 1];
 			B[largest - 1] = B[i - 1];
 			B[i - 1] = tmpInt;
-			maxHeapify(A, B, largest);
+			i = largest;
 		}
 	}
 }
@@ -0,0 +1,248 @@
+package ruc.irm.wikit.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-process metrics registry, which keeps the latency histograms of web
+ * routes and processing stages, and counts the Redis calls in total and per
+ * request. The metrics are written in Prometheus text format by
+ * {@link #writeText(StringBuilder)}.
+ * <p>
+ * The histograms have fixed buckets and are updated by LongAdder, so they
+ * can be observed by all worker threads without lock. The Redis calls of a
+ * request are counted by thread, since a request is processed by one worker
+ * thread from beginning to end. The request whose response is generated
+ * when it is sent, e.g., the chunked NDJSON results, is deferred by
+ * {@link #deferRequest()}, and observed when the response is finished.
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 18, 2026 1:10 AM
+ */
+public class Metrics {
+    /** latency buckets in seconds */
+    private static final double[] LATENCY_BUCKETS = {0.0005, 0.001, 0.0025,
+            0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private static final double[] COUNT_BUCKETS = {0, 1, 2, 5, 10, 20, 50,
+            100, 200, 500, 1000, 2000, 5000};
+
+    /** metric name --> histogram family, sorted by name */
+    private static final Map<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+
+    private static final LongAdder REDIS_CALLS = new LongAdder();
+
+    private static final ThreadLocal<int[]> REQUEST_REDIS_CALLS =
+            ThreadLocal.withInitial(() -> new int[1]);
+
+    private static final ThreadLocal<Request> CURRENT_REQUEST = new ThreadLocal<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Observe the time of a processing stage, e.g., tokenize or tree build,
+     * which is started at startNanos by System.nanoTime()
+     */
+    public static void observeStage(String stage, long startNanos) {
+        histogram("wikit_stage_seconds", "latency of processing stages",
+                "stage", stage, LATENCY_BUCKETS)
+                .observe((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /**
+     * Start the request on route processed by current thread, and start
+     * counting its Redis calls
+     */
+    public static Request beginRequest(String route) {
+        REQUEST_REDIS_CALLS.get()[0] = 0;
+        Request request = new Request(route, System.nanoTime());
+        CURRENT_REQUEST.set(request);
+        return request;
+    }
+
+    /**
+     * Observe the latency and Redis calls of the request, unless it has
+     * been deferred
+     */
+    public static void endRequest(Request request) {
+        CURRENT_REQUEST.remove();
+        if (!request.deferred) {
+            request.redisCalls += REQUEST_REDIS_CALLS.get()[0];
+            request.finish();
+        }
+    }
+
+    /**
+     * Defer the observation of the request processed by current thread, the
+     * caller counts the later work by {@link Request#count(Supplier)} and
+     * calls {@link Request#finish()} when the response is finished.
+     *
+     * @return the deferred request, null if no request is processed
+     */
+    public static Request deferRequest() {
+        Request request = CURRENT_REQUEST.get();
+        if (request != null && !request.deferred) {
+            request.deferred = true;
+            request.redisCalls += REQUEST_REDIS_CALLS.get()[0];
+        }
+        return request;
+    }
+
+    /**
+     * Count one Redis call
+     */
+    public static void redisCall() {
+        REDIS_CALLS.increment();
+        REQUEST_REDIS_CALLS.get()[0]++;
+    }
+
+    private static Histogram histogram(String name, String help, String label,
+                                       String value, double[] buckets) {
+        Family family = FAMILIES.get(name);
+        if (family == null) {
+            family = FAMILIES.computeIfAbsent(name, k -> new Family(help, label));
+        }
+        Histogram h = family.histograms.get(value);
+        if (h == null) {
+            h = family.histograms.computeIfAbsent(value, k -> new Histogram(buckets));
+        }
+        return h;
+    }
+
+    public static void writeText(StringBuilder sb) {
+        sb.append("# HELP wikit_redis_calls_total redis calls\n");
+        sb.append("# TYPE wikit_redis_calls_total counter\n");
+        sb.append("wikit_redis_calls_total ").append(REDIS_CALLS.sum()).append('\n');
+
+        for (Map.Entry<String, Family> entry : FAMILIES.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            sb.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(name).append(" histogram\n");
+            for (Map.Entry<String, Histogram> e : new ConcurrentSkipListMap<>(family.histograms).entrySet()) {
+                String labels = family.label + "=\"" + escape(e.getKey()) + "\"";
+                e.getValue().writeText(sb, name, labels);
+            }
+        }
+    }
+
+    public static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public static String format(double value) {
+        if (value == (long) value) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * A http request observed by route, its latency is from the beginning
+     * to the finish, and its Redis calls are counted on the threads which
+     * process it.
+     */
+    public static class Request {
+        private final String route;
+        private final long startNanos;
+        private int redisCalls = 0;
+        private boolean deferred = false;
+        private boolean finished = false;
+
+        private Request(String route, long startNanos) {
+            this.route = route;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Run the task for this request on current thread, its Redis calls
+         * are counted into this request
+         */
+        public <T> T count(Supplier<T> task) {
+            int[] calls = REQUEST_REDIS_CALLS.get();
+            int before = calls[0];
+            try {
+                return task.get();
+            } finally {
+                synchronized (this) {
+                    redisCalls += calls[0] - before;
+                }
+            }
+        }
+
+        /**
+         * Observe the latency and Redis calls, only the first call takes
+         * effect
+         */
+        public synchronized void finish() {
+            if (finished) return;
+            finished = true;
+            histogram("wikit_http_request_seconds", "latency of http requests",
+                    "route", route, LATENCY_BUCKETS)
+                    .observe((System.nanoTime() - startNanos) / 1e9);
+            histogram("wikit_http_request_redis_calls", "redis calls of each http request",
+                    "route", route, COUNT_BUCKETS)
+                    .observe(redisCalls);
+        }
+    }
+
+    private static class Family {
+        String help;
+        String label;
+        Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+        Family(String help, String label) {
+            this.help = help;
+            this.label = label;
+        }
+    }
+
+    /**
+     * Histogram with fixed upper bounds, the last bucket is +Inf.
+     */
+    public static class Histogram {
+        private final double[] bounds;
+        private final LongAdder[] buckets;
+        private final DoubleAdder sum = new DoubleAdder();
+        private final LongAdder count = new LongAdder();
+
+        Histogram(double[] bounds) {
+            this.bounds = bounds;
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double value) {
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sum.add(value);
+            count.increment();
+        }
+
+        void writeText(StringBuilder sb, String name, String labels) {
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                String le = (i < bounds.length) ? format(bounds[i]) : "+Inf";
+                sb.append(name).append("_bucket{").append(labels)
+                        .append(",le=\"").append(le).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            sb.append(name).append("_sum{").append(labels).append("} ")
+                    .append(format(sum.sum())).append('\n');
+            sb.append(name).append("_count{").append(labels).append("} ")
+                    .append(count.sum()).append('\n');
+        }
+    }
+}
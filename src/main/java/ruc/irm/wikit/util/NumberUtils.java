@@ -1,6 +1,10 @@
 package ruc.irm.wikit.util;
 
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -209,35 +213,119 @@ public class NumberUtils {
         return bytes;
     }
 
+    /**
+     * The first byte of compressed int set, the legacy format stores each
+     * number by 4 bytes, since the ids are positive, its first byte is never
+     * larger than 0x7F, so the two formats can be distinguished by the
+     * first byte.
+     */
+    private static final int COMPRESSED_INT_SET = 0x81;
+
     public static Set<Integer> bytes2IntSet(byte[] bytes) {
-        Set<Integer> numbers = new HashSet<>();
-        if (bytes == null || bytes.length < 4) {
-            return numbers;
-        }
-        int byteIndex = 0;
-        while (byteIndex < bytes.length) {
-            int v = bytes[byteIndex++] & 0xff;
-            v <<= 8;
-            v |= (bytes[byteIndex++] & 0xff);
-            v <<= 8;
-            v |= (bytes[byteIndex++] & 0xff);
-            v <<= 8;
-            v |= (bytes[byteIndex++] & 0xff);
+        int[] array = decodeIntSet(bytes);
+        Set<Integer> numbers = new HashSet<>(Math.max(16, array.length * 4 / 3 + 1));
+        for (int v : array) {
             numbers.add(v);
         }
         return numbers;
     }
 
+    public static TIntSet bytes2TIntSet(byte[] bytes) {
+        return new TIntHashSet(decodeIntSet(bytes));
+    }
+
     public static byte[] intSet2Bytes(Set<Integer> intSet) {
-        byte[] bytes = new byte[intSet.size()*4];
-        int byteIndex=0;
-        for(int num: intSet) {
-            bytes[byteIndex++] = (byte)((num>>24) & 0xff);
-            bytes[byteIndex++] = (byte)((num>>16) & 0xff);
-            bytes[byteIndex++] = (byte)((num>>8) & 0xff);
-            bytes[byteIndex++] = (byte)(num & 0xff);
+        int[] array = new int[intSet.size()];
+        int i = 0;
+        for (int num : intSet) {
+            array[i++] = num;
         }
-        return bytes;
+        return encodeIntSet(array);
+    }
+
+    public static byte[] intSet2Bytes(TIntSet intSet) {
+        return encodeIntSet(intSet.toArray());
+    }
+
+    /**
+     * Encode int set in compressed format: the numbers are sorted and
+     * de-duplicated, then the count, the first number and the deltas between
+     * neighbours are written as varint (7 bits per byte, low bits first),
+     * so a dense id set only takes 1~2 bytes per id instead of 4.
+     *
+     * @param numbers the numbers to encode, the array will be sorted in place
+     */
+    public static byte[] encodeIntSet(int[] numbers) {
+        if (numbers.length == 0) {
+            return new byte[0];
+        }
+
+        Arrays.sort(numbers);
+        byte[] buffer = new byte[1 + 5 * (numbers.length + 1)];
+        int pos = 0;
+        buffer[pos++] = (byte) COMPRESSED_INT_SET;
+
+        int count = 1;
+        for (int i = 1; i < numbers.length; i++) {
+            if (numbers[i] != numbers[i - 1]) count++;
+        }
+        pos = writeVarInt(buffer, pos, count);
+        pos = writeVarInt(buffer, pos, numbers[0]);
+        for (int i = 1; i < numbers.length; i++) {
+            if (numbers[i] != numbers[i - 1]) {
+                pos = writeVarInt(buffer, pos, numbers[i] - numbers[i - 1]);
+            }
+        }
+        return Arrays.copyOf(buffer, pos);
+    }
+
+    /**
+     * Decode int set bytes generated by {@link #encodeIntSet(int[])}, or
+     * the legacy 4 bytes per number format.
+     *
+     * @return the numbers in ascending order, empty array for null bytes
+     */
+    public static int[] decodeIntSet(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return new int[0];
+        }
+
+        if ((bytes[0] & 0xff) != COMPRESSED_INT_SET) {
+            int[] array = bytes2IntArray(bytes);
+            Arrays.sort(array);
+            return array;
+        }
+
+        int[] pos = {1};
+        int count = readVarInt(bytes, pos);
+        int[] array = new int[count];
+        int last = 0;
+        for (int i = 0; i < count; i++) {
+            last += readVarInt(bytes, pos);
+            array[i] = last;
+        }
+        return array;
+    }
+
+    private static int writeVarInt(byte[] buffer, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static int readVarInt(byte[] bytes, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
     }
 
     public static List<Integer> bytes2IntList(byte[] bytes) {
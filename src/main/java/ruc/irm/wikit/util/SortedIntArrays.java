@@ -0,0 +1,131 @@
+package ruc.irm.wikit.util;
+
+import java.util.Arrays;
+
+/**
+ * Intersection kernels over sorted int arrays without duplicated values,
+ * such as the link ids returned by LinkCache.getInlinkArrays().
+ * <p>
+ * Two arrays of similar size are intersected by linear merge, which only
+ * compares and advances two cursors. When one array is much smaller than the
+ * other, e.g., a rare page against a hub page, each value of the smaller one
+ * is searched in the larger one by galloping (exponential search followed by
+ * binary search) from the last matched position, so the cost is
+ * O(small * log(large/small)) instead of O(small + large).
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 17, 2026 11:50 PM
+ */
+public class SortedIntArrays {
+    /**
+     * Use galloping when the larger array is this times bigger than the
+     * smaller one
+     */
+    private static final int GALLOP_RATIO = 32;
+
+    private SortedIntArrays() {
+    }
+
+    /**
+     * Count the common values of two sorted arrays
+     */
+    public static int intersectionSize(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] t = a;
+            a = b;
+            b = t;
+        }
+        if (a.length == 0 || a[a.length - 1] < b[0] || b[b.length - 1] < a[0]) {
+            return 0;
+        }
+        if (b.length / a.length >= GALLOP_RATIO) {
+            return gallopIntersection(a, b, null);
+        }
+
+        int count = 0;
+        int i = 0, j = 0;
+        while (i < a.length && j < b.length) {
+            int x = a[i];
+            int y = b[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the common values of two sorted arrays, the result is sorted.
+     */
+    public static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] t = a;
+            a = b;
+            b = t;
+        }
+        if (a.length == 0) {
+            return new int[0];
+        }
+
+        int[] result = new int[a.length];
+        int count = 0;
+        if (b.length / a.length >= GALLOP_RATIO) {
+            count = gallopIntersection(a, b, result);
+        } else {
+            int i = 0, j = 0;
+            while (i < a.length && j < b.length) {
+                int x = a[i];
+                int y = b[j];
+                if (x < y) {
+                    i++;
+                } else if (x > y) {
+                    j++;
+                } else {
+                    result[count++] = x;
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return (count == result.length) ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Search each value of small in large by galloping, the matched values
+     * are written to result if it is not null.
+     */
+    private static int gallopIntersection(int[] small, int[] large, int[] result) {
+        int count = 0;
+        int low = 0;
+        for (int x : small) {
+            //find the range [low + bound/2, low + bound] which may contain x
+            int bound = 1;
+            while (low + bound < large.length && large[low + bound] < x) {
+                bound <<= 1;
+            }
+            int from = low + (bound >> 1);
+            int to = Math.min(low + bound, large.length - 1);
+            int pos = Arrays.binarySearch(large, from, to + 1, x);
+            if (pos >= 0) {
+                if (result != null) {
+                    result[count] = x;
+                }
+                count++;
+                low = pos + 1;
+            } else {
+                low = -pos - 1;
+            }
+            if (low >= large.length) {
+                break;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,436 @@
+package ruc.irm.wikit.util;
+
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Aggregate the values by string key on local disk, which replaces the
+ * temporary hashes in Redis for the batch jobs, e.g., the in-link counts of
+ * FirstStopFilter.
+ * <p>
+ * The values are aggregated in memory until there are "maxEntries" entries,
+ * then the entries are sorted by key and spilled to a run file. After all
+ * values have been added, {@link #finish()} merges the runs into one sorted
+ * data file &lt;name&gt;.dat in the directory, and the values of equal keys
+ * are combined. The data file is looked up by {@link #get(String)} with a
+ * sparse key index in memory, each lookup reads one block of INDEX_INTERVAL
+ * records at most.
+ * </p>
+ * <p>
+ * The data file is kept after close, so the aggregated values can be looked
+ * up in another process, e.g., the second phase of stop filter.
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 18, 2026 3:20 AM
+ */
+public abstract class SpillingAggregator<V> implements Closeable {
+    protected final Logger LOG = LoggerFactory.getLogger(this.getClass());
+
+    /** one key of every INDEX_INTERVAL records is kept in the sparse index */
+    private static final int INDEX_INTERVAL = 64;
+
+    /** the key longer than this can not be written by writeUTF() safely */
+    private static final int MAX_KEY_LENGTH = 8192;
+
+    private final File dir;
+    private final String name;
+    protected final int maxEntries;
+
+    private List<File> runs = new ArrayList<>();
+
+    private RandomAccessFile dataFile = null;
+    private String[] indexKeys = null;
+    private long[] indexOffsets = null;
+
+    protected SpillingAggregator(File dir, String name, int maxEntries) {
+        this.dir = dir;
+        this.name = name;
+        this.maxEntries = maxEntries;
+    }
+
+    /** the number of entries kept in memory */
+    protected abstract int memorySize();
+
+    /**
+     * Write the entries in memory sorted by key with writeRecord(), and
+     * clear the memory
+     */
+    protected abstract void writeSorted(DataOutputStream out) throws IOException;
+
+    protected abstract void writeValue(DataOutput out, V value) throws IOException;
+
+    protected abstract V readValue(DataInput in) throws IOException;
+
+    /** combine the values of the same key in different runs */
+    protected abstract V combine(V a, V b);
+
+    protected static boolean isValidKey(String key) {
+        return key != null && key.length() <= MAX_KEY_LENGTH;
+    }
+
+    protected void writeRecord(DataOutputStream out, String key, V value)
+            throws IOException {
+        out.writeUTF(key);
+        writeValue(out, value);
+    }
+
+    public File getDataFile() {
+        return new File(dir, name + ".dat");
+    }
+
+    /**
+     * Spill the entries in memory to a new run file if it is full.
+     */
+    protected void spillIfFull() throws IOException {
+        if (memorySize() >= maxEntries) {
+            spill();
+        }
+    }
+
+    private void spill() throws IOException {
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File run = new File(dir, name + ".run" + runs.size());
+        int size = memorySize();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(run), 1 << 20))) {
+            writeSorted(out);
+        }
+        runs.add(run);
+        LOG.info("spill {} entries of {} to {}", size, name, run);
+    }
+
+    /**
+     * Merge all runs into the data file, the aggregator can be looked up
+     * after finished.
+     */
+    public void finish() throws IOException {
+        if (memorySize() > 0 || runs.isEmpty()) {
+            spill();
+        }
+
+        File f = getDataFile();
+        File tmp = new File(dir, name + ".dat.tmp");
+        long records = 0;
+        List<RunReader> readers = new ArrayList<>();
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(
+                Comparator.comparing((RunReader r) -> r.key).thenComparingInt(r -> r.order));
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp), 1 << 20))) {
+            for (File run : runs) {
+                RunReader reader = new RunReader(run, readers.size());
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                String key = reader.key;
+                V value = reader.value;
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+                while (!queue.isEmpty() && queue.peek().key.equals(key)) {
+                    RunReader other = queue.poll();
+                    value = combine(value, other.value);
+                    if (other.next()) {
+                        queue.add(other);
+                    }
+                }
+                writeRecord(out, key, value);
+                records++;
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+
+        if (f.exists() && !f.delete()) {
+            throw new IOException("can not delete old file " + f);
+        }
+        if (!tmp.renameTo(f)) {
+            throw new IOException("can not rename " + tmp + " to " + f);
+        }
+        for (File run : runs) {
+            run.delete();
+        }
+        LOG.info("merge {} runs of {} into {} with {} records", runs.size(),
+                name, f, records);
+        runs.clear();
+    }
+
+    /**
+     * Get the aggregated value of key from the data file, null is returned
+     * if the key does not exist.
+     */
+    public synchronized V get(String key) throws IOException {
+        if (dataFile == null) {
+            openDataFile();
+        }
+        if (indexKeys.length == 0) {
+            return null;
+        }
+
+        int pos = Arrays.binarySearch(indexKeys, key);
+        if (pos < 0) {
+            pos = -pos - 2;
+            if (pos < 0) {
+                return null;
+            }
+        }
+        long start = indexOffsets[pos];
+        long end = (pos + 1 < indexOffsets.length) ? indexOffsets[pos + 1] : dataFile.length();
+        byte[] block = new byte[(int) (end - start)];
+        dataFile.seek(start);
+        dataFile.readFully(block);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(block));
+        while (in.available() > 0) {
+            String k = in.readUTF();
+            V value = readValue(in);
+            int c = k.compareTo(key);
+            if (c == 0) {
+                return value;
+            } else if (c > 0) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    private void openDataFile() throws IOException {
+        File f = getDataFile();
+        if (!f.exists()) {
+            throw new IOException(f + " does not exist, is the aggregator finished?");
+        }
+
+        List<String> keys = new ArrayList<>();
+        TLongArrayList offsets = new TLongArrayList();
+        long count = 0;
+        try (CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(new FileInputStream(f), 1 << 20))) {
+            DataInputStream in = new DataInputStream(counter);
+            while (true) {
+                long offset = counter.position;
+                String key = null;
+                try {
+                    key = in.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+                readValue(in);
+                if (count % INDEX_INTERVAL == 0) {
+                    keys.add(key);
+                    offsets.add(offset);
+                }
+                count++;
+            }
+        }
+        this.indexKeys = keys.toArray(new String[keys.size()]);
+        this.indexOffsets = offsets.toArray();
+        this.dataFile = new RandomAccessFile(f, "r");
+        LOG.info("open {} with {} records", f, count);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (dataFile != null) {
+            dataFile.close();
+            dataFile = null;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long position = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) position++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+    }
+
+    private class RunReader implements Closeable {
+        final int order;
+        final DataInputStream in;
+        String key = null;
+        V value = null;
+
+        RunReader(File run, int order) throws IOException {
+            this.order = order;
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(run), 1 << 16));
+        }
+
+        boolean next() throws IOException {
+            try {
+                key = in.readUTF();
+            } catch (EOFException e) {
+                return false;
+            }
+            value = readValue(in);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Sum the int values of each key, the counts are kept in a primitive
+     * map in memory.
+     */
+    public static class IntSum extends SpillingAggregator<Integer> {
+        private TObjectIntHashMap<String> counts = new TObjectIntHashMap<>();
+
+        public IntSum(File dir, String name, int maxEntries) {
+            super(dir, name, maxEntries);
+        }
+
+        public void add(String key, int delta) throws IOException {
+            if (!isValidKey(key)) return;
+            counts.adjustOrPutValue(key, delta, delta);
+            spillIfFull();
+        }
+
+        /**
+         * Get the sum of key, 0 is returned if key does not exist
+         */
+        public int getInt(String key) throws IOException {
+            Integer value = get(key);
+            return (value == null) ? 0 : value;
+        }
+
+        @Override
+        protected int memorySize() {
+            return counts.size();
+        }
+
+        @Override
+        protected void writeSorted(DataOutputStream out) throws IOException {
+            String[] keys = counts.keys(new String[counts.size()]);
+            Arrays.sort(keys);
+            for (String key : keys) {
+                out.writeUTF(key);
+                out.writeInt(counts.get(key));
+            }
+            counts.clear();
+        }
+
+        @Override
+        protected void writeValue(DataOutput out, Integer value) throws IOException {
+            out.writeInt(value);
+        }
+
+        @Override
+        protected Integer readValue(DataInput in) throws IOException {
+            return in.readInt();
+        }
+
+        @Override
+        protected Integer combine(Integer a, Integer b) {
+            return a + b;
+        }
+    }
+
+    /**
+     * Collect the distinct strings of each key in the adding order.
+     */
+    public static class StringList extends SpillingAggregator<List<String>> {
+        private Map<String, List<String>> lists = new HashMap<>();
+        private int values = 0;
+
+        public StringList(File dir, String name, int maxEntries) {
+            super(dir, name, maxEntries);
+        }
+
+        public void add(String key, String value) throws IOException {
+            if (!isValidKey(key) || !isValidKey(value)) return;
+            List<String> list = lists.get(key);
+            if (list == null) {
+                list = new ArrayList<>(1);
+                lists.put(key, list);
+            }
+            if (!list.contains(value)) {
+                list.add(value);
+                values++;
+                spillIfFull();
+            }
+        }
+
+        @Override
+        protected int memorySize() {
+            return values;
+        }
+
+        @Override
+        protected void writeSorted(DataOutputStream out) throws IOException {
+            String[] keys = lists.keySet().toArray(new String[lists.size()]);
+            Arrays.sort(keys);
+            for (String key : keys) {
+                writeRecord(out, key, lists.get(key));
+            }
+            lists.clear();
+            values = 0;
+        }
+
+        @Override
+        protected void writeValue(DataOutput out, List<String> value) throws IOException {
+            out.writeInt(value.size());
+            for (String s : value) {
+                out.writeUTF(s);
+            }
+        }
+
+        @Override
+        protected List<String> readValue(DataInput in) throws IOException {
+            int size = in.readInt();
+            List<String> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(in.readUTF());
+            }
+            return list;
+        }
+
+        @Override
+        protected List<String> combine(List<String> a, List<String> b) {
+            for (String s : b) {
+                if (!a.contains(s)) {
+                    a.add(s);
+                }
+            }
+            return a;
+        }
+    }
+}
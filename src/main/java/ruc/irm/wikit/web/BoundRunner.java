@@ -1,6 +1,8 @@
 package ruc.irm.wikit.web;
 
 import fi.iki.elonen.NanoHTTPD;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -8,16 +10,30 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 /**
+ * Run the client connections in a fixed thread pool. A keep-alive
+ * connection occupies its worker thread until it is closed or the socket
+ * read timeout expires, so at most maxConnections connections are accepted,
+ * the new connections beyond the limit are closed at once instead of
+ * waiting in the queue of the pool.
+ *
  * @author Tian Xia
  * @date Sep 02, 2016 22:56
  */
 class BoundRunner implements NanoHTTPD.AsyncRunner {
+    private static final Logger LOG = LoggerFactory.getLogger(BoundRunner.class);
+
     private ExecutorService executorService;
+    private final int maxConnections;
     private final List<NanoHTTPD.ClientHandler> running =
             Collections.synchronizedList(new ArrayList<NanoHTTPD.ClientHandler>());
 
     public BoundRunner(ExecutorService executorService) {
+        this(executorService, Integer.MAX_VALUE);
+    }
+
+    public BoundRunner(ExecutorService executorService, int maxConnections) {
         this.executorService = executorService;
+        this.maxConnections = maxConnections;
     }
 
     @Override
@@ -35,7 +51,12 @@ class BoundRunner implements NanoHTTPD.AsyncRunner {
 
     @Override
     public void exec(NanoHTTPD.ClientHandler clientHandler) {
-        executorService.submit(clientHandler);
+        if (running.size() >= maxConnections) {
+            LOG.warn("too many connections (max {}), close the new one.", maxConnections);
+            clientHandler.close();
+            return;
+        }
         this.running.add(clientHandler);
+        executorService.submit(clientHandler);
     }
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ import java.util.regex.Pattern;
 import fi.iki.elonen.NanoHTTPD;
 import fi.iki.elonen.NanoHTTPD.Response.IStatus;
 import fi.iki.elonen.NanoHTTPD.Response.Status;
+import ruc.irm.wikit.util.Metrics;
 
 /**
  * @author vnnv
@@ -330,6 +331,12 @@ public class RouterNanoHTTPD extends NanoHTTPD {
 
         private List<String> uriParams = new ArrayList<String>();
 
+        /**
+         * Handler instance of each worker thread, the handlers are created
+         * once for a thread and reused by the following requests.
+         */
+        private final ThreadLocal<Object> handlerInstance = new ThreadLocal<Object>();
+
         public UriResource(String uri, int priority, Class<?> handler, Object... initParameter) {
             this.handler = handler;
             this.initParameter = initParameter;
@@ -362,11 +369,26 @@ public class RouterNanoHTTPD extends NanoHTTPD {
             return Pattern.compile(patternUri);
         }
 
+        /**
+         * Process the request and observe its latency and Redis calls by
+         * route. The handler which streams its response defers the
+         * observation by {@link Metrics#deferRequest()}, and finishes it
+         * when the stream is read.
+         */
         public Response process(Map<String, String> urlParams, IHTTPSession session) {
+            Metrics.Request request = Metrics.beginRequest(uri == null ? "" : uri);
+            try {
+                return doProcess(urlParams, session);
+            } finally {
+                Metrics.endRequest(request);
+            }
+        }
+
+        private Response doProcess(Map<String, String> urlParams, IHTTPSession session) {
             String error = "General error!";
             if (handler != null) {
                 try {
-                    Object object = handler.newInstance();
+                    Object object = getHandlerInstance();
                     if (object instanceof UriResponder) {
                         UriResponder responder = (UriResponder) object;
                         switch (session.getMethod()) {
@@ -397,6 +419,15 @@ public class RouterNanoHTTPD extends NanoHTTPD {
             return NanoHTTPD.newFixedLengthResponse(Status.INTERNAL_ERROR, "text/plain", error);
         }
 
+        private Object getHandlerInstance() throws InstantiationException, IllegalAccessException {
+            Object object = handlerInstance.get();
+            if (object == null) {
+                object = handler.newInstance();
+                handlerInstance.set(object);
+            }
+            return object;
+        }
+
         @Override
         public String toString() {
             return new StringBuilder("UrlResource{uri='").append((uri == null ? "/" : uri))//
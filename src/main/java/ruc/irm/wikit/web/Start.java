@@ -10,11 +10,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.Executors;
 
 import fi.iki.elonen.NanoHTTPD;
 import fi.iki.elonen.NanoHTTPD.Response.IStatus;
 import fi.iki.elonen.NanoHTTPD.Response.Status;
-import fi.iki.elonen.util.ServerRunner;
 import org.apache.commons.cli.*;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.conf.ConfFactory;
@@ -24,6 +24,12 @@ public class Start extends RouterNanoHTTPD {
 
     private static final int PORT = 9090;
 
+    /**
+     * socket read timeout in milliseconds, an idle keep-alive connection
+     * releases its worker thread after the timeout
+     */
+    private int readTimeout = NanoHTTPD.SOCKET_READ_TIMEOUT;
+
     public static class UserHandler extends DefaultHandler {
 
         @Override
@@ -104,10 +110,22 @@ public class Start extends RouterNanoHTTPD {
      */
     public Start() throws IOException {
         super(PORT);
+        Conf conf = WebContex.getInstance().getConf();
+        int threads = (conf == null) ? 16 : conf.getInt("web.server.threads", 16);
+        int maxConnections = (conf == null) ? threads * 4
+                : conf.getInt("web.server.max.connections", threads * 4);
+        if (conf != null) {
+            readTimeout = conf.getInt("web.server.read.timeout", NanoHTTPD.SOCKET_READ_TIMEOUT);
+        }
+        setAsyncRunner(new BoundRunner(Executors.newFixedThreadPool(threads), maxConnections));
         addMappings();
         System.out.println("\nRunning! Point your browers to http://localhost:" + PORT + "/ \n");
     }
 
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
     /**
      * Add the routes Every route is an absolute path Parameters starts with ":"
      * Handler class should implement @UriResponder interface If the handler not
@@ -129,6 +147,10 @@ public class Start extends RouterNanoHTTPD {
         addRoute("/relatedness", RelatednessHandler.class);
         addRoute("/esa", ESAHandler.class);
 
+        addRoute("/api/relatedness", RelatednessApiHandler.class);
+        addRoute("/api/esa", EsaApiHandler.class);
+        addRoute("/metrics", MetricsHandler.class);
+
         //addRoute("relatedness/index", );
 
 //        addRoute("/user", UserHandler.class);
@@ -150,7 +172,7 @@ public class Start extends RouterNanoHTTPD {
      *
      * @param args
      */
-    public static void main(String[] args) throws ParseException {
+    public static void main(String[] args) throws ParseException, IOException {
         String helpMsg = "usage: ./run Start -c config.xml";
 
         HelpFormatter helpFormatter = new HelpFormatter();
@@ -167,7 +189,18 @@ public class Start extends RouterNanoHTTPD {
 
         System.out.println("Init web context ...");
         WebContex.getInstance().setConf(conf);
-
-        ServerRunner.run(Start.class);
+        WebContex.getInstance().init();
+
+        //started with the configured read timeout instead of ServerRunner,
+        //which always uses the default one
+        Start server = new Start();
+        server.start(server.getReadTimeout(), false);
+        System.out.println("Server started, Hit Enter to stop.\n");
+        try {
+            System.in.read();
+        } finally {
+            server.stop();
+            System.out.println("Server stopped.\n");
+        }
     }
 }
\ No newline at end of file
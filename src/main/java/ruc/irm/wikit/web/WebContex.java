@@ -1,8 +1,12 @@
 package ruc.irm.wikit.web;
 
 import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.esa.ESAModelImpl;
 
 /**
+ * Hold the configuration and the models shared by all handlers. The models
+ * are created once by {@link #init()} when the server starts.
+ *
  * @author Tian Xia
  * @date Feb 13, 2016 9:52 AM
  */
@@ -10,12 +14,11 @@ public class WebContex {
 
     private Conf conf = null;
 
-    private static WebContex instance = null;
+    private ESAModelImpl esaModel = null;
+
+    private static final WebContex instance = new WebContex();
 
     public static WebContex getInstance() {
-        if (instance == null) {
-            instance = new WebContex();
-        }
         return instance;
     }
 
@@ -29,4 +32,21 @@ public class WebContex {
         this.conf = conf;
     }
 
+    /**
+     * Create the shared models, ESAModelImpl is thread-safe, so all the
+     * worker threads use the same instance.
+     */
+    public synchronized void init() {
+        if (esaModel == null) {
+            esaModel = new ESAModelImpl(conf);
+        }
+    }
+
+    public ESAModelImpl getEsaModel() {
+        if (esaModel == null) {
+            init();
+        }
+        return esaModel;
+    }
+
 }
@@ -0,0 +1,196 @@
+package ruc.irm.wikit.web.handler;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import fi.iki.elonen.NanoHTTPD;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.util.Metrics;
+import ruc.irm.wikit.web.RouterNanoHTTPD;
+import ruc.irm.wikit.web.WebContex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Machine facing JSON API handler. The requests are posted as NDJSON, i.e.,
+ * one JSON object per line, or given by the url parameters as one request
+ * for GET. The results are streamed back as NDJSON in the order of the
+ * requests by chunked response, one line for each request.
+ * <p>
+ * The requests are processed in batches of "web.api.batch.size", so the
+ * sub class can resolve the names or links of a whole batch by one bulk
+ * lookup. A batch is processed only when the client has read the results
+ * of the previous one, so the request is observed in {@link Metrics} when
+ * the results are all read or the stream is closed.
+ * </p>
+ *
+ * @author Tian Xia
+ * @date Oct 18, 2026 0:20 AM
+ */
+public abstract class BaseNdjsonHandler extends RouterNanoHTTPD.DefaultStreamHandler {
+    protected Logger LOG = LoggerFactory.getLogger(this.getClass());
+
+    protected Conf conf = null;
+    private int batchSize = 100;
+
+    public BaseNdjsonHandler() {
+        this.conf = WebContex.getInstance().getConf();
+        this.batchSize = conf.getInt("web.api.batch.size", 100);
+    }
+
+    /**
+     * Process a batch of requests, the returned list has one result for
+     * each request in the same order.
+     */
+    protected abstract List<Object> process(List<JSONObject> requests);
+
+    @Override
+    public String getMimeType() {
+        return "application/x-ndjson";
+    }
+
+    @Override
+    public NanoHTTPD.Response.IStatus getStatus() {
+        return NanoHTTPD.Response.Status.OK;
+    }
+
+    @Override
+    public InputStream getData() {
+        throw new IllegalStateException("the data depends on the request");
+    }
+
+    @Override
+    public NanoHTTPD.Response get(RouterNanoHTTPD.UriResource uriResource,
+                                  Map<String, String> urlParams,
+                                  NanoHTTPD.IHTTPSession session) {
+        List<JSONObject> requests = new ArrayList<>();
+        try {
+            parseRequests(session, requests);
+        } catch (IOException | NanoHTTPD.ResponseException | JSONException e) {
+            return NanoHTTPD.newFixedLengthResponse(
+                    NanoHTTPD.Response.Status.BAD_REQUEST, getMimeType(),
+                    error(e.toString()) + "\n");
+        }
+        return NanoHTTPD.newChunkedResponse(getStatus(), getMimeType(),
+                new ResultStream(requests, Metrics.deferRequest()));
+    }
+
+    private void parseRequests(NanoHTTPD.IHTTPSession session,
+                               List<JSONObject> requests)
+            throws IOException, NanoHTTPD.ResponseException {
+        if (session.getMethod() == NanoHTTPD.Method.POST) {
+            Map<String, String> files = new HashMap<>();
+            session.parseBody(files);
+            String body = files.get("postData");
+            if (body != null) {
+                for (String line : body.split("\n")) {
+                    if (!line.trim().isEmpty()) {
+                        requests.add(JSON.parseObject(line));
+                    }
+                }
+                return;
+            }
+        }
+
+        Map<String, String> params = session.getParms();
+        if (!params.isEmpty()) {
+            requests.add(new JSONObject(new HashMap<>(params)));
+        }
+    }
+
+    protected static String error(String msg) {
+        JSONObject o = new JSONObject();
+        o.put("error", msg);
+        return o.toJSONString();
+    }
+
+    /**
+     * Generate the result lines batch by batch when they are read.
+     */
+    private class ResultStream extends InputStream {
+        private List<JSONObject> requests;
+        private Metrics.Request request;
+        private int next = 0;
+        private byte[] buffer = new byte[0];
+        private int position = 0;
+
+        /**
+         * @param request the deferred request observation, finished at the
+         *                end of stream, can be null
+         */
+        ResultStream(List<JSONObject> requests, Metrics.Request request) {
+            this.requests = requests;
+            this.request = request;
+        }
+
+        private List<Object> processBatch(List<JSONObject> batch) {
+            //the batch is processed by the thread reading the stream
+            return (request == null) ? process(batch) : request.count(() -> process(batch));
+        }
+
+        private void finishRequest() {
+            if (request != null) {
+                request.finish();
+            }
+        }
+
+        private boolean fill() {
+            while (position >= buffer.length) {
+                if (next >= requests.size()) {
+                    finishRequest();
+                    return false;
+                }
+                List<JSONObject> batch = requests.subList(next,
+                        Math.min(requests.size(), next + batchSize));
+                next += batch.size();
+
+                StringBuilder sb = new StringBuilder();
+                try {
+                    for (Object result : processBatch(batch)) {
+                        sb.append(JSON.toJSONString(result)).append('\n');
+                    }
+                } catch (RuntimeException e) {
+                    LOG.error("process batch error", e);
+                    for (int i = 0; i < batch.size(); i++) {
+                        sb.append(error(e.toString())).append('\n');
+                    }
+                }
+                buffer = sb.toString().getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? (buffer[position++] & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.length - position);
+            System.arraycopy(buffer, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            finishRequest();
+        }
+    }
+}
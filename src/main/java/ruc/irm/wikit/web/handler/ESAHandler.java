@@ -18,7 +18,6 @@ import ruc.irm.wikit.common.exception.WikitException;
 import ruc.irm.wikit.esa.ESAModel;
 import ruc.irm.wikit.esa.ESAModelImpl;
 import ruc.irm.wikit.esa.concept.ConceptCache;
-import ruc.irm.wikit.esa.concept.ConceptCacheRedisImpl;
 import ruc.irm.wikit.esa.concept.vector.ConceptIterator;
 import ruc.irm.wikit.esa.concept.vector.ConceptVector;
 import ruc.irm.wikit.espm.SemanticPath;
@@ -43,9 +42,10 @@ public class ESAHandler extends BaseFreemarkerHandler {
     private ConceptCache conceptCache = null;
 
     public ESAHandler() throws WikitException {
-        this.esaModel = new ESAModelImpl(WebContex.getInstance().getConf());
-        this.espmModel = new SemanticPathMiningWikiImpl(WebContex.getInstance().getConf());
-        this.conceptCache = new ConceptCacheRedisImpl(WebContex.getInstance().getConf());
+        ESAModelImpl model = WebContex.getInstance().getEsaModel();
+        this.esaModel = model;
+        this.espmModel = new SemanticPathMiningWikiImpl(WebContex.getInstance().getConf(), model);
+        this.conceptCache = model.getConceptCache();
     }
 
     @Override
@@ -62,17 +62,24 @@ public class ESAHandler extends BaseFreemarkerHandler {
                     root.put("msg", "No results.");
                 } else {
                     ConceptIterator it = cv.orderedIterator();
-                    List<Map<String, Object>> list = new ArrayList<>();
+                    List<Integer> ids = new ArrayList<>();
+                    List<Double> values = new ArrayList<>();
                     while (it.next()) {
-                        int cptId = it.getId();
-                        double value = it.getValue();
-                        String name = conceptCache.getNameById(cptId);
-                        String outId = conceptCache.getOutIdById(cptId);
+                        ids.add(it.getId());
+                        values.add(it.getValue());
+                    }
+
+                    //read names and out ids of all concepts at once
+                    int[] idArray = ids.stream().mapToInt(Integer::intValue).toArray();
+                    String[] names = conceptCache.getNamesByIds(idArray, null);
+                    String[] outIds = conceptCache.getOutIdsByIds(idArray);
+                    List<Map<String, Object>> list = new ArrayList<>();
+                    for (int i = 0; i < idArray.length; i++) {
                         Map<String, Object> record = ExtendMap.newMap().append
-                                ("name", name)
-                                .append("id", cptId)
-                                .append("value", value)
-                                .append("outId", outId);
+                                ("name", names[i])
+                                .append("id", idArray[i])
+                                .append("value", values.get(i))
+                                .append("outId", outIds[i]);
                         list.add(record);
                     }
                     root.put("concepts", list);
@@ -0,0 +1,86 @@
+package ruc.irm.wikit.web.handler;
+
+import com.alibaba.fastjson.JSONObject;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import ruc.irm.wikit.common.exception.WikitException;
+import ruc.irm.wikit.esa.ESAModel;
+import ruc.irm.wikit.esa.ESAModelImpl;
+import ruc.irm.wikit.esa.concept.ConceptCache;
+import ruc.irm.wikit.esa.concept.vector.ConceptIterator;
+import ruc.irm.wikit.esa.concept.vector.ConceptVector;
+import ruc.irm.wikit.util.ExtendMap;
+import ruc.irm.wikit.web.WebContex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ESA concept vector API, each request is {"t": text, "n": limit}, and the
+ * result is the input with the concepts ordered by value. The names and out
+ * ids of the concepts of a whole batch are read by one bulk lookup.
+ *
+ * @author Tian Xia
+ * @date Oct 18, 2026 0:40 AM
+ */
+public class EsaApiHandler extends BaseNdjsonHandler {
+    private ESAModel esaModel = null;
+    private ConceptCache conceptCache = null;
+
+    public EsaApiHandler() {
+        ESAModelImpl model = WebContex.getInstance().getEsaModel();
+        this.esaModel = model;
+        this.conceptCache = model.getConceptCache();
+    }
+
+    @Override
+    protected List<Object> process(List<JSONObject> requests) {
+        List<Object> results = new ArrayList<>(requests.size());
+        List<List<Map<String, Object>>> conceptLists = new ArrayList<>();
+        TIntIntMap id2index = new TIntIntHashMap();
+        TIntArrayList ids = new TIntArrayList();
+
+        for (JSONObject request : requests) {
+            String text = request.getString("t");
+            int limit = request.containsKey("n") ? request.getIntValue("n") : 100;
+            JSONObject result = new JSONObject();
+            result.put("t", text);
+            List<Map<String, Object>> concepts = new ArrayList<>();
+            try {
+                ConceptVector cv = (text == null) ? null : esaModel.getCombinedVector(text, limit);
+                if (cv != null) {
+                    ConceptIterator it = cv.orderedIterator();
+                    while (it.next()) {
+                        int cptId = it.getId();
+                        if (!id2index.containsKey(cptId)) {
+                            id2index.put(cptId, ids.size());
+                            ids.add(cptId);
+                        }
+                        concepts.add(ExtendMap.newMap()
+                                .append("id", cptId)
+                                .append("value", it.getValue()));
+                    }
+                }
+                result.put("concepts", concepts);
+            } catch (WikitException e) {
+                result.put("error", e.toString());
+            }
+            conceptLists.add(concepts);
+            results.add(result);
+        }
+
+        //resolve the names and out ids of all concepts in the batch at once
+        String[] names = conceptCache.getNamesByIds(ids.toArray(), null);
+        String[] outIds = conceptCache.getOutIdsByIds(ids.toArray());
+        for (List<Map<String, Object>> concepts : conceptLists) {
+            for (Map<String, Object> concept : concepts) {
+                int index = id2index.get((Integer) concept.get("id"));
+                concept.put("name", names[index]);
+                concept.put("outId", outIds[index]);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,59 @@
+package ruc.irm.wikit.web.handler;
+
+import com.google.common.cache.CacheStats;
+import fi.iki.elonen.NanoHTTPD;
+import ruc.irm.wikit.cache.NearCache;
+import ruc.irm.wikit.util.Metrics;
+import ruc.irm.wikit.web.RouterNanoHTTPD;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Expose the request and stage latency histograms, Redis call counts and
+ * near cache statistics in Prometheus text format.
+ *
+ * @author Tian Xia
+ * @date Oct 18, 2026 1:50 AM
+ */
+public class MetricsHandler extends RouterNanoHTTPD.DefaultHandler {
+
+    @Override
+    public String getText() {
+        StringBuilder sb = new StringBuilder();
+        Metrics.writeText(sb);
+
+        Map<String, CacheStats> stats = NearCache.listStats();
+        writeCacheStats(sb, stats, "wikit_near_cache_hits_total", "counter",
+                "near cache hits", s -> (double) s.hitCount());
+        writeCacheStats(sb, stats, "wikit_near_cache_misses_total", "counter",
+                "near cache misses", s -> (double) s.missCount());
+        writeCacheStats(sb, stats, "wikit_near_cache_evictions_total", "counter",
+                "near cache evictions", s -> (double) s.evictionCount());
+        writeCacheStats(sb, stats, "wikit_near_cache_hit_ratio", "gauge",
+                "near cache hit ratio", CacheStats::hitRate);
+        return sb.toString();
+    }
+
+    private void writeCacheStats(StringBuilder sb, Map<String, CacheStats> stats,
+                                 String name, String type, String help,
+                                 Function<CacheStats, Double> value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        for (Map.Entry<String, CacheStats> entry : stats.entrySet()) {
+            sb.append(name).append("{cache=\"").append(Metrics.escape(entry.getKey()))
+                    .append("\"} ").append(Metrics.format(value.apply(entry.getValue())))
+                    .append('\n');
+        }
+    }
+
+    @Override
+    public String getMimeType() {
+        return "text/plain; version=0.0.4";
+    }
+
+    @Override
+    public NanoHTTPD.Response.IStatus getStatus() {
+        return NanoHTTPD.Response.Status.OK;
+    }
+}
@@ -0,0 +1,69 @@
+package ruc.irm.wikit.web.handler;
+
+import com.alibaba.fastjson.JSONObject;
+import gnu.trove.list.array.TIntArrayList;
+import ruc.irm.wikit.cache.ArticleCache;
+import ruc.irm.wikit.cache.impl.ArticleCacheNearImpl;
+import ruc.irm.wikit.cache.impl.ArticleCacheRedisImpl;
+import ruc.irm.wikit.mining.relatedness.LinkRelatedness;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Link relatedness API, each request is a pair of page ids {"id1", "id2"}
+ * or page names {"name1", "name2"}, and the result is the input with
+ * "relatedness". The links of all pages in a batch are fetched once and
+ * shared by all pairs.
+ *
+ * @author Tian Xia
+ * @date Oct 18, 2026 0:50 AM
+ */
+public class RelatednessApiHandler extends BaseNdjsonHandler {
+    private ArticleCache articleCache = null;
+    private LinkRelatedness linkRelatedness = null;
+
+    public RelatednessApiHandler() {
+        this.articleCache = ArticleCacheNearImpl.wrap(conf, new ArticleCacheRedisImpl(conf));
+        this.linkRelatedness = new LinkRelatedness(conf);
+    }
+
+    @Override
+    protected List<Object> process(List<JSONObject> requests) {
+        List<Object> results = new ArrayList<>(requests.size());
+        TIntArrayList valid = new TIntArrayList();
+        TIntArrayList ids1 = new TIntArrayList();
+        TIntArrayList ids2 = new TIntArrayList();
+
+        for (int i = 0; i < requests.size(); i++) {
+            JSONObject request = requests.get(i);
+            JSONObject result = new JSONObject(request);
+            int id1 = getPageId(request, "id1", "name1");
+            int id2 = getPageId(request, "id2", "name2");
+            result.put("id1", id1);
+            result.put("id2", id2);
+            if (id1 <= 0 || id2 <= 0) {
+                result.put("error", "page does not exist");
+            } else {
+                valid.add(i);
+                ids1.add(id1);
+                ids2.add(id2);
+            }
+            results.add(result);
+        }
+
+        double[] scores = linkRelatedness.getPairRelatedness(ids1.toArray(), ids2.toArray());
+        for (int i = 0; i < scores.length; i++) {
+            ((JSONObject) results.get(valid.get(i))).put("relatedness", scores[i]);
+        }
+        return results;
+    }
+
+    private int getPageId(JSONObject request, String idKey, String nameKey) {
+        if (request.containsKey(idKey)) {
+            return request.getIntValue(idKey);
+        }
+        String name = request.getString(nameKey);
+        return (name == null) ? 0 : articleCache.getIdByNameOrAlias(name);
+    }
+}
@@ -1,20 +1,22 @@
 package ruc.irm.wikit.web.handler;
 
 import fi.iki.elonen.NanoHTTPD;
-import gnu.trove.procedure.TIntProcedure;
-import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.TIntHashSet;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import ruc.irm.wikit.cache.ArticleCache;
 import ruc.irm.wikit.cache.LinkCache;
+import ruc.irm.wikit.cache.impl.ArticleCacheNearImpl;
 import ruc.irm.wikit.cache.impl.ArticleCacheRedisImpl;
+import ruc.irm.wikit.cache.impl.LinkCacheNearImpl;
 import ruc.irm.wikit.cache.impl.LinkCacheRedisImpl;
 import ruc.irm.wikit.common.conf.Conf;
 import ruc.irm.wikit.common.exception.MissedException;
 import ruc.irm.wikit.common.exception.WikitException;
+import ruc.irm.wikit.espm.impl.SemanticPathMiningWikiImpl;
 import ruc.irm.wikit.mining.relatedness.EspmRelatedness;
 import ruc.irm.wikit.mining.relatedness.LinkRelatedness;
+import ruc.irm.wikit.util.SortedIntArrays;
 import ruc.irm.wikit.web.WebContex;
 
 import java.util.ArrayList;
@@ -35,10 +37,11 @@ public class RelatednessHandler extends BaseFreemarkerHandler {
 
     public RelatednessHandler() throws WikitException {
         Conf conf = WebContex.getInstance().getConf();
-        this.linkCache = new LinkCacheRedisImpl(conf);
-        this.articleCache = new ArticleCacheRedisImpl(conf);
+        this.linkCache = LinkCacheNearImpl.wrap(conf, new LinkCacheRedisImpl(conf));
+        this.articleCache = ArticleCacheNearImpl.wrap(conf, new ArticleCacheRedisImpl(conf));
         this.linkRelatedness = new LinkRelatedness(conf);
-        this.espmRelatedness = new EspmRelatedness(conf);
+        this.espmRelatedness = new EspmRelatedness(conf,
+                new SemanticPathMiningWikiImpl(conf, WebContex.getInstance().getEsaModel()));
     }
 
     @Override
@@ -72,55 +75,35 @@ public class RelatednessHandler extends BaseFreemarkerHandler {
 
             root.put("espmRelatedness", espmRelatedness.calculate(name1, name2));
 
-            TIntSet inlinks1 = linkCache.getInlinks(id1);
-            TIntSet inlinks2 = linkCache.getInlinks(id2);
-            root.put("inlinks1", inlinks1);
-            root.put("inlinks2", inlinks2);
-
-            TIntSet intersection = new TIntHashSet(inlinks1.toArray());
-            intersection.retainAll(inlinks2);
-
-            List<Pair<String, Integer>> listIn = new ArrayList<>();
-            intersection.forEach(new TIntProcedure() {
-                @Override
-                public boolean execute(int id) {
-                    try {
-                        listIn.add(new MutablePair<>(articleCache.getNameById(id), id));
-                    } catch (MissedException e1) {
-                        e1.printStackTrace();
-                    }
-                    return true;
-                }
-            });
-            root.put("intersectionInlinks", listIn);
-
-            TIntSet outlinks1 = linkCache.getOutlinks(id1);
-            TIntSet outlinks2 = linkCache.getOutlinks(id2);
-            root.put("outlinks1", outlinks1);
-            root.put("outlinks2", outlinks2);
-
-            intersection = new TIntHashSet(outlinks1.toArray());
-            intersection.retainAll(outlinks2);
-
-            List<Pair<String, Integer>> listOut = new ArrayList<>();
-            intersection.forEach(new TIntProcedure() {
-                @Override
-                public boolean execute(int id) {
-                    try {
-                        listOut.add(new MutablePair<>(articleCache.getNameById(id), id));
-                    } catch (MissedException e1) {
-                        e1.printStackTrace();
-                    }
-                    return true;
-                }
-            });
-            root.put("intersectionOutlinks", listOut);
+            int[][] inlinks = linkCache.getInlinkArrays(new int[]{id1, id2});
+            root.put("inlinks1", new TIntHashSet(inlinks[0]));
+            root.put("inlinks2", new TIntHashSet(inlinks[1]));
+            root.put("intersectionInlinks",
+                    listNames(SortedIntArrays.intersect(inlinks[0], inlinks[1])));
+
+            int[][] outlinks = linkCache.getOutlinkArrays(new int[]{id1, id2});
+            root.put("outlinks1", new TIntHashSet(outlinks[0]));
+            root.put("outlinks2", new TIntHashSet(outlinks[1]));
+            root.put("intersectionOutlinks",
+                    listNames(SortedIntArrays.intersect(outlinks[0], outlinks[1])));
         } else {
             root.put("msg", msg);
         }
         return root;
     }
 
+    private List<Pair<String, Integer>> listNames(int[] ids) {
+        List<Pair<String, Integer>> list = new ArrayList<>();
+        for (int id : ids) {
+            try {
+                list.add(new MutablePair<>(articleCache.getNameById(id), id));
+            } catch (MissedException e1) {
+                e1.printStackTrace();
+            }
+        }
+        return list;
+    }
+
     @Override
     protected String getTemplateName() {
         return "relatedness.ftl";
@@ -4,6 +4,7 @@ import fi.iki.elonen.NanoHTTPD;
 import org.apache.commons.lang3.math.NumberUtils;
 import ruc.irm.wikit.cache.ArticleCache;
 import ruc.irm.wikit.cache.RedirectCache;
+import ruc.irm.wikit.cache.impl.ArticleCacheNearImpl;
 import ruc.irm.wikit.cache.impl.ArticleCacheRedisImpl;
 import ruc.irm.wikit.cache.impl.RedirectCacheRedisImpl;
 import ruc.irm.wikit.common.conf.Conf;
@@ -31,7 +32,7 @@ public class WikiArticleHandler extends BaseFreemarkerHandler {
 
     public WikiArticleHandler() {
         this.conf = WebContex.getInstance().getConf();
-        this.articleCache = new ArticleCacheRedisImpl(conf);
+        this.articleCache = ArticleCacheNearImpl.wrap(conf, new ArticleCacheRedisImpl(conf));
         this.redirectCache = new RedirectCacheRedisImpl(conf);
     }
 
@@ -11,7 +11,9 @@ import org.apache.commons.lang3.tuple.Pair;
 import ruc.irm.wikit.cache.ArticleCache;
 import ruc.irm.wikit.cache.LinkCache;
 import ruc.irm.wikit.cache.RedirectCache;
+import ruc.irm.wikit.cache.impl.ArticleCacheNearImpl;
 import ruc.irm.wikit.cache.impl.ArticleCacheRedisImpl;
+import ruc.irm.wikit.cache.impl.LinkCacheNearImpl;
 import ruc.irm.wikit.cache.impl.LinkCacheRedisImpl;
 import ruc.irm.wikit.cache.impl.RedirectCacheRedisImpl;
 import ruc.irm.wikit.common.conf.Conf;
@@ -37,8 +39,8 @@ public class WikiLinkHandler extends BaseFreemarkerHandler {
 
     public WikiLinkHandler() {
         this.conf = WebContex.getInstance().getConf();
-        this.linkCache = new LinkCacheRedisImpl(conf);
-        this.articleCache = new ArticleCacheRedisImpl(conf);
+        this.linkCache = LinkCacheNearImpl.wrap(conf, new LinkCacheRedisImpl(conf));
+        this.articleCache = ArticleCacheNearImpl.wrap(conf, new ArticleCacheRedisImpl(conf));
         this.redirectCache = new RedirectCacheRedisImpl(conf);
     }
 
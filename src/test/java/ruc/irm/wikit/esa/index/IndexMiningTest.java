@@ -0,0 +1,99 @@
+package ruc.irm.wikit.esa.index;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ruc.irm.wikit.common.conf.Conf;
+import ruc.irm.wikit.esa.concept.ConceptCacheRedisImpl;
+import ruc.irm.wikit.util.Checkpoint;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tian Xia
+ * @date Oct 18, 2026 2:10 PM
+ */
+public class IndexMiningTest {
+    private static final String STAGE_IMPORT_IDF = "import.idf";
+
+    private File modelDir = null;
+
+    @Before
+    public void setUp() throws IOException {
+        modelDir = Files.createTempDirectory("esa-model").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        delete(modelDir);
+    }
+
+    private static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        f.delete();
+    }
+
+    private static File touch(File f) throws IOException {
+        f.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(1);
+        }
+        return f;
+    }
+
+    private Checkpoint openCheckpoint(File file) throws IOException {
+        Checkpoint checkpoint = new Checkpoint(file);
+        checkpoint.setStages(IndexMining.STAGE_IDF, IndexMining.STAGE_VECTOR,
+                IndexMining.STAGE_SORT, IndexMining.STAGE_TFIDF,
+                STAGE_IMPORT_IDF, ConceptCacheRedisImpl.STAGE_IMPORT_TFIDF);
+        return checkpoint;
+    }
+
+    /**
+     * The build is interrupted in the tf-idf import after the runs have
+     * been removed, the mining stages must not be executed again when it
+     * is resumed.
+     */
+    @Test
+    public void testResumeAfterTfIdf() throws IOException {
+        Conf conf = new Conf();
+        conf.set("esa.model.dir", modelDir.getAbsolutePath());
+
+        File idfFile = touch(new File(conf.getWikiTermsIdfFile()));
+        File termsFile = touch(new File(modelDir, "vector.terms"));
+        File runDir = new File(modelDir, "vector.runs");
+        touch(new File(runDir, "run-p000-00000.bin"));
+        File tfidfFile = touch(new File(conf.getWikiTfidfFile()));
+
+        File checkpointFile = new File(modelDir, "build.checkpoint");
+        Checkpoint checkpoint = openCheckpoint(checkpointFile);
+        checkpoint.done(IndexMining.STAGE_IDF, idfFile);
+        checkpoint.done(IndexMining.STAGE_VECTOR, runDir, termsFile);
+        checkpoint.done(IndexMining.STAGE_SORT, runDir, termsFile);
+        checkpoint.done(IndexMining.STAGE_TFIDF, tfidfFile);
+        new TermVectorSorter(runDir, 1000).clearRuns();
+        checkpoint.done(STAGE_IMPORT_IDF, idfFile);
+        checkpoint.setProgress(ConceptCacheRedisImpl.STAGE_IMPORT_TFIDF + ".offset", 100);
+        checkpoint.save();
+
+        checkpoint = openCheckpoint(checkpointFile);
+        //the index is not opened, any stage executed again fails
+        new IndexMining(conf).modify(checkpoint);
+
+        assertTrue(checkpoint.isDone(IndexMining.STAGE_TFIDF));
+        assertTrue(checkpoint.isDone(STAGE_IMPORT_IDF));
+        assertEquals(100, checkpoint.getProgress(
+                ConceptCacheRedisImpl.STAGE_IMPORT_TFIDF + ".offset", 0));
+        assertEquals(1, tfidfFile.length());
+    }
+}
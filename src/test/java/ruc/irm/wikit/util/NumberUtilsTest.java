@@ -0,0 +1,59 @@
+package ruc.irm.wikit.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tian Xia
+ * @date Oct 18, 2026 10:20 AM
+ */
+public class NumberUtilsTest {
+
+    @Test
+    public void testIntSetRoundTrip() {
+        int[] numbers = {9, 3, 1000, 7, 42};
+        byte[] bytes = NumberUtils.encodeIntSet(numbers.clone());
+        assertArrayEquals(new int[]{3, 7, 9, 42, 1000}, NumberUtils.decodeIntSet(bytes));
+    }
+
+    @Test
+    public void testIntSetDuplicated() {
+        byte[] bytes = NumberUtils.encodeIntSet(new int[]{5, 1, 5, 3, 1, 5});
+        assertArrayEquals(new int[]{1, 3, 5}, NumberUtils.decodeIntSet(bytes));
+    }
+
+    @Test
+    public void testIntSetEmpty() {
+        assertEquals(0, NumberUtils.encodeIntSet(new int[0]).length);
+        assertArrayEquals(new int[0], NumberUtils.decodeIntSet(new byte[0]));
+        assertArrayEquals(new int[0], NumberUtils.decodeIntSet(null));
+    }
+
+    @Test
+    public void testIntSetLargeDeltas() {
+        //the deltas take 1, 2, 3, 4 and 5 bytes of varint
+        int[] numbers = {0, 100, 100 + 300, 400 + 70000, 70400 + 20000000,
+                Integer.MAX_VALUE};
+        byte[] bytes = NumberUtils.encodeIntSet(numbers.clone());
+        assertArrayEquals(numbers, NumberUtils.decodeIntSet(bytes));
+    }
+
+    @Test
+    public void testIntSetDense() {
+        int[] numbers = new int[10000];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = 1000000 + i * 3;
+        }
+        byte[] bytes = NumberUtils.encodeIntSet(numbers.clone());
+        //the count and the first number, then one byte per delta
+        assertTrue(bytes.length < numbers.length + 10);
+        assertArrayEquals(numbers, NumberUtils.decodeIntSet(bytes));
+    }
+
+    @Test
+    public void testLegacyIntSet() {
+        byte[] legacy = NumberUtils.intArray2Bytes(new int[]{300, 2, 70000, 15});
+        assertArrayEquals(new int[]{2, 15, 300, 70000}, NumberUtils.decodeIntSet(legacy));
+    }
+}
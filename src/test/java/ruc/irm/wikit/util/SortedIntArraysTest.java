@@ -0,0 +1,92 @@
+package ruc.irm.wikit.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tian Xia
+ * @date Oct 18, 2026 10:40 AM
+ */
+public class SortedIntArraysTest {
+
+    private static int[] range(int from, int to, int step) {
+        int[] array = new int[(to - from + step - 1) / step];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = from + i * step;
+        }
+        return array;
+    }
+
+    private static int[] mergeIntersect(int[] a, int[] b) {
+        return Arrays.stream(a).filter(x -> Arrays.binarySearch(b, x) >= 0).toArray();
+    }
+
+    private static void check(int[] a, int[] b) {
+        int[] expected = mergeIntersect(a, b);
+        assertArrayEquals(expected, SortedIntArrays.intersect(a, b));
+        assertArrayEquals(expected, SortedIntArrays.intersect(b, a));
+        assertEquals(expected.length, SortedIntArrays.intersectionSize(a, b));
+        assertEquals(expected.length, SortedIntArrays.intersectionSize(b, a));
+    }
+
+    @Test
+    public void testEmpty() {
+        check(new int[0], range(0, 100, 1));
+        check(new int[0], new int[0]);
+    }
+
+    @Test
+    public void testMerge() {
+        check(new int[]{1, 3, 5, 7, 9}, new int[]{2, 3, 4, 5, 10});
+        check(new int[]{1, 2, 3}, new int[]{4, 5, 6});
+    }
+
+    /**
+     * The large arrays below are at least 32 times bigger than the small
+     * ones, so they are intersected by galloping.
+     */
+    @Test
+    public void testGallopLastElement() {
+        //the bound grows beyond the end before reaching the value
+        int[] large = range(0, 100, 1);
+        check(new int[]{99}, large);
+        check(new int[]{0, 99}, large);
+        check(new int[]{64, 99}, large);
+        check(new int[]{98, 99}, large);
+    }
+
+    @Test
+    public void testGallopBeyondEnd() {
+        int[] large = range(0, 200, 2);
+        check(new int[]{199, 250}, large);
+        check(new int[]{198, 1000}, large);
+        check(new int[]{-5, 1000}, large);
+    }
+
+    @Test
+    public void testGallopPowerOfTwoLength() {
+        //low + bound == length exactly
+        for (int length : new int[]{64, 128, 256}) {
+            int[] large = range(0, length, 1);
+            check(new int[]{length - 2, length - 1}, large);
+            check(new int[]{1, length - 1}, large);
+            check(new int[]{length / 2, length}, large);
+        }
+    }
+
+    @Test
+    public void testRandom() {
+        Random random = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            int[] large = random.ints(2000 + random.nextInt(2000), 0, 10000)
+                    .distinct().sorted().toArray();
+            int[] small = random.ints(1 + random.nextInt(60), 0, 10000)
+                    .distinct().sorted().toArray();
+            check(small, large);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ruc.irm.wikit.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tian Xia
+ * @date Oct 18, 2026 11:00 AM
+ */
+public class SpillingAggregatorTest {
+    private File dir = null;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("aggregator").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testSumAcrossRuns() throws IOException {
+        //spill every 2 entries, so the values of one key are in several runs
+        SpillingAggregator.IntSum sum = new SpillingAggregator.IntSum(dir, "sum", 2);
+        try {
+            for (int round = 0; round < 5; round++) {
+                sum.add("a", 1);
+                sum.add("b", 2);
+                sum.add("c" + round, 10);
+            }
+            sum.finish();
+
+            assertEquals(5, sum.getInt("a"));
+            assertEquals(10, sum.getInt("b"));
+            assertEquals(10, sum.getInt("c3"));
+            assertEquals(0, sum.getInt("d"));
+            assertEquals(0, sum.getInt(""));
+        } finally {
+            sum.close();
+        }
+        //the runs are removed after merged
+        assertTrue(sum.getDataFile().exists());
+        assertEquals(1, dir.listFiles().length);
+    }
+
+    @Test
+    public void testStringListAcrossRuns() throws IOException {
+        try (SpillingAggregator.StringList list = new SpillingAggregator.StringList(dir, "list", 3)) {
+            list.add("k", "x");
+            list.add("k", "y");
+            list.add("j", "x");
+            list.add("k", "x");
+            list.add("k", "z");
+            list.add("k", "y");
+            list.finish();
+
+            assertEquals(Arrays.asList("x", "y", "z"), list.get("k"));
+            assertEquals(Arrays.asList("x"), list.get("j"));
+            assertNull(list.get("m"));
+        }
+    }
+
+    @Test
+    public void testGetAtBlockBoundaries() throws IOException {
+        //more than one index block of 64 records, keys are in sorted order
+        int n = 64 * 3 + 5;
+        try (SpillingAggregator.IntSum sum = new SpillingAggregator.IntSum(dir, "block", 50)) {
+            for (int i = 0; i < n; i++) {
+                sum.add(String.format("key%05d", i), i + 1);
+            }
+            sum.finish();
+
+            for (int i : new int[]{0, 1, 63, 64, 65, 127, 128, 191, 192, n - 1}) {
+                assertEquals(i + 1, sum.getInt(String.format("key%05d", i)));
+            }
+            //before the first key, between two blocks and after the last key
+            assertNull(sum.get("a"));
+            assertNull(sum.get("key00063x"));
+            assertNull(sum.get("key99999"));
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        try (SpillingAggregator.IntSum sum = new SpillingAggregator.IntSum(dir, "empty", 10)) {
+            sum.finish();
+            assertNull(sum.get("a"));
+        }
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        try (SpillingAggregator.IntSum sum = new SpillingAggregator.IntSum(dir, "reopen", 10)) {
+            sum.add("a", 3);
+            sum.finish();
+        }
+        //the data file is looked up by another aggregator, e.g., in the
+        //second phase of stop filter
+        try (SpillingAggregator.IntSum sum = new SpillingAggregator.IntSum(dir, "reopen", 10)) {
+            assertEquals(3, sum.getInt("a"));
+        }
+    }
+}